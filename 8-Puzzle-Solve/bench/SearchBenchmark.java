@@ -0,0 +1,411 @@
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+
+/**
+ * A benchmark of the search algorithms, heuristics and child generation over a fixed
+ * corpus of 3x3 and 4x4 puzzles, so that changes in performance can be measured rather
+ * than read off the run time printed by a single search.
+ * <p>
+ * The corpus is made up of the example files (testStart / testGoal, ts / tg and 15pts / 15ptg)
+ * and a set of 4x4 puzzles created by random walks from the 4x4 goal, which are the same
+ * on every run. Each benchmark is run repeatedly for a warm up period, so that the JVM
+ * has compiled the code being measured, and then for a measurement period, after which
+ * the following are printed (the result of every run, warm up included, is folded into
+ * a sink, so the JVM can't drop the work being measured as unused):
+ * <ul>
+ * <li>ops/s - the number of times the whole corpus was processed per second</li>
+ * <li>nodes/s - the number of nodes searched (or heuristics calculated, or children
+ * created) per second</li>
+ * <li>MB/s and B/op - the rate of memory allocation, and the memory allocated each
+ * time the corpus was processed</li>
+ * </ul>
+ * The benchmark is kept in its own source folder (bench) so it isn't part of the program.
+ * It can be compiled against the program's classes, and run from the bin directory, as:
+ * <pre>
+ * javac -cp . -d . ../bench/SearchBenchmark.java
+ * java SearchBenchmark [directory of example files] [warm up seconds] [measurement seconds]
+ * </pre>
+ *
+ * @author Spencer Newton
+ *
+ */
+public class SearchBenchmark {
+	/**
+	 * The example start and goal files that make up the corpus.
+	 */
+	private static final String[][] CORPUS = {
+		{ "testStart1.txt", "testGoal1.txt" },
+		{ "testStart2.txt", "testGoal2.txt" },
+		{ "testStart3.txt", "testGoal3.txt" },
+		{ "testStart4.txt", "testGoal4.txt" },
+		{ "testStart6.txt", "testGoal5.txt" },
+		{ "testStart7.txt", "testGoal5.txt" },
+		{ "ts1.txt", "tg1.txt" },
+		{ "ts2.txt", "tg1.txt" },
+		{ "ts3.txt", "tg1.txt" },
+		{ "ts4.txt", "tg1.txt" },
+		{ "15pts1.txt", "15ptg1.txt" }
+	};
+
+	/**
+	 * The number of 4x4 puzzles created by random walks, and the number of moves in each walk.
+	 */
+	private static final int RANDOM_PUZZLES = 4;
+	private static final int RANDOM_MOVES = 12;
+
+	/**
+	 * How deep below each start state nodes are collected for the heuristic and child benchmarks.
+	 */
+	private static final int NODE_DEPTH = 5;
+
+	/**
+	 * The start and goal state of each puzzle in the corpus.
+	 */
+	private ArrayList<PuzzleGrid[]> puzzles = new ArrayList<PuzzleGrid[]>();
+
+	/**
+	 * The pattern databases built for each goal state in the corpus.
+	 */
+	private HashMap<PuzzleGrid, PatternDatabase[]> databases = new HashMap<PuzzleGrid, PatternDatabase[]>();
+
+	/**
+	 * The length of the warm up and measurement periods of each benchmark, in milliseconds.
+	 */
+	private long warmupTime;
+	private long measureTime;
+
+	/**
+	 * The results of every run of every benchmark folded together. It is printed once the
+	 * benchmarks finish, so no result is unused and no run can be skipped by the JVM.
+	 */
+	private static volatile long sink;
+
+	/**
+	 * Entry method of program.
+	 *
+	 * @param args The directory of the example files, the warm up time and the measurement time (in seconds).
+	 */
+	public static void main( String[] args )
+	{
+		String directory = args.length > 0 ? args[0] : ".";
+		long warmup = args.length > 1 ? Long.parseLong( args[1] ) : 2;
+		long measure = args.length > 2 ? Long.parseLong( args[2] ) : 5;
+
+		SearchBenchmark benchmark = new SearchBenchmark( directory, warmup * 1000, measure * 1000 );
+		benchmark.run();
+
+		System.out.println( "(sink " + Long.toHexString( sink ) + ")" );
+	}
+
+	/**
+	 * Constructor loading the corpus from the example files in a directory.
+	 *
+	 * @param directory		The directory containing the example files.
+	 * @param warmupTime	The length of the warm up period of each benchmark, in milliseconds.
+	 * @param measureTime	The length of the measurement period of each benchmark, in milliseconds.
+	 */
+	public SearchBenchmark( String directory, long warmupTime, long measureTime )
+	{
+		this.warmupTime = warmupTime;
+		this.measureTime = measureTime;
+
+		for ( String[] files : CORPUS )
+		{
+			puzzles.add( new PuzzleGrid[] {
+					new PuzzleGrid( new File( directory, files[0] ).getPath() ),
+					new PuzzleGrid( new File( directory, files[1] ).getPath() ) } );
+		}
+
+		// Walk randomly from the 4x4 goal (with a fixed seed, so the puzzles are the same every run)
+		PuzzleGrid goal = new PuzzleGrid( new File( directory, "15ptg1.txt" ).getPath() );
+		Random random = new Random( 15 );
+		for ( int i = 0; i < RANDOM_PUZZLES; i++ )
+		{
+			PackedGrid state = new PackedGrid( goal );
+			int last = -1;
+			for ( int move = 0; move < RANDOM_MOVES; move++ )
+			{
+				int direction = random.nextInt( 4 );
+				PackedGrid next = state.move( direction );
+
+				// Don't undo the last move
+				if ( next == null || direction == 3 - last ) move--;
+				else
+				{
+					state = next;
+					last = direction;
+				}
+			}
+			puzzles.add( new PuzzleGrid[] { state.toPuzzleGrid(), goal } );
+		}
+
+		// Split the tiles of each goal into patterns of up to 4 tiles
+		for ( PuzzleGrid[] puzzle : puzzles )
+		{
+			PuzzleGrid goalState = puzzle[1];
+			if ( databases.containsKey( goalState ) ) continue;
+
+			int tiles = goalState.getWidth() * goalState.getHeight() - 1;
+			PatternDatabase[] pdbs = new PatternDatabase[ ( tiles + 3 ) / 4 ];
+			for ( int p = 0; p < pdbs.length; p++ )
+			{
+				int[] pattern = new int[ Math.min( 4, tiles - p * 4 ) ];
+				for ( int t = 0; t < pattern.length; t++ ) pattern[t] = p * 4 + t + 1;
+				pdbs[p] = PatternDatabaseGenerator.generate( goalState, pattern );
+			}
+			databases.put( goalState, pdbs );
+		}
+	}
+
+	/**
+	 * Runs every benchmark and prints the results.
+	 */
+	public void run()
+	{
+		System.out.println( "===== Benchmarks (" + puzzles.size() + " puzzles, " + warmupTime / 1000 + "s warm up, "
+				+ measureTime / 1000 + "s measurement)" );
+		System.out.println( String.format( "%-32s %12s %14s %10s %14s", "Benchmark", "ops/s", "nodes/s", "MB/s", "B/op" ) );
+
+		benchmarkSearch( "bfs" );
+		benchmarkSearch( "dfs" );
+		benchmarkSearch( "gbfs" );
+		benchmarkSearch( "astar" );
+
+		benchmarkHeuristic( "AStarHeuristic" );
+		benchmarkHeuristic( "GreedyHeuristic" );
+		benchmarkHeuristic( "LinearConflictHeuristic" );
+		benchmarkHeuristic( "WalkingDistanceHeuristic" );
+		benchmarkHeuristic( "EmptyHeuristic" );
+		benchmarkHeuristic( "PatternDatabaseHeuristic" );
+
+		benchmarkChildren();
+	}
+
+	/**
+	 * Benchmarks solving every puzzle in the corpus with one of the search algorithms.
+	 * The depth first search is only run on the 3x3 puzzles, as with no heuristic to guide it,
+	 * it searches every path shorter than the solution of a 4x4 puzzle (many times over).
+	 *
+	 * @param algorithm	The code of the search algorithm, as given to Solve.
+	 */
+	private void benchmarkSearch( final String algorithm )
+	{
+		measure( "search." + algorithm, new Operation() {
+			public long run()
+			{
+				long nodesExpanded = 0;
+
+				for ( PuzzleGrid[] puzzle : puzzles )
+				{
+					if ( algorithm.equals( "dfs" ) && puzzle[0].getWidth() * puzzle[0].getHeight() > 9 ) continue;
+
+					SolutionFinder search = Solve.createSearch( algorithm, null, null );
+					SearchStats stats = search.findSolution( puzzle[0], puzzle[1] );
+					nodesExpanded += stats.getNodesExpanded();
+					result = result * 31 + stats.getSolutionLength();
+				}
+
+				return nodesExpanded;
+			}
+		} );
+	}
+
+	/**
+	 * Benchmarks calculating a heuristic for the nodes near the start of each puzzle.
+	 *
+	 * @param name		The name of the heuristic class.
+	 */
+	private void benchmarkHeuristic( String name )
+	{
+		final ArrayList<PuzzleNode> nodes = new ArrayList<PuzzleNode>();
+
+		for ( PuzzleGrid[] puzzle : puzzles )
+		{
+			int size = nodes.size();
+			collectNodes( new PuzzleNode( puzzle[0], createHeuristic( name, puzzle[1] ) ), nodes );
+
+			// The start state calculates its heuristic from scratch, so leave it out
+			nodes.remove( size );
+		}
+
+		measure( "heuristic." + name, new Operation() {
+			public long run()
+			{
+				for ( int i = 0; i < nodes.size(); i++ )
+				{
+					PuzzleNode node = nodes.get(i);
+					node.determineHeuristic();
+					result = result * 31 + Float.floatToIntBits( node.getHeuristicValue() );
+				}
+				return nodes.size();
+			}
+		} );
+	}
+
+	/**
+	 * Creates a heuristic for a puzzle's goal state.
+	 *
+	 * @param name		The name of the heuristic class.
+	 * @param goalState	The goal state of the puzzle.
+	 * @return The heuristic, with its goal set.
+	 */
+	private Heuristic createHeuristic( String name, PuzzleGrid goalState )
+	{
+		Heuristic heuristic;
+
+		if ( name.equals( "AStarHeuristic" ) ) heuristic = new AStarHeuristic();
+		else if ( name.equals( "GreedyHeuristic" ) ) heuristic = new GreedyHeuristic();
+		else if ( name.equals( "LinearConflictHeuristic" ) ) heuristic = new LinearConflictHeuristic();
+		else if ( name.equals( "WalkingDistanceHeuristic" ) ) heuristic = new WalkingDistanceHeuristic();
+		else if ( name.equals( "PatternDatabaseHeuristic" ) ) heuristic = new PatternDatabaseHeuristic( databases.get( goalState ) );
+		else heuristic = new EmptyHeuristic();
+
+		heuristic.setGoal( goalState );
+		return heuristic;
+	}
+
+	/**
+	 * Benchmarks creating the children of the nodes near the start of each puzzle.
+	 */
+	private void benchmarkChildren()
+	{
+		final ArrayList<PuzzleNode> nodes = new ArrayList<PuzzleNode>();
+
+		for ( PuzzleGrid[] puzzle : puzzles )
+		{
+			collectNodes( new PuzzleNode( puzzle[0], createHeuristic( "AStarHeuristic", puzzle[1] ) ), nodes );
+		}
+
+		measure( "PuzzleNode.createChildren", new Operation() {
+			public long run()
+			{
+				long children = 0;
+				for ( PuzzleNode node : nodes )
+				{
+					for ( PuzzleNode child : node.createChildren() )
+					{
+						result = result * 31 + child.getState().hashCode();
+						children++;
+					}
+				}
+				return children;
+			}
+		} );
+	}
+
+	/**
+	 * Adds a start node and every node up to NODE_DEPTH moves below it to a list, calculating
+	 * the heuristic of each as it is created (so each child can use its parent's).
+	 *
+	 * @param start		The start node, whose heuristic has its goal set.
+	 * @param nodes		The list to add the nodes to.
+	 */
+	private static void collectNodes( PuzzleNode start, ArrayList<PuzzleNode> nodes )
+	{
+		start.determineHeuristic();
+
+		int from = nodes.size();
+		nodes.add( start );
+
+		for ( int depth = 0; depth < NODE_DEPTH; depth++ )
+		{
+			int to = nodes.size();
+			for ( int i = from; i < to; i++ )
+			{
+				for ( PuzzleNode child : nodes.get(i).createChildren() )
+				{
+					child.determineHeuristic();
+					nodes.add( child );
+				}
+			}
+			from = to;
+		}
+	}
+
+	/**
+	 * Runs an operation repeatedly for the warm up period and then for the measurement period,
+	 * and prints its throughput and allocation rate over the measurement period.
+	 *
+	 * @param name		The name of the benchmark.
+	 * @param operation	The operation to measure.
+	 */
+	private void measure( String name, Operation operation )
+	{
+		long end = System.nanoTime() + warmupTime * 1000000;
+		while ( System.nanoTime() < end )
+		{
+			operation.run();
+			operation.consume();
+		}
+
+		long ops = 0, nodes = 0;
+		long allocated = allocatedBytes();
+		long startTime = System.nanoTime();
+		end = startTime + measureTime * 1000000;
+
+		// Always run the operation at least once
+		do
+		{
+			nodes += operation.run();
+			operation.consume();
+			ops++;
+		}
+		while ( System.nanoTime() < end );
+
+		double seconds = ( System.nanoTime() - startTime ) / 1e9;
+		allocated = allocatedBytes() - allocated;
+
+		System.out.println( String.format( "%-32s %12.2f %14.0f %10.1f %14d", name, ops / seconds, nodes / seconds,
+				allocated / seconds / ( 1024 * 1024 ), allocated / ops ) );
+	}
+
+	/**
+	 * Returns the total number of bytes allocated by the current thread, or 0 if the JVM
+	 * doesn't record it.
+	 *
+	 * @return The number of bytes allocated.
+	 */
+	private static long allocatedBytes()
+	{
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+		if ( bean instanceof com.sun.management.ThreadMXBean )
+		{
+			return ( (com.sun.management.ThreadMXBean) bean ).getThreadAllocatedBytes( Thread.currentThread().getId() );
+		}
+		return 0;
+	}
+
+	/**
+	 * An operation that is measured by a benchmark. Each run folds what it computed into
+	 * result, which is passed to the sink after the run.
+	 */
+	private static abstract class Operation {
+		/**
+		 * The results of the operation's current run, folded together.
+		 */
+		protected long result;
+
+		/**
+		 * Runs the operation once.
+		 *
+		 * @return The number of nodes processed.
+		 */
+		public abstract long run();
+
+		/**
+		 * Folds the result of the last run into the sink, so the run can't be skipped,
+		 * and starts the result of the next run.
+		 */
+		public void consume()
+		{
+			sink = sink * 31 + result;
+			result = 0;
+		}
+	}
+
+}
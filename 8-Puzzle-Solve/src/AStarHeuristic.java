@@ -10,9 +10,9 @@
 public class AStarHeuristic implements Heuristic {
 	
 	/**
-	 * The heuristic value of the attached node.
+	 * The goal position lookup table for the goal state of the search.
 	 */
-	private float heuristic = 0.0f;
+	private ManhattanTable table;
 	
 	/**
 	 * Default Constructor
@@ -20,62 +20,52 @@ public class AStarHeuristic implements Heuristic {
 	public AStarHeuristic() { }
 	
 	/**
-	 * Calculates the heuristic based on the current state and goal state of the search, using
+	 * Builds the goal position lookup table for the goal state.
+	 */
+	public void setGoal( PuzzleGrid goalState )
+	{
+		table = new ManhattanTable( goalState );
+	}
+	
+	/**
+	 * Calculates the heuristic based on the state of the node and the goal state of the search, using
 	 * the A* heuristic that takes into account the estimated cost to the goal and the total
 	 * path cost so far.
 	 */
-	public void calculateHeuristic( PuzzleNode currentState, PuzzleGrid goalState )
+	public float evaluate( PuzzleNode node )
 	{
-		// Need PuzzleGrid, not PuzzleNode, for calculation
-		PuzzleGrid currentGrid = currentState.getGrid();
-		int size = goalState.getWidth() * goalState.getHeight();
-		int[] currentPosition = new int[2]; // Coordinates in grid; [0] = x, [1] = y
-		int[] destination = new int[2]; // Coordinates in grid; [0] = x, [1] = y
-		int distance; // Manhattan distance
-		int totalDistance = 0; // Sum of distances for all tiles
+		PuzzleNode parent = node.getParent();
+		int distance;
 		
 		/* DISTANCE TO GOAL CALCULATION:
-		 * for each number from 0 to (width * height)
-		 * 		record position in currentState
-		 * 		calculate difference from goal position in number of moves (absolute difference in x and y)
-		 *		sum differences for each number
-		 * total sum = heuristic
-		*/
-		for ( int i = 0; i < size; i++)
+		 * If the parent was scored with this heuristic, only the tile that moved has changed
+		 * 		distance, so derive the distance from the parent's distance (its value less its
+		 * 		path cost) and that tile
+		 * Otherwise (ie at the start state) sum the distances of every tile
+		 */
+		if ( parent != null && parent.getHeuristic() == this )
 		{
-			currentPosition = currentGrid.getPositionInGrid( i );
-			destination = goalState.getPositionInGrid( i );
-			distance = Math.abs( currentPosition[0] - destination[0]) + 
-					Math.abs( currentPosition[1] - destination[1]);
-			totalDistance += distance;	
+			int parentDistance = (int) parent.getHeuristicValue() - parent.getPathCost();
+			distance = parentDistance + table.delta( parent.getState(), node.getState() );
 		}
-		
-		
-		/* PATH COST SO FAR CALCULATION:
-		 * Count number of parents (each move costs 1) until startNode is reached
-		 */
-		int costSoFar = 0; // number of steps taken (each step is 'distance' of 1)
-		PuzzleNode parent = currentState;
-		
-		// If parent is null, we have reached the start state, and thus the end of the current path.
-		while ( parent != null )
+		else
 		{
-			parent = parent.getParent();
-			costSoFar++;
+			distance = table.distance( node.getState() );
 		}
 		
+		// Path cost so far is recorded on the node as it is created (each move costs 1)
+		int costSoFar = node.getPathCost();
+		
 		// Sum path cost and estimated distance to goal
-		heuristic = totalDistance + costSoFar;
+		return distance + costSoFar;
 	}
 
 	/**
-	 * Returns the heuristic value calculated by the calculateHeuristic function.
-	 * 
-	 * @return The heuristic value.
+	 * Returns a new A* heuristic, with no goal state set.
 	 */
-	public float getHeuristicValue() 
+	public Heuristic copy()
 	{
-		return heuristic;
+		return new AStarHeuristic();
 	}
 
 }
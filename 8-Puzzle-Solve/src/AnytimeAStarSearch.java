@@ -0,0 +1,469 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * An implementation of the SolutionFinder interface that will find a solution to a
+ * problem quickly and then keep improving on it, using an Anytime Repairing A* (ARA*)
+ * Search algorithm.
+ * <p>
+ * The search starts as an A* search whose estimates of the distance to the goal are
+ * multiplied by a high weight (see WeightedHeuristic), which finds a solution after far
+ * fewer nodes than an A* search, but one that may be up to 'weight' times longer than the
+ * shortest. Each time a shorter solution is found it is passed to the SolutionListener.
+ * The weight is then lowered towards 1 and the search carried on from where it stopped,
+ * rather than started again: the open states are reordered by the new weight, and only
+ * the states searched since a cheaper path to them was found are opened again. Once the
+ * weight reaches 1, or no open state could lead to a shorter solution than the one
+ * found, the solution is known to be the shortest and the search ends.
+ * <p>
+ * If the search goes over its budget (see SearchBudget), such as its time limit, after a
+ * solution has been found, it ends with the shortest solution found so far rather than
+ * going over budget. Setting a time limit therefore gives the best solution that can be
+ * found in that time.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class AnytimeAStarSearch implements SolutionFinder {
+	/**
+	 * The listener that is told of each event of the search, such as printing a trace of it.
+	 */
+	private volatile SearchListener listener = new EmptySearchListener();
+
+	/**
+	 * The listener that is given each shorter solution as it is found, or null.
+	 */
+	private volatile SolutionListener solutionListener;
+
+	/**
+	 * The heuristic whose estimates are weighted, which each thread's context has its own
+	 * copy of (see Heuristic.copy()).
+	 */
+	private final Heuristic heuristic;
+
+	/**
+	 * The weight of the first search, and the amount it is lowered by after each solution.
+	 */
+	private final float initialWeight;
+	private final float weightStep;
+
+	/**
+	 * Whether the time spent in each phase of a search is measured (see SearchStats).
+	 */
+	private volatile boolean phaseTiming = false;
+
+	/**
+	 * The limits on the work of each search (see SearchBudget).
+	 */
+	private volatile SearchBudget budget = SearchBudget.UNLIMITED;
+
+	/**
+	 * The state of the last search made on each thread, kept so that the thread's next
+	 * search reuses its tables rather than allocating them again.
+	 */
+	private final ThreadLocal<Context> contexts = new ThreadLocal<Context>() {
+		protected Context initialValue()
+		{
+			return new Context();
+		}
+	};
+
+	/**
+	 * Default Constructor, using the Manhattan distance with a weight of 3, lowered by 0.5
+	 * after each solution.
+	 */
+	public AnytimeAStarSearch()
+	{
+		this( new AStarHeuristic() );
+	}
+
+	/**
+	 * Constructor specifying the heuristic whose estimates are weighted, with a weight of 3
+	 * lowered by 0.5 after each solution.
+	 *
+	 * @param heuristic	The heuristic, returning the path cost plus its estimate (such as an
+	 * 					AStarHeuristic or a PatternDatabaseHeuristic).
+	 */
+	public AnytimeAStarSearch( Heuristic heuristic )
+	{
+		this( heuristic, 3, 0.5f );
+	}
+
+	/**
+	 * Constructor specifying the heuristic whose estimates are weighted and the weights used.
+	 *
+	 * @param heuristic		The heuristic, returning the path cost plus its estimate (such as an
+	 * 						AStarHeuristic or a PatternDatabaseHeuristic).
+	 * @param initialWeight	The weight of the first search, at least 1.
+	 * @param weightStep	The amount the weight is lowered by after each search.
+	 */
+	public AnytimeAStarSearch( Heuristic heuristic, float initialWeight, float weightStep )
+	{
+		if ( !( initialWeight >= 1 ) ) throw new IllegalArgumentException( "The weight must be at least 1" );
+		if ( !( weightStep > 0 ) ) throw new IllegalArgumentException( "The weight step must be more than 0" );
+
+		this.heuristic = heuristic;
+		this.initialWeight = initialWeight;
+		this.weightStep = weightStep;
+	}
+
+	/**
+	 * Finds a solution of the puzzle from the start state to the goal state using an
+	 * Anytime Repairing A* Search Algorithm, returning the shortest solution found.
+	 *
+	 * @see SolutionFinder#findSolution(PuzzleGrid, PuzzleGrid)
+	 */
+	public SearchStats findSolution( PuzzleGrid startState, PuzzleGrid goalState )
+	{
+		return contexts.get().search( startState, goalState );
+	}
+
+	/**
+	 * Sets the listener that is told of each node expanded and child opened.
+	 *
+	 * @see SolutionFinder#setSearchListener(SearchListener)
+	 */
+	public void setSearchListener( SearchListener listener )
+	{
+		this.listener = listener;
+	}
+
+	/**
+	 * Sets the listener that is given each shorter solution as soon as it is found. It is
+	 * shared by every thread searching with this object.
+	 *
+	 * @param solutionListener	The listener, or null to only return the last solution.
+	 */
+	public void setSolutionListener( SolutionListener solutionListener )
+	{
+		this.solutionListener = solutionListener;
+	}
+
+	/**
+	 * Sets whether the time spent using the priority queue, creating children, checking for
+	 * visited states and evaluating the heuristic is measured.
+	 *
+	 * @see SolutionFinder#setPhaseTiming(boolean)
+	 */
+	public void setPhaseTiming( boolean phaseTiming )
+	{
+		this.phaseTiming = phaseTiming;
+	}
+
+	/**
+	 * Sets the limits on the nodes, memory and time of each search. A search that goes over
+	 * them once it has found a solution returns the shortest solution found.
+	 *
+	 * @see SolutionFinder#setSearchBudget(SearchBudget)
+	 */
+	public void setSearchBudget( SearchBudget budget )
+	{
+		this.budget = budget;
+	}
+
+	/**
+	 * Prints the data from the last search made on the calling thread.
+	 *
+	 * @see SolutionFinder#printSearchData()
+	 */
+	public void printSearchData()
+	{
+		contexts.get().printSearchData();
+	}
+
+	/**
+	 * The state of one thread's searches: the nodes of every state reached, the open states,
+	 * the states searched at the current weight and the results of its last search. It is
+	 * cleared at the start of each search, so its tables are reused at the size they have grown to.
+	 */
+	private class Context {
+		/**
+		 * The node of every state reached, holding the cheapest path cost found to it.
+		 */
+		private HashMap<PackedGrid, PuzzleNode> nodes = new HashMap<PackedGrid, PuzzleNode>();
+
+		/**
+		 * The move that reached each state on the cheapest path found to it.
+		 */
+		private ParentTable statesVisited = new ParentTable();
+
+		/**
+		 * The open states, in order of ascending weighted value (lowest first).
+		 */
+		private Frontier openStates = new HeapFrontier();
+
+		/**
+		 * The states searched at the current weight.
+		 */
+		private HashSet<PackedGrid> closedStates = new HashSet<PackedGrid>();
+
+		/**
+		 * The states a cheaper path was found to after they were searched at the current weight,
+		 * which are opened again once the weight is lowered (a state may be listed more than once).
+		 */
+		private ArrayList<PuzzleNode> inconsistent = new ArrayList<PuzzleNode>();
+
+		/**
+		 * The heuristic weighting this thread's copy of the heuristic.
+		 */
+		private WeightedHeuristic weighted = new WeightedHeuristic( heuristic.copy(), initialWeight );
+
+		/**
+		 * The result of the last search, with its solution and the counts of its work.
+		 */
+		private SearchStats stats = new SearchStats( "AnytimeAStarSearch", false );
+
+		// Analysis Parameters of the last search
+		private int solutionsFound = 0;
+		private float bound = 0;
+
+		/**
+		 * Finds a solution of the puzzle from the start state to the goal state using an
+		 * Anytime Repairing A* Search Algorithm, keeping the state of the search in this context.
+		 *
+		 * @see SolutionFinder#findSolution(PuzzleGrid, PuzzleGrid)
+		 */
+		public SearchStats search( PuzzleGrid startState, PuzzleGrid goalState )
+		{
+			// Use the same listeners and budget for the whole search, even if others are set part way through
+			SearchListener listener = AnytimeAStarSearch.this.listener;
+			SolutionListener solutionListener = AnytimeAStarSearch.this.solutionListener;
+			SearchBudget budget = AnytimeAStarSearch.this.budget;
+
+			// Initialize the stats and clear the states of any earlier search
+			stats = new SearchStats( "AnytimeAStarSearch", phaseTiming );
+			nodes.clear();
+			statesVisited.clear();
+			openStates.clear();
+			closedStates.clear();
+			inconsistent.clear();
+			solutionsFound = 0;
+			bound = 0;
+
+			// Don't search if the goal state can't be reached from the start state
+			if ( !startState.isSolvable( goalState ) )
+			{
+				return stats.finish( SearchStatus.UNSOLVABLE, null );
+			}
+
+			// Pack the start and goal states so they can be compared to nodes in one comparison
+			PackedGrid start = new PackedGrid( startState );
+			PackedGrid goal = new PackedGrid( goalState );
+
+			// The shortest solution found so far, and its number of moves
+			ArrayList<PuzzleGrid> solution = null;
+			int solutionCost = Integer.MAX_VALUE;
+
+			int nodeCounter = 0;
+
+			// Create a PuzzleNode for the start state, weighted by the initial weight, and open it
+			float weight = initialWeight;
+			weighted.setWeight( weight );
+			weighted.setGoal( goalState ); // Builds the lookup table shared by every node
+			PuzzleNode currentState = new PuzzleNode( start, weighted );
+			currentState.determineHeuristic();
+			stats.heuristicEvaluated();
+			openStates.add( currentState );
+			nodes.put( start, currentState );
+			statesVisited.add( start, ParentTable.START );
+
+			// Record start time of search
+			stats.start();
+			long startTime = System.nanoTime();
+			long deadline = budget.deadline();
+			String limit = null;
+			long lap = stats.clock();
+
+			// The state searched so far that is estimated to be closest to the goal, in case the
+			// search runs out of budget before finding a solution
+			PackedGrid bestState = start;
+			float bestDistance = Float.MAX_VALUE;
+
+			listener.searchStarted( "f" );
+
+			while ( true )
+			{
+				// Search at the current weight until no open state could lead to a shorter solution
+				// than the one found (a goal's weighted value is its path cost)
+				while ( !openStates.isEmpty() )
+				{
+					// Stop if the search has gone over its budget
+					limit = budget.exceeded( nodeCounter, (long) statesVisited.size() * SearchBudget.TABLE_ENTRY_BYTES
+							+ (long) nodes.size() * SearchBudget.NODE_BYTES, deadline );
+					if ( limit != null ) break;
+
+					// Poll from head of openStates = currentState
+					currentState = openStates.poll();
+					lap = stats.lap( SearchStats.FRONTIER, lap );
+					if ( currentState.getHeuristicValue() >= solutionCost )
+					{
+						// Leave it open for the next weight
+						openStates.add( currentState );
+						lap = stats.lap( SearchStats.FRONTIER, lap );
+						break;
+					}
+					closedStates.add( currentState.getState() );
+					lap = stats.lap( SearchStats.DUPLICATES, lap );
+					nodeCounter++;
+
+					listener.nodeExpanded( currentState.getState(), currentState.getHeuristicValue(), nodeCounter );
+
+					// If currentState == goalState, it is a shorter solution than any found so far
+					if ( currentState.getState().equalTo( goal ) )
+					{
+						solution = statesVisited.path( goal );
+						solutionCost = currentState.getPathCost();
+						solutionsFound++;
+						bound = weight;
+						if ( solutionListener != null )
+						{
+							solutionListener.solutionImproved( solution, weight, System.nanoTime() - startTime );
+						}
+						lap = stats.clock();
+						break;
+					}
+
+					// Keep the closest state to the goal, in case the search runs out of budget
+					if ( solution == null && weighted.distance( currentState ) < bestDistance )
+					{
+						bestState = currentState.getState();
+						bestDistance = weighted.distance( currentState );
+					}
+
+					// Else, poll currentState for child nodes
+					ArrayList<PuzzleNode> children = currentState.createChildren();
+					stats.addNodesGenerated( children.size() );
+					lap = stats.lap( SearchStats.EXPANSION, lap );
+					for ( int i = 0; i < children.size(); i++ )
+					{
+						PuzzleNode child = children.get(i);
+						PuzzleNode seen = nodes.get( child.getState() );
+						lap = stats.lap( SearchStats.DUPLICATES, lap );
+
+						// CHILD HAS NOT BEEN REACHED BEFORE
+						if ( seen == null )
+						{
+							// Calculate heuristic of child, then let go of its parent (the path is kept in statesVisited)
+							child.determineHeuristic();
+							child.setParent( null );
+							stats.heuristicEvaluated();
+							lap = stats.lap( SearchStats.HEURISTIC, lap );
+
+							openStates.add( child );
+							lap = stats.lap( SearchStats.FRONTIER, lap );
+							nodes.put( child.getState(), child );
+							statesVisited.add( child.getState(), child.getMove() );
+							lap = stats.lap( SearchStats.DUPLICATES, lap );
+							listener.childOpened( child.getState(), child.getHeuristicValue() );
+							continue;
+						}
+
+						if ( seen.getFrontierIndex() >= 0 ) stats.duplicateOpen();
+						else stats.duplicateClosed();
+
+						if ( child.getPathCost() >= seen.getPathCost() )
+						{
+							listener.childSeen( child.getState(), false );
+							continue;
+						}
+
+						// The child is a cheaper path to the state, so move the state onto this path
+						seen.setPathCost( child.getPathCost() );
+						seen.setMove( child.getMove() );
+						seen.determineHeuristic();
+						stats.heuristicEvaluated();
+						lap = stats.lap( SearchStats.HEURISTIC, lap );
+						statesVisited.set( child.getState(), child.getMove() );
+
+						// A state already searched at this weight waits until the weight is lowered to
+						// be searched again, otherwise it is moved up the queue (or opened again)
+						if ( closedStates.contains( seen.getState() ) ) inconsistent.add( seen );
+						else if ( seen.getFrontierIndex() >= 0 ) openStates.update( seen );
+						else openStates.add( seen );
+						lap = stats.lap( SearchStats.FRONTIER, lap );
+						listener.childSeen( child.getState(), true );
+					}
+
+					// currentState has now been searched
+					stats.nodeExpanded();
+					stats.frontierSize( openStates.size() );
+				}
+
+				if ( limit != null ) break;
+
+				// Take every state waiting to be searched, working out the lowest path cost plus
+				// (unweighted) distance of any, which no solution can be shorter than
+				ArrayList<PuzzleNode> waiting = inconsistent;
+				PuzzleNode node;
+				while ( ( node = openStates.poll() ) != null ) waiting.add( node );
+
+				float lowest = Float.MAX_VALUE;
+				for ( int i = 0; i < waiting.size(); i++ )
+				{
+					node = waiting.get(i);
+					lowest = Math.min( lowest, node.getPathCost() + weighted.distance( node ) );
+				}
+
+				// The solution is the shortest once it has been searched for with a weight of 1, or
+				// it is no longer than any solution through a state left to search
+				if ( solution != null && lowest != Float.MAX_VALUE ) bound = Math.min( weight, solutionCost / lowest );
+				if ( weight == 1 || waiting.isEmpty() || solutionCost <= lowest + 0.001f )
+				{
+					if ( solution != null ) bound = 1;
+					waiting.clear();
+					break;
+				}
+
+				// Lower the weight and open every waiting state again, reordered by the new weight
+				weight = Math.max( 1, weight - weightStep );
+				weighted.setWeight( weight );
+				lap = stats.clock();
+				for ( int i = 0; i < waiting.size(); i++ )
+				{
+					node = waiting.get(i);
+					if ( node.getFrontierIndex() >= 0 ) continue; // Listed more than once
+					node.determineHeuristic();
+					stats.heuristicEvaluated();
+					openStates.add( node );
+				}
+				lap = stats.lap( SearchStats.FRONTIER, lap );
+				waiting.clear();
+				closedStates.clear();
+			}
+
+			// Let go of the nodes now, rather than keeping them until the next search
+			nodes.clear();
+			openStates.clear();
+			closedStates.clear();
+			inconsistent.clear();
+
+			if ( solution != null )
+			{
+				// The shortest solution found, which is only known to be the shortest if the bound is 1
+				return stats.finish( SearchStatus.SOLVED, solution );
+			}
+			else if ( limit != null ) // If the search ran out of budget, keep the path to the closest state
+			{
+				return stats.finishOverBudget( limit, statesVisited.path( bestState ) );
+			}
+			else // If solution not found
+			{
+				return stats.finish( SearchStatus.NOT_FOUND, null );
+			}
+		}
+
+		public void printSearchData()
+		{
+			System.out.println( " === SEARCH ANALYSIS === " );
+			System.out.println( " Run Time: " + stats.getRunTime() / 1000000 + " milliseconds" );
+			System.out.println( " Heuristic: " + heuristic.getClass().getName() );
+			System.out.println( " Nodes Searched: " + stats.getNodesExpanded() );
+			System.out.println( " Solutions Found: " + solutionsFound );
+			System.out.println( " Suboptimality Bound: " + bound );
+			System.out.println( " Solution Length: " + ( stats.getSolutionLength() + 1 ) );
+			System.out.println( " ======================= " );
+		}
+	}
+
+}
@@ -0,0 +1,445 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * A program to solve many puzzles with the same goal state at once, spreading the
+ * puzzles over a pool of threads so that the number solved per second grows with the
+ * number of cores (and the JVM is only started once).
+ * <p>
+ * Every puzzle is solved by the same search object, which keeps a separate search state
+ * for each thread (see SolutionFinder), so each thread reuses the tables it has already
+ * grown rather than allocating new ones for every puzzle. A line is printed for each
+ * puzzle as soon as it is solved, so the results are not printed in the order the puzzles
+ * were given. Can be run as:
+ * <pre>
+ * java BatchSolve goal.txt algorithm [-t threads] [-p pattern.pdb] [-h heuristic] [-l list.txt] [-stats stats.jsonl] [-timing] [-nodes n] [-memory mb] [-time ms] [-depth moves] [start files or directories]
+ * </pre>
+ * where -p gives a pattern database file (or the distance table file for the table algorithm), -h
+ * gives the heuristic used by the astar and anytime algorithms (see Solve.createHeuristic()) and
+ * the start states are any number of files (such as testStart*.txt), every file in a
+ * directory, or a list file with one start state per line, written with its rows separated
+ * by '/' (eg 3,2,0/6,1,5/7,4,8). Blank lines and lines starting with # in a list file are skipped.
+ * -stats appends the stats of each search to a JSON lines file (see SearchStatsLog), and -timing
+ * times the phases of each search in them. -nodes, -memory (in megabytes) and -time (in milliseconds)
+ * limit each search (see SearchBudget), and a puzzle whose search goes over them is counted as over budget.
+ * -depth limits the number of moves searched by the dfs and dfs-fsm algorithms.
+ * <p>
+ * The hdastar algorithm already searches each puzzle on a thread for every core, so its
+ * puzzles are solved one at a time, whatever -t gives.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class BatchSolve {
+	/**
+	 * The message printed when the program is run with the wrong arguments
+	 */
+	private static final String USAGE = "Usage: java BatchSolve goal.txt algorithm [-t threads] [-p pattern.pdb] [-h heuristic] [-l list.txt]"
+			+ " [-stats stats.jsonl] [-timing] [-nodes n] [-memory mb] [-time ms] [-depth moves] [start files or directories]";
+
+	/**
+	 * The name and start state of each puzzle to solve.
+	 */
+	private ArrayList<String> names = new ArrayList<String>();
+	private ArrayList<PuzzleGrid> puzzles = new ArrayList<PuzzleGrid>();
+
+	/**
+	 * The number of puzzles solved, the number found to be unsolvable, the number whose
+	 * search went over its budget and the number whose search failed with an exception.
+	 */
+	private AtomicInteger solved = new AtomicInteger();
+	private AtomicInteger unsolvable = new AtomicInteger();
+	private AtomicInteger overBudget = new AtomicInteger();
+	private AtomicInteger failed = new AtomicInteger();
+
+	/**
+	 * The limits on the work of each search.
+	 */
+	private SearchBudget budget = SearchBudget.UNLIMITED;
+
+	/**
+	 * The greatest depth searched by the dfs and dfs-fsm algorithms, or -1 to deepen until the goal is found.
+	 */
+	private int maxDepth = -1;
+
+	/**
+	 * The file the stats of each search are written to, or null.
+	 */
+	private SearchStatsLog statsLog;
+
+	/**
+	 * Entry method of program.
+	 *
+	 * @param args Arguments from program execution
+	 */
+	public static void main( String[] args )
+	{
+		if ( args.length < 3 )
+		{
+			System.out.println( USAGE );
+			return;
+		}
+
+		BatchSolve batch = new BatchSolve();
+		ArrayList<String> patternFilenames = new ArrayList<String>();
+		String heuristicName = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		boolean phaseTiming = false;
+		long maxNodes = Long.MAX_VALUE, maxBytes = Long.MAX_VALUE, maxMillis = Long.MAX_VALUE;
+		int maxDepth = -1;
+
+		for ( int i = 2; i < args.length; i++ )
+		{
+			if ( args[i].equals( "-t" ) && i + 1 < args.length ) threads = Integer.parseInt( args[++i] );
+			else if ( args[i].equals( "-p" ) && i + 1 < args.length ) patternFilenames.add( args[++i] );
+			else if ( args[i].equals( "-h" ) && i + 1 < args.length ) heuristicName = args[++i];
+			else if ( args[i].equals( "-l" ) && i + 1 < args.length ) batch.loadList( args[++i] );
+			else if ( args[i].equals( "-stats" ) && i + 1 < args.length ) batch.openStatsLog( args[++i] );
+			else if ( args[i].equals( "-timing" ) ) phaseTiming = true;
+			else if ( args[i].equals( "-nodes" ) && i + 1 < args.length ) maxNodes = Long.parseLong( args[++i] );
+			else if ( args[i].equals( "-memory" ) && i + 1 < args.length ) maxBytes = Long.parseLong( args[++i] ) * 1024 * 1024;
+			else if ( args[i].equals( "-time" ) && i + 1 < args.length ) maxMillis = Long.parseLong( args[++i] );
+			else if ( args[i].equals( "-depth" ) && i + 1 < args.length ) maxDepth = Integer.parseInt( args[++i] );
+			else if ( !args[i].startsWith( "-" ) ) batch.loadFiles( new File( args[i] ) );
+			else
+			{
+				// An unknown option, or an option missing its value
+				System.out.println( USAGE );
+				return;
+			}
+		}
+
+		batch.setSearchBudget( new SearchBudget( maxNodes, maxBytes, maxMillis ) );
+		batch.setMaxDepth( maxDepth );
+
+		// Load the pattern databases or distance table, if any
+		PuzzleGrid goalState = new PuzzleGrid( args[0] );
+		String[] filenames = patternFilenames.toArray( new String[0] );
+		PatternDatabase[] databases = null;
+		DistanceTable table = null;
+		if ( args[1].equals( "table" ) ) table = Solve.loadDistanceTable( filenames, goalState );
+		else databases = Solve.loadDatabases( filenames, goalState );
+
+		batch.Run( goalState, args[1], heuristicName, threads, databases, table, phaseTiming );
+	}
+
+	/**
+	 * Default constructor
+	 */
+	public BatchSolve() { }
+
+	/**
+	 * Sets the limits on the nodes, memory and time of each search (see SearchBudget).
+	 *
+	 * @param budget	The budget.
+	 */
+	public void setSearchBudget( SearchBudget budget )
+	{
+		this.budget = budget;
+	}
+
+	/**
+	 * Sets the greatest number of moves searched by the dfs and dfs-fsm algorithms (see DepthFirstSearch).
+	 *
+	 * @param maxDepth	The depth limit, or -1 to deepen until the goal is found.
+	 */
+	public void setMaxDepth( int maxDepth )
+	{
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Adds the start state in a file, or in every file of a directory, to the puzzles to solve.
+	 *
+	 * @param file	The file or directory.
+	 */
+	public void loadFiles( File file )
+	{
+		if ( file.isDirectory() )
+		{
+			File[] files = file.listFiles();
+			Arrays.sort( files );
+			for ( File f : files )
+			{
+				if ( f.isFile() ) loadFiles( f );
+			}
+		}
+		else
+		{
+			names.add( file.getPath() );
+			puzzles.add( new PuzzleGrid( file.getPath() ) );
+		}
+	}
+
+	/**
+	 * Adds the start states listed in a file, one per line, to the puzzles to solve.
+	 *
+	 * @param filename	The list file.
+	 */
+	public void loadList( String filename )
+	{
+		try
+		{
+			BufferedReader br = new BufferedReader( new FileReader( filename ) );
+			String line;
+			int lineNumber = 0;
+
+			while ( ( line = br.readLine() ) != null )
+			{
+				lineNumber++;
+				line = line.trim();
+				if ( line.length() == 0 || line.startsWith( "#" ) ) continue;
+
+				names.add( filename + ":" + lineNumber );
+				puzzles.add( parseGrid( line, filename, lineNumber ) );
+			}
+			br.close();
+		}
+		catch ( IOException e )
+		{
+			System.out.println( "Unable to read from file " + filename + ". Closing..." );
+			System.exit(0);
+		}
+	}
+
+	/**
+	 * Opens a JSON lines file to append the stats of each search to.
+	 *
+	 * @param filename	The file.
+	 */
+	public void openStatsLog( String filename )
+	{
+		try
+		{
+			statsLog = new SearchStatsLog( filename );
+		}
+		catch ( IOException e )
+		{
+			System.out.println( "Unable to write to file " + filename + ". Closing..." );
+			System.exit(0);
+		}
+	}
+
+	/**
+	 * Reads a grid written on a single line, with its rows separated by '/' and its tiles by ','.
+	 *
+	 * @param line			The line.
+	 * @param filename		The file the line is from, for error messages.
+	 * @param lineNumber	The number of the line in the file, for error messages.
+	 * @return The grid.
+	 */
+	private static PuzzleGrid parseGrid( String line, String filename, int lineNumber )
+	{
+		String[] rows = line.split( "/" );
+		int width = rows[0].split( "," ).length;
+		int[][] grid = new int[width][rows.length];
+
+		for ( int y = 0; y < rows.length; y++ )
+		{
+			String[] data = rows[y].split( "," );
+
+			if ( data.length != width )
+			{
+				System.out.println( "Row " + (y + 1) + " on line " + lineNumber + " of file " + filename + " has "
+						+ data.length + " tiles, expected " + width + ". Closing..." );
+				System.exit(0);
+			}
+
+			for ( int x = 0; x < width; x++ )
+			{
+				try
+				{
+					grid[x][y] = Integer.parseInt( data[x].trim() );
+				}
+				catch ( NumberFormatException e )
+				{
+					System.out.println( "Tile '" + data[x] + "' on line " + lineNumber + " of file " + filename
+							+ " is not a number. Closing..." );
+					System.exit(0);
+				}
+			}
+		}
+
+		return new PuzzleGrid( grid );
+	}
+
+	/**
+	 * Solves every puzzle loaded, printing a line for each as it is solved and a summary
+	 * once all are done.
+	 *
+	 * @param gridGoal			The goal state of every puzzle.
+	 * @param searchAlgorithm	A code specifying the search algorithm to be used (see Solve).
+	 * @param heuristicName		The name of the heuristic used by the astar and anytime algorithms, or null for the default.
+	 * @param threads			The number of threads to solve the puzzles on.
+	 * @param databases			The pattern databases for the astar and idastar algorithms, or null.
+	 * @param table				The distance table for the table algorithm, or null.
+	 * @param phaseTiming		Whether to time the phases of each search (see SolutionFinder.setPhaseTiming()).
+	 */
+	public void Run( final PuzzleGrid gridGoal, final String searchAlgorithm, final String heuristicName, int threads,
+			final PatternDatabase[] databases, final DistanceTable table, boolean phaseTiming )
+	{
+		if ( heuristicName != null && Solve.createHeuristic( heuristicName ) == null )
+		{
+			System.out.println( "Heuristic not recognised." );
+			System.out.println( "Try again with one of the following heuristics:" );
+			System.out.println( "manhattan \nlinear \nwalking" );
+			return;
+		}
+		
+		if ( heuristicName != null && !Solve.usesHeuristic( searchAlgorithm ) )
+		{
+			System.out.println( "The " + searchAlgorithm + " algorithm doesn't take a heuristic (only astar and anytime do)." );
+			return;
+		}
+		
+		if ( maxDepth >= 0 && !Solve.usesDepthLimit( searchAlgorithm ) )
+		{
+			System.out.println( "The " + searchAlgorithm + " algorithm doesn't take a depth limit (only dfs and dfs-fsm do)." );
+			return;
+		}
+		
+		// One search object is shared by every thread
+		final SolutionFinder search = Solve.createSearch( searchAlgorithm, heuristicName, databases, table );
+		if ( search == null )
+		{
+			System.out.println( "Search term not recognised." );
+			System.out.println( "Try again with one of the following terms:" );
+			System.out.println( "bfs \nbibfs \ndfs \ndfs-fsm \ngbfs \nastar \nanytime \nidastar \nidastar-fsm \nhdastar \ntable" );
+			return;
+		}
+
+		// Check every puzzle is the same size as the goal before starting
+		for ( int i = 0; i < puzzles.size(); i++ )
+		{
+			if ( puzzles.get(i).getWidth() != gridGoal.getWidth() || puzzles.get(i).getHeight() != gridGoal.getHeight() )
+			{
+				System.out.println( "Start state " + names.get(i) + " is not the same size as the goal state. Closing..." );
+				System.exit(0);
+			}
+		}
+
+		search.setPhaseTiming( phaseTiming );
+		search.setSearchBudget( budget );
+		if ( maxDepth >= 0 ) ( (DepthFirstSearch) search ).setMaxDepth( maxDepth );
+
+		// A parallel search runs one search at a time on its own threads, so more batch threads would only wait
+		if ( search instanceof ParallelAStarSearch && threads > 1 )
+		{
+			System.out.println( "The " + searchAlgorithm + " algorithm searches on every core itself, so puzzles are solved one at a time." );
+			threads = 1;
+		}
+
+		System.out.println( "===== Solving " + puzzles.size() + " puzzles using " + searchAlgorithm + " on " + threads + " threads" );
+		System.out.println( "Puzzle\tStatus\tMoves\tNodes\tTime (ms)" );
+
+		ForkJoinPool pool = new ForkJoinPool( threads );
+		long startTime = System.nanoTime();
+
+		for ( int i = 0; i < puzzles.size(); i++ )
+		{
+			final String name = names.get(i);
+			final PuzzleGrid gridStart = puzzles.get(i);
+
+			pool.execute( new Runnable() {
+				public void run()
+				{
+					solve( name, gridStart, gridGoal, search );
+				}
+			} );
+		}
+
+		pool.shutdown();
+		try
+		{
+			pool.awaitTermination( Long.MAX_VALUE, TimeUnit.NANOSECONDS );
+		}
+		catch ( InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		long runTime = ( System.nanoTime() - startTime ) / 1000000;
+
+		// Stop the worker threads of a parallel search
+		if ( search instanceof ParallelAStarSearch ) ( (ParallelAStarSearch) search ).close();
+
+		if ( statsLog != null )
+		{
+			try
+			{
+				statsLog.close();
+			}
+			catch ( IOException e )
+			{
+				System.out.println( "Unable to close the stats file." );
+			}
+		}
+
+		System.out.println( " === BATCH ANALYSIS === " );
+		System.out.println( " Run Time: " + runTime + " milliseconds" );
+		System.out.println( " Puzzles: " + puzzles.size() );
+		System.out.println( " Solved: " + solved.get() );
+		System.out.println( " Unsolvable: " + unsolvable.get() );
+		if ( overBudget.get() > 0 ) System.out.println( " Over Budget: " + overBudget.get() );
+		if ( failed.get() > 0 ) System.out.println( " Failed: " + failed.get() );
+		System.out.println( " Puzzles per Second: " + String.format( "%.1f", puzzles.size() * 1000.0 / Math.max( 1, runTime ) ) );
+		System.out.println( " ====================== " );
+	}
+
+	/**
+	 * Solves a single puzzle on the calling thread, and prints a line with the result. If the
+	 * search throws an exception, the puzzle is counted as failed and a FAILED line is printed
+	 * with the exception, rather than the exception ending the thread without a line.
+	 *
+	 * @param name		The name of the puzzle.
+	 * @param gridStart	The start state.
+	 * @param gridGoal	The goal state.
+	 * @param search	The search object shared by every thread.
+	 */
+	private void solve( String name, PuzzleGrid gridStart, PuzzleGrid gridGoal, SolutionFinder search )
+	{
+		long startTime = System.nanoTime();
+		SearchStats stats;
+		try
+		{
+			stats = search.findSolution( gridStart, gridGoal );
+		}
+		catch ( RuntimeException | Error e )
+		{
+			failed.incrementAndGet();
+			System.out.println( name + "\tFAILED\t-\t-\t" + ( System.nanoTime() - startTime ) / 1000000 + "\n\t" + e );
+			return;
+		}
+		long runTime = ( System.nanoTime() - startTime ) / 1000000;
+
+		SearchStatus status = stats.getStatus();
+		if ( status == SearchStatus.SOLVED ) solved.incrementAndGet();
+		else if ( status == SearchStatus.UNSOLVABLE ) unsolvable.incrementAndGet();
+		else if ( status == SearchStatus.BUDGET_EXCEEDED ) overBudget.incrementAndGet();
+
+		if ( statsLog != null )
+		{
+			try
+			{
+				statsLog.write( name, stats );
+			}
+			catch ( IOException e )
+			{
+				System.out.println( "Unable to write the stats of " + name + "." );
+			}
+		}
+
+		// One println per puzzle, so lines from different threads are never mixed
+		System.out.println( name + "\t" + status + "\t" + ( stats.getSolution() != null ? stats.getSolutionLength() : "-" ) + "\t"
+				+ stats.getNodesExpanded() + "\t" + runTime );
+	}
+
+}
@@ -0,0 +1,305 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+
+/**
+ * An implementation of the SolutionFinder interface that will find the solution
+ * to a problem using a Bidirectional Breadth First Search algorithm.
+ * <p>
+ * As every move can be undone, the goal state can be searched backwards towards the
+ * start state in the same way as the start state is searched forwards. Two breadth
+ * first searches are run together, one from each end, each searching a whole level
+ * (every state one move further from its end) at a time. Each search has a hashed index
+ * of the states it has opened, and the searches stop at the end of the first level where
+ * a child is found in the other search's index. The shortest path through any of the
+ * meeting states found in that level is the shortest solution.
+ * <p>
+ * Each search only needs to go around half as deep as a single breadth first search,
+ * so far fewer states are opened (roughly the square root of the number for deep solutions).
+ * The level searched next is always taken from whichever search has fewer open states.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class BidirectionalBFS implements SolutionFinder {
+	/**
+	 * The listener that is told of each event of the search, such as printing a trace of it.
+	 */
+	private volatile SearchListener listener = new EmptySearchListener();
+
+	/**
+	 * Whether the time spent in each phase of a search is measured (see SearchStats).
+	 */
+	private volatile boolean phaseTiming = false;
+
+	/**
+	 * The limits on the work of each search (see SearchBudget).
+	 */
+	private volatile SearchBudget budget = SearchBudget.UNLIMITED;
+
+	/**
+	 * The state of the last search made on each thread, kept so that the thread's next
+	 * search reuses its tables rather than allocating them again.
+	 */
+	private final ThreadLocal<Context> contexts = new ThreadLocal<Context>() {
+		protected Context initialValue()
+		{
+			return new Context();
+		}
+	};
+
+	/**
+	 * Default Constructor.
+	 */
+	public BidirectionalBFS() { }
+
+	/**
+	 * Finds a solution of the puzzle from the start state to the goal state using a
+	 * Bidirectional Breadth First Search Algorithm.
+	 *
+	 * @see SolutionFinder#findSolution(PuzzleGrid, PuzzleGrid)
+	 */
+	public SearchStats findSolution( PuzzleGrid startState, PuzzleGrid goalState )
+	{
+		return contexts.get().search( startState, goalState );
+	}
+
+	/**
+	 * Sets the listener that is told of each node expanded and child opened.
+	 *
+	 * @see SolutionFinder#setSearchListener(SearchListener)
+	 */
+	public void setSearchListener( SearchListener listener )
+	{
+		this.listener = listener;
+	}
+
+	/**
+	 * Sets whether the time spent polling and adding nodes, creating children and checking
+	 * the indexes for opened states is measured.
+	 *
+	 * @see SolutionFinder#setPhaseTiming(boolean)
+	 */
+	public void setPhaseTiming( boolean phaseTiming )
+	{
+		this.phaseTiming = phaseTiming;
+	}
+
+	/**
+	 * Sets the limits on the nodes, memory and time of each search.
+	 *
+	 * @see SolutionFinder#setSearchBudget(SearchBudget)
+	 */
+	public void setSearchBudget( SearchBudget budget )
+	{
+		this.budget = budget;
+	}
+
+	/**
+	 * Prints the data from the last search made on the calling thread.
+	 * 
+	 * @see SolutionFinder#printSearchData()
+	 */
+	public void printSearchData()
+	{
+		contexts.get().printSearchData();
+	}
+
+	/**
+	 * The state of one thread's searches: the indexes and open states of the two searches
+	 * and the results of the last search, cleared and reused by each search the thread makes.
+	 */
+	private class Context {
+		/**
+		 * Hashed indexes of the states opened by the searches from the start state and from the goal state.
+		 */
+		private HashMap<PackedGrid, PuzzleNode> forwardStates = new HashMap<PackedGrid, PuzzleNode>();
+		private HashMap<PackedGrid, PuzzleNode> backwardStates = new HashMap<PackedGrid, PuzzleNode>();
+
+		/**
+		 * The open states of each search, which are all on its current level.
+		 */
+		private ArrayDeque<PuzzleNode> forwardOpen = new ArrayDeque<PuzzleNode>();
+		private ArrayDeque<PuzzleNode> backwardOpen = new ArrayDeque<PuzzleNode>();
+
+		/**
+		 * The result of the last search, with its solution and the counts of its work.
+		 */
+		private SearchStats stats = new SearchStats( "BidirectionalBFS", false );
+
+		/**
+		 * The budget of the current search, the time it must stop by, and the limit it went
+		 * over (or null).
+		 */
+		private SearchBudget budget;
+		private long deadline;
+		private String limit;
+
+		/**
+		 * Finds a solution of the puzzle from the start state to the goal state using a
+		 * Bidirectional Breadth First Search Algorithm, keeping the state of the search in this context.
+		 *
+		 * @see SolutionFinder#findSolution(PuzzleGrid, PuzzleGrid)
+		 */
+		public SearchStats search( PuzzleGrid startState, PuzzleGrid goalState )
+		{
+			// Initialize the stats, solution list and indexes
+			stats = new SearchStats( "BidirectionalBFS", phaseTiming );
+			ArrayList<PuzzleGrid> solution = new ArrayList<PuzzleGrid>();
+			forwardStates.clear();
+			backwardStates.clear();
+			forwardOpen.clear();
+			backwardOpen.clear();
+			budget = BidirectionalBFS.this.budget;
+			limit = null;
+
+			// Don't search if the goal state can't be reached from the start state
+			if ( !startState.isSolvable( goalState ) )
+			{
+				return stats.finish( SearchStatus.UNSOLVABLE, null );
+			}
+
+			// Open the start state in the forward search and the goal state in the backward search
+			PuzzleNode start = new PuzzleNode( new PackedGrid( startState ), new EmptyHeuristic() );
+			PuzzleNode goal = new PuzzleNode( new PackedGrid( goalState ), new EmptyHeuristic() );
+			forwardOpen.add( start );
+			forwardStates.put( start.getState(), start );
+			backwardOpen.add( goal );
+			backwardStates.put( goal.getState(), goal );
+
+			// Record start time of search
+			stats.start();
+			deadline = budget.deadline();
+
+			listener.searchStarted( null );
+
+			// The state where the two searches meet on the shortest path, if found
+			PackedGrid meeting = null;
+			if ( start.getState().equalTo( goal.getState() ) ) meeting = start.getState();
+
+			// Search a level of whichever search has fewer open states, until they meet
+			while ( meeting == null && limit == null && !forwardOpen.isEmpty() && !backwardOpen.isEmpty() )
+			{
+				if ( forwardOpen.size() <= backwardOpen.size() )
+				{
+					meeting = searchLevel( forwardOpen, forwardStates, backwardStates );
+				}
+				else
+				{
+					meeting = searchLevel( backwardOpen, backwardStates, forwardStates );
+				}
+			}
+
+			if ( limit != null )
+			{
+				// Keep the path to the last state opened by the forward search (the start state if there is none)
+				PuzzleNode last = forwardOpen.isEmpty() ? start : forwardOpen.peekLast();
+				for ( PuzzleNode n = last; n != null; n = n.getParent() ) solution.add( 0, n.getGrid() );
+				return stats.finishOverBudget( limit, solution );
+			}
+
+			if ( meeting == null )
+			{
+				return stats.finish( SearchStatus.NOT_FOUND, null );
+			}
+
+			// Recreate path to solution, from the start state to the meeting state by following
+			// the forward search's parents back from the meeting state...
+			PuzzleNode currentState = forwardStates.get( meeting );
+			while ( currentState != null )
+			{
+				solution.add( 0, currentState.getGrid() );
+				currentState = currentState.getParent();
+			}
+
+			// ... and then on to the goal state by following the backward search's parents
+			currentState = backwardStates.get( meeting ).getParent();
+			while ( currentState != null )
+			{
+				solution.add( currentState.getGrid() );
+				currentState = currentState.getParent();
+			}
+
+			return stats.finish( SearchStatus.SOLVED, solution );
+		}
+
+		/**
+		 * Searches every open state on the current level of one of the searches, opening their
+		 * children as the next level.
+		 *
+		 * @param open		The open states of the search.
+		 * @param states	The index of states opened by the search.
+		 * @param other		The index of states opened by the other search.
+		 * @return The state on the shortest path where the searches met, or null if they haven't met
+		 * 		   (or the search went over its budget part way through the level).
+		 */
+		private PackedGrid searchLevel( ArrayDeque<PuzzleNode> open, HashMap<PackedGrid, PuzzleNode> states,
+				HashMap<PackedGrid, PuzzleNode> other )
+		{
+			PackedGrid meeting = null;
+			int shortest = Integer.MAX_VALUE;
+			long lap = stats.clock();
+
+			// Only search the states on this level, not the children opened while searching it
+			for ( int remaining = open.size(); remaining > 0; remaining-- )
+			{
+				// Stop if the search has gone over its budget (every state opened is kept)
+				limit = budget.exceeded( stats.getNodesExpanded(), (long) ( forwardStates.size() + backwardStates.size() )
+						* SearchBudget.NODE_BYTES, deadline );
+				if ( limit != null ) return null;
+
+				PuzzleNode currentState = open.poll();
+				lap = stats.lap( SearchStats.FRONTIER, lap );
+				stats.nodeExpanded();
+
+				listener.nodeExpanded( currentState.getState(), 0, (int) stats.getNodesExpanded() );
+
+				ArrayList<PuzzleNode> children = currentState.createChildren();
+				stats.addNodesGenerated( children.size() );
+				lap = stats.lap( SearchStats.EXPANSION, lap );
+
+				for ( PuzzleNode child : children )
+				{
+					// The index doesn't record whether the state has been searched yet
+					boolean seen = states.containsKey( child.getState() );
+					lap = stats.lap( SearchStats.DUPLICATES, lap );
+					if ( seen )
+					{
+						stats.duplicate();
+						listener.childSeen( child.getState(), false );
+						continue;
+					}
+
+					states.put( child.getState(), child );
+					open.add( child );
+					lap = stats.lap( SearchStats.FRONTIER, lap );
+					listener.childOpened( child.getState(), 0 );
+
+					// Keep the meeting state giving the shortest path, as others on this level may be shorter
+					PuzzleNode met = other.get( child.getState() );
+					if ( met != null && child.getPathCost() + met.getPathCost() < shortest )
+					{
+						meeting = child.getState();
+						shortest = child.getPathCost() + met.getPathCost();
+					}
+				}
+				lap = stats.lap( SearchStats.DUPLICATES, lap );
+			}
+
+			stats.frontierSize( open.size() );
+			return meeting;
+		}
+
+		public void printSearchData()
+		{
+			System.out.println( " === SEARCH ANALYSIS === " );
+			System.out.println( " Run Time: " + stats.getRunTime() / 1000000 + " milliseconds" );
+			System.out.println( " Nodes Searched: " + stats.getNodesExpanded() );
+			System.out.println( " States Opened: " + ( forwardStates.size() + backwardStates.size() ) );
+			System.out.println( " Solution Length: " + ( stats.getSolutionLength() + 1 ) );
+			System.out.println( " ======================= " );
+		}
+	}
+
+}
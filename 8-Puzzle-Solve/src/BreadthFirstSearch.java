@@ -1,11 +1,15 @@
-import java.util.LinkedList;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Queue;
 
 
 /**
  * An implementation of the SolutionFinder interface that will find the solution
  * to a problem using a Breadth First Search algorithm.
+ * <p>
+ * As every state is opened at its shortest distance from the start state, nothing but
+ * the state itself and the move that reached it needs to be kept. The open states are
+ * queued as packed grids and the moves are recorded in a ParentTable, from which the
+ * solution is rebuilt once the goal is found, so no PuzzleNodes are created at all.
  * 
  * @author Spencer Newton
  *
@@ -13,26 +17,30 @@ import java.util.Queue;
 
 public class BreadthFirstSearch implements SolutionFinder {
 	/**
-	 * A list containing the states already visited along the search for the solution
+	 * The listener that is told of each event of the search, such as printing a trace of it.
 	 */
-	private ArrayList<PuzzleNode> statesVisited = new ArrayList<PuzzleNode>();
+	private volatile SearchListener listener = new EmptySearchListener();
 	
 	/**
-	 * A list containing the solution - a list of nodes from the start state to the goal state using
-	 * legal moves.
+	 * Whether the time spent in each phase of a search is measured (see SearchStats).
 	 */
-	private ArrayList<PuzzleGrid> solution = new ArrayList<PuzzleGrid>();
+	private volatile boolean phaseTiming = false;
 	
 	/**
-	 * A Linked List containing the states that have been opened and need to be searched. 
-	 * The list is treated as if it were a queue - elements are only added to the end and 
-	 * retrieved from the front.
+	 * The limits on the work of each search (see SearchBudget).
 	 */
-	private LinkedList<PuzzleNode> openStates = new LinkedList<PuzzleNode>(); // offer = add to tail; poll = get from head;
+	private volatile SearchBudget budget = SearchBudget.UNLIMITED;
 	
-	// Analysis Parameters
-	private long runTime = 0; // In milliseconds
-	private long startTime, endTime; // In nanoseconds
+	/**
+	 * The state of the last search made on each thread, kept so that the thread's next
+	 * search reuses its tables rather than allocating them again.
+	 */
+	private final ThreadLocal<Context> contexts = new ThreadLocal<Context>() {
+		protected Context initialValue()
+		{
+			return new Context();
+		}
+	};
 	
 	/**
 	 * Default Constructor.
@@ -45,135 +53,196 @@ public class BreadthFirstSearch implements SolutionFinder {
 	 *
 	 * @see SolutionFinder#findSolution(PuzzleGrid, PuzzleGrid)
 	 */
-	public ArrayList<PuzzleGrid> findSolution(PuzzleGrid startState, PuzzleGrid goalState)
+	public SearchStats findSolution( PuzzleGrid startState, PuzzleGrid goalState )
 	{
-		// Initialize solution list
-		solution = new ArrayList<PuzzleGrid>();
-		
-		//Initialize list of children
-		ArrayList<PuzzleNode> children = new ArrayList<PuzzleNode>();
-		PuzzleNode currentState = null;
-		
-		boolean solutionFound = false, stateVisited = false;
-		int nodeCounter = 0;
-		
-		// Create PuzzleNode using start state and an EmptyHeuristic and offer to end of open states queue
-		openStates.offer( new PuzzleNode( startState, new EmptyHeuristic() ) );
+		return contexts.get().search( startState, goalState );
+	}
+	
+	/**
+	 * Sets the listener that is told of each node expanded and child opened.
+	 * 
+	 * @see SolutionFinder#setSearchListener(SearchListener)
+	 */
+	public void setSearchListener( SearchListener listener )
+	{
+		this.listener = listener;
+	}
+	
+	/**
+	 * Sets whether the time spent polling and offering states, moving the empty tile and
+	 * checking for visited states is measured.
+	 * 
+	 * @see SolutionFinder#setPhaseTiming(boolean)
+	 */
+	public void setPhaseTiming( boolean phaseTiming )
+	{
+		this.phaseTiming = phaseTiming;
+	}
+	
+	/**
+	 * Sets the limits on the nodes, memory and time of each search.
+	 * 
+	 * @see SolutionFinder#setSearchBudget(SearchBudget)
+	 */
+	public void setSearchBudget( SearchBudget budget )
+	{
+		this.budget = budget;
+	}
+	
+	/**
+	 * Prints the data from the last search made on the calling thread.
+	 * 
+	 * @see SolutionFinder#printSearchData()
+	 */
+	public void printSearchData()
+	{
+		contexts.get().printSearchData();
+	}
+	
+	/**
+	 * The state of one thread's searches: the states visited and opened, the open states
+	 * and the results of its last search. It is cleared at the start of each search, so its
+	 * tables are reused at the size they have grown to.
+	 */
+	private class Context {
+		/**
+		 * The states already visited and opened along the search for the solution, with the
+		 * move that reached each of them.
+		 */
+		private ParentTable statesVisited = new ParentTable();
 		
-		// Record start time of search
-		startTime = System.nanoTime();
+		/**
+		 * A queue containing the states that have been opened and need to be searched. 
+		 * Elements are only added to the end and retrieved from the front.
+		 */
+		private ArrayDeque<PackedGrid> openStates = new ArrayDeque<PackedGrid>(); // offer = add to tail; poll = get from head;
 		
-		System.out.println( "===== Nodes Opened" );
+		/**
+		 * The result of the last search, with its solution and the counts of its work.
+		 */
+		private SearchStats stats = new SearchStats( "BreadthFirstSearch", false );
 		
-		// Continue search while there are still nodes to be searched AND a solution hasn't been found
-		while ( !openStates.isEmpty() && solutionFound == false )
+		/**
+		 * Finds a solution of the puzzle from the start state to the goal state using a
+		 * Breadth First Search Algorithm, keeping the state of the search in this context.
+		 *
+		 * @see SolutionFinder#findSolution(PuzzleGrid, PuzzleGrid)
+		 */
+		public SearchStats search( PuzzleGrid startState, PuzzleGrid goalState )
 		{
-			// Poll from head of openStates = currentState
-			currentState = openStates.poll();
-			nodeCounter++;
+			// Use the same listener and budget for the whole search, even if others are set part way through
+			SearchListener listener = BreadthFirstSearch.this.listener;
+			SearchBudget budget = BreadthFirstSearch.this.budget;
 			
-			// =========================================== Debug
-			System.out.println( "Current = " + nodeCounter );
-			currentState.getGrid().printGrid();
-			// =========================================== Debug
-
-			// If currentState == goalState, break and record path
-			if ( currentState.getGrid().equalTo( goalState ) )
+			// Initialize the stats and clear the states of any earlier search
+			stats = new SearchStats( "BreadthFirstSearch", phaseTiming );
+			statesVisited.clear();
+			openStates.clear();
+			
+			PackedGrid currentState = null;
+			
+			// Don't search if the goal state can't be reached from the start state
+			if ( !startState.isSolvable( goalState ) )
 			{
-				solutionFound = true;
-				break;
+				return stats.finish( SearchStatus.UNSOLVABLE, null );
 			}
 			
-			// Else, poll currentState for child nodes
-			children = currentState.createChildren();
-			for ( int i=0; i < children.size(); i++ )
+			// Pack the start and goal states so they can be compared to nodes in one comparison
+			PackedGrid start = new PackedGrid( startState );
+			PackedGrid goal = new PackedGrid( goalState );
+			
+			boolean solutionFound = false;
+			int nodeCounter = 0;
+			
+			// Offer the start state to the end of the open states queue
+			openStates.offer( start );
+			statesVisited.add( start, ParentTable.START );
+			
+			// Record start time of search
+			stats.start();
+			long deadline = budget.deadline();
+			long lap = stats.clock();
+			
+			listener.searchStarted( null );
+			
+			// Continue search while there are still nodes to be searched AND a solution hasn't been found
+			while ( !openStates.isEmpty() && solutionFound == false )
 			{
-				// Instead of using list.contains( child ), the list is manually searched
-
-				// Check whether each child node hasn't already been visited				
-				stateVisited = false;
-				for ( PuzzleNode newNode : statesVisited )
+				// Stop if the search has gone over its budget, keeping the path to the last state searched
+				String limit = budget.exceeded( nodeCounter, (long) statesVisited.size() * SearchBudget.TABLE_ENTRY_BYTES
+						+ (long) openStates.size() * SearchBudget.STATE_BYTES, deadline );
+				if ( limit != null )
 				{
-					// If statesVisited already contains child
-					if ( children.get(i).equalTo( newNode ) ) 
-					{ 
-						System.out.println( "\t Closed \n" );
-						stateVisited = true;
-						break;
-					}
+					return stats.finishOverBudget( limit, statesVisited.path( currentState != null ? currentState : start ) );
 				}
 				
-				// Check whether each child node hasn't already been opened, but hasn't been searched
-				for ( PuzzleNode newNode : openStates )
+				// Poll from head of openStates = currentState
+				currentState = openStates.poll();
+				lap = stats.lap( SearchStats.FRONTIER, lap );
+				nodeCounter++;
+				
+				listener.nodeExpanded( currentState, 0, nodeCounter );
+
+				// If currentState == goalState, break and record path
+				if ( currentState.equalTo( goal ) )
 				{
-					// If openStates already contains child
-					if ( children.get(i).equalTo( newNode ) ) 
-					{ 
-						System.out.println( "\t Opened \n" );
-						stateVisited = true;
-						break;
-					}
+					solutionFound = true;
+					break;
 				}
 				
-				
-				// CHILD HAS NOT BEEN VISITED OR OPENED
-				if ( stateVisited != true )
+				// Else, try each move of the empty tile for child states, except the one back to
+				// the parent (the start state's move is START, which undoes nothing)
+				int lastMove = statesVisited.getMove( currentState );
+				for ( int direction = PackedGrid.UP; direction <= PackedGrid.DOWN; direction++ )
 				{
-					openStates.offer( children.get(i) );
+					if ( direction == PackedGrid.DOWN - lastMove ) continue;
 					
-					// =========================================== Debug
-					children.get(i).getGrid().printGridAsChild(); // Wont print child if in statesVisited
-//					try {
-//						Thread.sleep( 100 );
-//					} catch (InterruptedException e) {
-//						e.printStackTrace();
-//					}
-					// =========================================== Debug
+					PackedGrid child = currentState.move( direction );
+					lap = stats.lap( SearchStats.EXPANSION, lap );
+					if ( child == null ) continue;
+					stats.nodeGenerated();
+					
+					// Open the child unless it has already been visited, or opened but not searched
+					boolean added = statesVisited.add( child, direction );
+					lap = stats.lap( SearchStats.DUPLICATES, lap );
+					if ( added )
+					{
+						openStates.offer( child );
+						lap = stats.lap( SearchStats.FRONTIER, lap );
+						listener.childOpened( child, 0 );
+					}
+					else
+					{
+						// The table doesn't record whether the state has been searched yet
+						stats.duplicate();
+						listener.childSeen( child, false );
+					}
 				}
+				
+				// currentState has now been searched
+				stats.nodeExpanded();
+				stats.frontierSize( openStates.size() );
 			}
 			
-			// Add currentState to statesVisited, remove currentState from openStates
-			statesVisited.add( currentState );	
-			openStates.remove( currentState );		
-		}
-		
-		// Search ended, so record time (nanoseconds_ and calculate total search time (miliseconds)
-		endTime = System.nanoTime();
-		runTime = (endTime - startTime) / 1000000;
-		
-		if ( solutionFound == true )
-		{
-			boolean pathFound = false;
-			// Recreate path to solution
-			// At this point, currentState is the goal
-			// Concatenate parent-child chain until startState is reached
-			
-			// Add current state to solution list
-			// Recursively prepend parent of current state to solution list
-			// End recursion when currentState = startState
-			solution.add( currentState.getGrid() );
-			while ( pathFound == false )
+			if ( solutionFound == true )
+			{
+				// Recreate path to solution by following the recorded moves back from the goal
+				return stats.finish( SearchStatus.SOLVED, statesVisited.path( currentState ) );
+			} 
+			else // If solution not found
 			{
-				currentState = currentState.getParent();
-				solution.add( 0, currentState.getGrid() );
-				if ( currentState.getGrid().equalTo( startState ) ) pathFound = true;
+				return stats.finish( SearchStatus.NOT_FOUND, null );
 			}
-		} 
-		else //Solution wasnt found
-		{
-			System.out.println( "Could not find Solution :(" );
 		}
 		
-		return solution;
-	}
-	
-	public void printSearchData()
-	{
-		System.out.println( " === SEARCH ANALYSIS === " );
-		System.out.println( " Run Time: " + runTime + " milliseconds" );
-		System.out.println( " Nodes Searched: " + statesVisited.size() );
-		System.out.println( " Solution Length: " + solution.size() );
-		System.out.println( " ======================= " );
+		public void printSearchData()
+		{
+			System.out.println( " === SEARCH ANALYSIS === " );
+			System.out.println( " Run Time: " + stats.getRunTime() / 1000000 + " milliseconds" );
+			System.out.println( " Nodes Searched: " + stats.getNodesExpanded() );
+			System.out.println( " Solution Length: " + ( stats.getSolutionLength() + 1 ) );
+			System.out.println( " ======================= " );
+		}
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,181 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * An implementation of the Frontier interface that stores nodes in an array of stacks
+ * (buckets), indexed by their heuristic value rounded down to an integer.
+ * <p>
+ * As the heuristic values used with the 8-puzzle are small bounded integers, adding a node
+ * is a push onto its bucket and polling is a pop from the lowest non-empty bucket, both of
+ * which take constant time. Nodes with equal heuristic values are polled in last-in first-out
+ * order.
+ * <p>
+ * Decreasing the value of a node pushes it onto its new bucket and leaves the old entry in
+ * place. Each entry is stamped with a sequence number that is also given to the node (as its
+ * frontier index), so the old entry is recognised as stale and skipped when it is reached,
+ * even if the node has since been polled and added again to the same bucket.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class BucketFrontier implements Frontier {
+	/**
+	 * The buckets of nodes, where bucket i holds the nodes with heuristic value i.
+	 */
+	private ArrayList<Bucket> buckets = new ArrayList<Bucket>();
+
+	/**
+	 * The sequence number given to the next entry added (kept non-negative, as a frontier
+	 * index of -1 means a node is not in the frontier).
+	 */
+	private int sequence = 0;
+
+	/**
+	 * The index of the lowest bucket that may contain nodes.
+	 */
+	private int lowest = 0;
+
+	/**
+	 * The number of (non-stale) nodes in the frontier.
+	 */
+	private int size = 0;
+
+	/**
+	 * Default Constructor
+	 */
+	public BucketFrontier() { }
+
+	public void add( PuzzleNode pn )
+	{
+		int bucket = bucketOf( pn );
+
+		// Create any buckets needed up to and including the node's bucket
+		while ( buckets.size() <= bucket )
+		{
+			buckets.add( new Bucket() );
+		}
+
+		// Stamp the entry and the node alike, so any earlier entry of the node becomes stale
+		buckets.get( bucket ).push( pn, sequence );
+		pn.setFrontierIndex( sequence );
+		sequence = ( sequence + 1 ) & Integer.MAX_VALUE;
+
+		if ( bucket < lowest ) lowest = bucket;
+		size++;
+	}
+
+	public PuzzleNode poll()
+	{
+		while ( lowest < buckets.size() )
+		{
+			Bucket stack = buckets.get( lowest );
+
+			while ( stack.size > 0 )
+			{
+				stack.size--;
+				PuzzleNode pn = stack.nodes[ stack.size ];
+				stack.nodes[ stack.size ] = null;
+
+				// Skip entries left behind by update(), whose node has been added again since
+				if ( pn.getFrontierIndex() == stack.stamps[ stack.size ] )
+				{
+					pn.setFrontierIndex( -1 );
+					size--;
+					return pn;
+				}
+			}
+
+			lowest++;
+		}
+
+		return null;
+	}
+
+	public void update( PuzzleNode pn )
+	{
+		// The node's old entry becomes stale once it is added again
+		size--;
+		add( pn );
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public void clear()
+	{
+		// Empty each bucket rather than dropping it, so it keeps its capacity
+		for ( int i = 0; i < buckets.size(); i++ ) buckets.get(i).clear();
+		lowest = 0;
+		size = 0;
+	}
+
+	/**
+	 * Returns the index of the bucket a node belongs in.
+	 *
+	 * @param pn The node.
+	 * @return The heuristic value of the node, rounded down and no lower than 0.
+	 */
+	private int bucketOf( PuzzleNode pn )
+	{
+		return Math.max( 0, (int) pn.getHeuristicValue() );
+	}
+
+	/**
+	 * Returns a new, empty bucket frontier.
+	 */
+	public Frontier copy()
+	{
+		return new BucketFrontier();
+	}
+
+	/**
+	 * A stack of the entries of one bucket: each node, with the sequence number it was added with.
+	 */
+	private static class Bucket {
+		private PuzzleNode[] nodes = new PuzzleNode[16];
+		private int[] stamps = new int[16];
+		private int size = 0;
+
+		/**
+		 * Pushes an entry onto the stack, doubling its size if it is full.
+		 *
+		 * @param pn	The node.
+		 * @param stamp	The sequence number of the entry.
+		 */
+		private void push( PuzzleNode pn, int stamp )
+		{
+			if ( size == nodes.length )
+			{
+				nodes = Arrays.copyOf( nodes, size * 2 );
+				stamps = Arrays.copyOf( stamps, size * 2 );
+			}
+
+			nodes[size] = pn;
+			stamps[size] = stamp;
+			size++;
+		}
+
+		/**
+		 * Removes every entry, marking each node as no longer in a frontier, and keeps the
+		 * space the stack has grown to.
+		 */
+		private void clear()
+		{
+			for ( int i = 0; i < size; i++ )
+			{
+				nodes[i].setFrontierIndex( -1 );
+				nodes[i] = null;
+			}
+			size = 0;
+		}
+	}
+
+}
@@ -0,0 +1,45 @@
+
+/**
+ * An implementation of the SearchListener interface that counts the nodes expanded
+ * by the searches it is given to, without printing anything.
+ * <p>
+ * A single listener can be given to searches running on several threads at once, as
+ * the nodes expanded on each thread are counted separately.
+ * 
+ * @author Spencer Newton
+ *
+ */
+public class CountingSearchListener extends EmptySearchListener {
+	/**
+	 * The number of nodes expanded so far on each thread, in an array of one element so
+	 * that it can be incremented in place.
+	 */
+	private final ThreadLocal<long[]> nodesExpanded = new ThreadLocal<long[]>() {
+		protected long[] initialValue()
+		{
+			return new long[1];
+		}
+	};
+	
+	/**
+	 * Default Constructor
+	 */
+	public CountingSearchListener() { }
+	
+	@Override
+	public void nodeExpanded( PackedGrid state, float value, int count )
+	{
+		nodesExpanded.get()[0]++;
+	}
+	
+	/**
+	 * Returns the number of nodes expanded on the calling thread since the listener was created.
+	 * 
+	 * @return The number of nodes expanded.
+	 */
+	public long getNodesExpanded()
+	{
+		return nodesExpanded.get()[0];
+	}
+	
+}
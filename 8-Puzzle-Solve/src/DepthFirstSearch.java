@@ -1,174 +1,423 @@
 import java.util.ArrayList;
-import java.util.Stack;
 
 
 /**
  * An implementation of the SolutionFinder interface that will find the solution
- * to a problem using a Depth First Search algorithm.
- * 
+ * to a problem using an Iterative Deepening Depth First Search algorithm.
+ * <p>
+ * The search is a series of depth first searches, each cut off at a depth one move
+ * deeper than the last, until the goal is found or the depth limit is reached. As every
+ * path of each length is searched before any longer one, the solution found is a
+ * shortest one, and the states at the depths before it are searched again on each
+ * iteration, which only adds a fraction to the nodes searched as there are far more
+ * states at each depth than at the depths above it.
+ * <p>
+ * Only the states on the current path are kept, packed into longs on a stack of arrays
+ * (one element for each depth) and moved in place, so no object is created for each node
+ * (unless a SearchListener is set, which is given a PackedGrid of each) and memory use
+ * only grows with the length of the solution. A child is skipped if its state is already
+ * on the path, rather than if it has ever been visited, and moves that lead straight back
+ * to a state are pruned by a MovePruner. By default only the move undoing the last one is
+ * pruned, but setMovePruner( MovePruner.shortCycles() ) also prunes longer cycles and
+ * sequences of moves that have a shorter equivalent.
+ * <p>
+ * A search that goes over its budget returns no path, as the path on the stack when it
+ * stops is no closer to the goal than any other.
+ *
  * @author Spencer Newton
  *
  */
 public class DepthFirstSearch implements SolutionFinder {
 	/**
-	 * A list containing the states already visited along the search for the solution
+	 * The greatest depth limit, used when the search deepens until the goal is found. Any
+	 * depth limit given is clamped to it, so the limit plus one can't overflow (the stack
+	 * would run out of memory long before a path this long was reached).
+	 */
+	public static final int MAX_DEPTH = 1 << 24;
+
+	/**
+	 * The listener that is told of each event of the search, such as printing a trace of it,
+	 * or null if there is none (so no PackedGrid is created for it).
+	 */
+	private volatile SearchListener listener = null;
+
+	/**
+	 * The greatest depth (number of moves) that will be searched.
+	 */
+	private volatile int maxDepth;
+
+	/**
+	 * The machine deciding which moves are not worth making after the moves made so far.
+	 */
+	private volatile MovePruner pruner = MovePruner.parentOnly();
+
+	/**
+	 * Whether the time spent in each phase of a search is measured (see SearchStats).
+	 */
+	private volatile boolean phaseTiming = false;
+
+	/**
+	 * The limits on the work of each search (see SearchBudget).
+	 */
+	private volatile SearchBudget budget = SearchBudget.UNLIMITED;
+
+	/**
+	 * The state of the last search made on each thread, kept so that the thread's next
+	 * search reuses its tables rather than allocating them again.
+	 */
+	private final ThreadLocal<Context> contexts = new ThreadLocal<Context>() {
+		protected Context initialValue()
+		{
+			return new Context();
+		}
+	};
+
+	/**
+	 * Default Constructor, deepening the search until the goal is found.
+	 */
+	public DepthFirstSearch()
+	{
+		this( MAX_DEPTH );
+	}
+
+	/**
+	 * Constructor specifying the greatest depth that will be searched. A search that finds
+	 * no solution within that many moves ends without a solution.
+	 *
+	 * @param maxDepth	The greatest number of moves that will be searched (at most MAX_DEPTH).
+	 */
+	public DepthFirstSearch( int maxDepth )
+	{
+		setMaxDepth( maxDepth );
+	}
+
+	/**
+	 * Sets the greatest depth that will be searched, clamped to MAX_DEPTH.
+	 *
+	 * @param maxDepth	The greatest number of moves that will be searched.
+	 */
+	public void setMaxDepth( int maxDepth )
+	{
+		if ( maxDepth < 0 ) throw new IllegalArgumentException( "The depth limit can't be negative" );
+		this.maxDepth = Math.min( maxDepth, MAX_DEPTH );
+	}
+
+	/**
+	 * Sets the machine used to prune moves, such as MovePruner.shortCycles().
+	 *
+	 * @param pruner	The move pruner.
+	 */
+	public void setMovePruner( MovePruner pruner )
+	{
+		this.pruner = pruner;
+	}
+
+	/**
+	 * Finds a solution of the puzzle from the start state to the goal state using an
+	 * Iterative Deepening Depth First Search Algorithm.
+	 *
+	 * @see SolutionFinder#findSolution(PuzzleGrid, PuzzleGrid)
 	 */
-	private ArrayList<PuzzleNode> statesVisited = new ArrayList<PuzzleNode>();
-	
+	public SearchStats findSolution( PuzzleGrid startState, PuzzleGrid goalState )
+	{
+		return contexts.get().search( startState, goalState );
+	}
+
 	/**
-	 * A stack containing the states that have been opened and need to be searched
+	 * Sets the listener that is told of each node expanded and child opened, or null for none.
+	 *
+	 * @see SolutionFinder#setSearchListener(SearchListener)
 	 */
-	private Stack<PuzzleNode> openStates = new Stack<PuzzleNode>(); // pop = get from top; push = add to top;
-	
+	public void setSearchListener( SearchListener listener )
+	{
+		this.listener = listener;
+	}
+
 	/**
-	 * A list containing the solution - a list of nodes from the start state to the goal state using
-	 * legal moves.
+	 * Sets whether the time spent moving the empty tile and checking for states already on
+	 * the path is measured.
+	 *
+	 * @see SolutionFinder#setPhaseTiming(boolean)
 	 */
-	private ArrayList<PuzzleGrid> solution = new ArrayList<PuzzleGrid>();
-	
-	// Analysis Parameters
-	private long runTime = 0; // In milliseconds
-	private long startTime, endTime; // In nanoseconds
-	
+	public void setPhaseTiming( boolean phaseTiming )
+	{
+		this.phaseTiming = phaseTiming;
+	}
+
 	/**
-	 * Default Constructor
+	 * Sets the limits on the nodes, memory and time of each search.
+	 *
+	 * @see SolutionFinder#setSearchBudget(SearchBudget)
 	 */
-	public DepthFirstSearch() { };	
-	
+	public void setSearchBudget( SearchBudget budget )
+	{
+		this.budget = budget;
+	}
+
 	/**
-	 * Finds a solution of the puzzle from the start state to the goal state using a 
-	 * Depth First Search Algorithm.
+	 * Prints the data from the last search made on the calling thread.
+	 *
+	 * @see SolutionFinder#printSearchData()
 	 */
-	public ArrayList<PuzzleGrid> findSolution(PuzzleGrid startState, PuzzleGrid goalState) 
+	public void printSearchData()
 	{
-		// Initialize solution list
-		solution = new ArrayList<PuzzleGrid>();
-		
-		// Initialize list of children
-		ArrayList<PuzzleNode> children = new ArrayList<PuzzleNode>();
-		PuzzleNode currentState = null;
-		
-		boolean solutionFound = false, stateVisited = false;
-		int nodeCounter = 0;
-		
-		// Create PuzzleNode using start state and an EmptyHeuristic and push onto open states stack
-		openStates.push( new PuzzleNode( startState, new EmptyHeuristic() ) );
-		
-		// Record start time of search
-		startTime = System.nanoTime();
-		
-		System.out.println( "===== Nodes Opened" );
-		
-		// Continue search while there are still nodes to be searched AND a solution hasn't been found
-		while ( !openStates.isEmpty() && solutionFound == false )
+		contexts.get().printSearchData();
+	}
+
+	/**
+	 * The state of one thread's searches: the stack of states on the current path and the
+	 * results of the last search. The stack is kept at the depth it has grown to for the
+	 * thread's next search.
+	 */
+	private class Context {
+		/**
+		 * The packed tiles of the states on the current path (see PackedGrid.getLow() and getHigh()),
+		 * and the index of the empty tile of each, indexed by depth.
+		 */
+		private long[] lows = new long[64];
+		private long[] highs = new long[64];
+		private int[] blanks = new int[64];
+
+		/**
+		 * The next direction to move the empty tile in from the state at each depth, or -1
+		 * if the state has not been searched yet.
+		 */
+		private int[] nextDirection = new int[64];
+
+		/**
+		 * The state of the move pruner after the moves that led to the state at each depth.
+		 */
+		private int[] prunerStates = new int[64];
+
+		/**
+		 * The result of the last search, with its solution and the counts of its work.
+		 */
+		private SearchStats stats = new SearchStats( "DepthFirstSearch", false );
+
+		// Analysis Parameters of the last search
+		private int iterations = 0;
+
+		/**
+		 * Finds a solution of the puzzle from the start state to the goal state using an
+		 * Iterative Deepening Depth First Search Algorithm, keeping the state of the search in this context.
+		 *
+		 * @see SolutionFinder#findSolution(PuzzleGrid, PuzzleGrid)
+		 */
+		public SearchStats search( PuzzleGrid startState, PuzzleGrid goalState )
 		{
-			// Poll from head of openStates = currentState
-			currentState = openStates.pop();
-			nodeCounter++;
-			
-			// =========================================== Debug
-			System.out.println( "Current = " + nodeCounter );
-			currentState.getGrid().printGrid();
-			// =========================================== Debug
-
-			// If currentState == goalState, solution has been found, so break
-			if ( currentState.getGrid().equalTo( goalState ) )
+			// Use the same listener, pruner, budget and depth limit for the whole search, even if others are set part way through
+			SearchListener listener = DepthFirstSearch.this.listener;
+			int maxDepth = DepthFirstSearch.this.maxDepth;
+			MovePruner pruner = DepthFirstSearch.this.pruner;
+			SearchBudget budget = DepthFirstSearch.this.budget;
+
+			// Initialize the stats and analysis parameters
+			stats = new SearchStats( "DepthFirstSearch", phaseTiming );
+			iterations = 0;
+
+			// Don't search if the goal state can't be reached from the start state
+			if ( !startState.isSolvable( goalState ) )
 			{
-				solutionFound = true;
-				break;
+				return stats.finish( SearchStatus.UNSOLVABLE, null );
 			}
-			
-			// Else, poll currentState for child nodes
-			children = currentState.createChildren();
-			for ( int i=children.size()-1; i >= 0; i-- )
+
+			// Pack the start and goal states so they can be compared to nodes in one comparison
+			PackedGrid start = new PackedGrid( startState );
+			PackedGrid goal = new PackedGrid( goalState );
+			long goalLow = goal.getLow(), goalHigh = goal.getHigh();
+			MoveTable moves = MoveTable.forSize( startState.getWidth(), startState.getHeight() );
+			int[][] neighbours = moves.getNeighbours();
+			int bits = moves.getTileBits();
+
+			// Only create a PackedGrid of a node when there is a listener to give it to
+			boolean listening = listener != null;
+
+			boolean solutionFound = false, cutOff = true;
+			int depth = 0;
+			long nodeCounter = 0; // Can pass the range of an int on larger grids, as the upper depths are searched again
+
+			// Record start time of search
+			stats.start();
+			long deadline = budget.deadline();
+			String limit = null;
+			long lap = stats.clock();
+
+			if ( listening ) listener.searchStarted( null );
+
+			// Deepen the depth limit until the goal is found, or no path was cut off by the last limit
+			// (so every path without a cycle has been searched)
+			for ( int depthLimit = 0; depthLimit <= maxDepth && cutOff && !solutionFound && limit == null; depthLimit++ )
 			{
-				// Instead of using list.contains( child ), the list is manually searched
-				
-				// Check whether each child node hasn't already been visited				
-				stateVisited = false;
-				for ( PuzzleNode newNode : statesVisited )
+				iterations++;
+				cutOff = false;
+
+				// Push the start state, not yet searched
+				depth = 0;
+				lows[0] = start.getLow();
+				highs[0] = start.getHigh();
+				blanks[0] = start.getBlank();
+				nextDirection[0] = -1;
+				prunerStates[0] = MovePruner.START;
+
+				while ( depth >= 0 )
 				{
-					// If statesVisited already contains child
-					if ( children.get(i).equalTo( newNode ) ) 
-					{ 
-						System.out.println( "\t Closed \n" );
-						stateVisited = true;
-						break;
+					// Search the state on top of the stack the first time it is reached
+					if ( nextDirection[depth] < 0 )
+					{
+						// Stop if the search has gone over its budget (only the path is kept)
+						limit = budget.exceeded( nodeCounter, (long) ( depth + 1 ) * SearchBudget.STATE_BYTES, deadline );
+						if ( limit != null ) break;
+
+						nodeCounter++;
+						if ( listening ) listener.nodeExpanded( stateAt( depth, moves ), 0, (int) nodeCounter );
+
+						// If the state on top of the stack == goalState, solution has been found, so break
+						if ( lows[depth] == goalLow && highs[depth] == goalHigh )
+						{
+							solutionFound = true;
+							break;
+						}
+
+						// Don't move any deeper than the depth limit
+						if ( depth == depthLimit )
+						{
+							cutOff = true;
+							depth--;
+							continue;
+						}
+
+						nextDirection[depth] = PackedGrid.UP;
+						stats.nodeExpanded();
+						stats.frontierSize( depth + 1 );
 					}
-				}
-				
-				// Check whether each child node hasn't already been opened, but hasn't been searched
-				for ( PuzzleNode newNode : openStates )
-				{
-					// If openStates already contains child
-					if ( children.get(i).equalTo( newNode ) ) 
-					{ 
-						System.out.println( "\t Opened \n" );
-						stateVisited = true;
-						break;
+
+					// Once every move has been tried, pop the state off the stack
+					int direction = nextDirection[depth]++;
+					if ( direction > PackedGrid.DOWN )
+					{
+						depth--;
+						continue;
 					}
-				}
-				
-				
-				// CHILD HAS NOT BEEN VISITED OR OPENED
-				if ( stateVisited != true )
-				{
-					openStates.push( children.get(i) );
-					
-					// =========================================== Debug
-					children.get(i).getGrid().printGridAsChild(); // Wont print child if in statesVisited
-//					try {
-//						Thread.sleep( 100 );
-//					} catch (InterruptedException e) {
-//						e.printStackTrace();
-//					}
-					// =========================================== Debug
 
+					// Skip illegal moves, and moves the pruner rules out (such as undoing the last one)
+					int childState = pruner.next( prunerStates[depth], direction );
+					if ( childState < 0 ) continue;
+					int blank = blanks[depth];
+					int to = neighbours[blank][direction];
+					if ( to < 0 ) continue;
+					long low = PackedGrid.movedLow( lows[depth], highs[depth], blank, to, bits );
+					long high = PackedGrid.movedHigh( lows[depth], highs[depth], blank, to, bits );
+					lap = stats.lap( SearchStats.EXPANSION, lap );
+					stats.nodeGenerated();
+
+					// Skip the child if its state is already on the path. Each move changes the row plus column
+					// of the empty tile by one, so only every other state up the path can be the same
+					boolean onPath = false;
+					for ( int i = depth - 1; i >= 0 && !onPath; i -= 2 )
+					{
+						onPath = lows[i] == low && highs[i] == high;
+					}
+					lap = stats.lap( SearchStats.DUPLICATES, lap );
+					if ( onPath )
+					{
+						stats.duplicate();
+						if ( listening ) listener.childSeen( new PackedGrid( low, high, to, moves ), false );
+						continue;
+					}
+
+					// Push the child onto the stack, growing it if needed
+					depth++;
+					if ( depth == lows.length ) grow();
+					lows[depth] = low;
+					highs[depth] = high;
+					blanks[depth] = to;
+					nextDirection[depth] = -1;
+					prunerStates[depth] = childState;
+					lap = stats.lap( SearchStats.FRONTIER, lap );
+					if ( listening ) listener.childOpened( stateAt( depth, moves ), 0 );
 				}
 			}
-			
-			// Add currentState to statesVisited, remove currentState from openStates
-			statesVisited.add( currentState );	
-			openStates.remove( currentState );		
+
+			if ( solutionFound == true )
+			{
+				// The path on the stack leads from the start state to the goal
+				return stats.finish( SearchStatus.SOLVED, pathTo( depth, moves ) );
+			}
+			else if ( limit != null ) // If the search ran out of budget (the path on the stack is no closer to the goal than any other)
+			{
+				return stats.finishOverBudget( limit, null );
+			}
+			else // If solution not found within the depth limit
+			{
+				return stats.finish( SearchStatus.NOT_FOUND, null );
+			}
 		}
-		
-		// Search ended, so record time (nanoseconds_ and calculate total search time (miliseconds)
-		endTime = System.nanoTime();
-		runTime = (endTime - startTime) / 1000000;
-		
-		if ( solutionFound == true )
+
+		/**
+		 * Doubles the size of the stack.
+		 */
+		private void grow()
 		{
-			boolean pathFound = false;
-			// Recreate path to solution
-			// At this point, currentState is the goal
-			// Concatenate parent-child chain until startState is reached
-			
-			// Add current state to solution list
-			// Recursively prepend parent of current state to solution list
-			// End recursion when currentState = startState
-			solution.add( currentState.getGrid() );
-			while ( pathFound == false )
+			long[] longerLows = new long[ lows.length * 2 ];
+			System.arraycopy( lows, 0, longerLows, 0, lows.length );
+			lows = longerLows;
+
+			long[] longerHighs = new long[ highs.length * 2 ];
+			System.arraycopy( highs, 0, longerHighs, 0, highs.length );
+			highs = longerHighs;
+
+			int[] longer = new int[ blanks.length * 2 ];
+			System.arraycopy( blanks, 0, longer, 0, blanks.length );
+			blanks = longer;
+
+			longer = new int[ nextDirection.length * 2 ];
+			System.arraycopy( nextDirection, 0, longer, 0, nextDirection.length );
+			nextDirection = longer;
+
+			longer = new int[ prunerStates.length * 2 ];
+			System.arraycopy( prunerStates, 0, longer, 0, prunerStates.length );
+			prunerStates = longer;
+		}
+
+		/**
+		 * Creates a PackedGrid of the state on the stack at a depth.
+		 *
+		 * @param depth	The depth of the state.
+		 * @param moves	The move table for the size of the grid.
+		 * @return The state.
+		 */
+		private PackedGrid stateAt( int depth, MoveTable moves )
+		{
+			return new PackedGrid( lows[depth], highs[depth], blanks[depth], moves );
+		}
+
+		/**
+		 * Unpacks the states on the stack, from the start state up to a depth.
+		 *
+		 * @param depth	The depth of the last state of the path.
+		 * @param moves	The move table for the size of the grid.
+		 * @return The list of states from the start state to the state at that depth.
+		 */
+		private ArrayList<PuzzleGrid> pathTo( int depth, MoveTable moves )
+		{
+			ArrayList<PuzzleGrid> states = new ArrayList<PuzzleGrid>();
+
+			for ( int i = 0; i <= depth; i++ )
 			{
-				currentState = currentState.getParent();
-				solution.add( 0, currentState.getGrid() );
-				if ( currentState.getGrid().equalTo( startState ) ) pathFound = true;
+				states.add( stateAt( i, moves ).toPuzzleGrid() );
 			}
-		} 
-		else // Solution wasn't found
-		{
-			System.out.println( "Could not find Solution :(" );
+
+			return states;
 		}
-		
-		return solution;
-	}
 
-	public void printSearchData() {
-		System.out.println( " === SEARCH ANALYSIS === " );
-		System.out.println( " Run Time: " + runTime + " milliseconds" );
-		System.out.println( " Nodes Searched: " + statesVisited.size() );
-		System.out.println( " Solution Length: " + solution.size() );
-		System.out.println( " ======================= " );
+		public void printSearchData() {
+			System.out.println( " === SEARCH ANALYSIS === " );
+			System.out.println( " Run Time: " + stats.getRunTime() / 1000000 + " milliseconds" );
+			System.out.println( " Nodes Searched: " + stats.getNodesExpanded() );
+			System.out.println( " Iterations: " + iterations );
+			System.out.println( " Solution Length: " + ( stats.getSolutionLength() + 1 ) );
+			System.out.println( " ======================= " );
+		}
 	}
 
-	
 }
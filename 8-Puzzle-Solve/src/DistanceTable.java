@@ -0,0 +1,250 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * A distance table - a precomputed table of the exact number of moves from every state
+ * of a grid to one goal state.
+ * <p>
+ * Every state is a permutation of the tiles, so the table has one entry for each of the
+ * (width * height)! permutations, indexed by the rank of the permutation (see
+ * PatternDatabase.rank()). Only half of the permutations can reach the goal, and the
+ * entries of the rest are UNREACHABLE. This makes the table practical for grids of up to
+ * 12 tiles, such as the 8-puzzle, where it has 362,880 entries. The tables are built by
+ * DistanceTableGenerator.
+ * <p>
+ * A distance table file consists of a header of 4 byte integers:
+ * <pre>
+ * magic ("DST1"), width, height, the width * height tiles of the goal state
+ * </pre>
+ * followed by one byte per permutation, indexed by rank. Like pattern databases, files
+ * are memory-mapped rather than read, and each file is only mapped once per JVM.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class DistanceTable {
+	/**
+	 * The first 4 bytes of a distance table file ("DST1").
+	 */
+	public static final int MAGIC = 0x44535431;
+
+	/**
+	 * The distance recorded for states that can't reach the goal.
+	 */
+	public static final int UNREACHABLE = 0xFF;
+
+	/**
+	 * The largest number of tiles (including the empty tile) that a table can be built for.
+	 */
+	public static final int MAX_TILES = 12;
+
+	/**
+	 * The tables already loaded, keyed by the canonical path of their files.
+	 */
+	private static final ConcurrentHashMap<String, DistanceTable> loaded = new ConcurrentHashMap<String, DistanceTable>();
+
+	/**
+	 * The width and height of the grid the table was built for.
+	 */
+	private final int width;
+	private final int height;
+
+	/**
+	 * The tiles of the goal state, where the tile at (x, y) is element x + y * width.
+	 */
+	private final int[] goalBoard;
+
+	/**
+	 * The table of distances, one byte per permutation of the tiles.
+	 */
+	private final ByteBuffer table;
+
+	/**
+	 * A Constructor for a table from an existing table of distances.
+	 *
+	 * @param width		The width of the grid.
+	 * @param height	The height of the grid.
+	 * @param goalBoard	The tiles of the goal state.
+	 * @param table		The table of distances, indexed by rank.
+	 */
+	public DistanceTable( int width, int height, int[] goalBoard, ByteBuffer table )
+	{
+		this.width = width;
+		this.height = height;
+		this.goalBoard = goalBoard;
+		this.table = table;
+	}
+
+	/**
+	 * Loads a distance table from a file, or returns the table already loaded from it.
+	 *
+	 * @param filename	The name of the table file.
+	 * @return The distance table.
+	 * @throws IOException If the file cannot be read or is not a distance table.
+	 */
+	public static DistanceTable load( String filename ) throws IOException
+	{
+		String key = new File( filename ).getCanonicalPath();
+		DistanceTable table = loaded.get( key );
+
+		if ( table == null )
+		{
+			table = map( filename );
+			DistanceTable existing = loaded.putIfAbsent( key, table );
+			if ( existing != null ) table = existing;
+		}
+
+		return table;
+	}
+
+	/**
+	 * Memory-maps a distance table file and reads its header.
+	 *
+	 * @param filename	The name of the table file.
+	 * @return The distance table.
+	 * @throws IOException If the file cannot be read or is not a distance table.
+	 */
+	private static DistanceTable map( String filename ) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile( filename, "r" );
+
+		try
+		{
+			FileChannel channel = file.getChannel();
+			ByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+
+			if ( buffer.remaining() < 12 || buffer.getInt() != MAGIC )
+			{
+				throw new IOException( filename + " is not a distance table" );
+			}
+
+			int width = buffer.getInt();
+			int height = buffer.getInt();
+			int n = width * height;
+
+			if ( width < 1 || height < 1 || n > MAX_TILES )
+			{
+				throw new IOException( filename + " has an invalid grid size" );
+			}
+
+			int[] goalBoard = new int[n];
+			for ( int i = 0; i < n; i++ ) goalBoard[i] = buffer.getInt();
+
+			// The rest of the file is the table
+			if ( buffer.remaining() != PatternDatabase.tableSize( n, n ) )
+			{
+				throw new IOException( filename + " has a table of the wrong size" );
+			}
+
+			return new DistanceTable( width, height, goalBoard, buffer.slice() );
+		}
+		finally
+		{
+			// The mapping remains valid once the file is closed
+			file.close();
+		}
+	}
+
+	/**
+	 * Writes the table to a file in the format read by load().
+	 *
+	 * @param filename	The file to write to.
+	 * @throws IOException If the file can't be written.
+	 */
+	public void save( String filename ) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile( filename, "rw" );
+
+		try
+		{
+			FileChannel channel = file.getChannel();
+			file.setLength( 0 );
+
+			ByteBuffer header = ByteBuffer.allocate( 4 * ( 3 + goalBoard.length ) );
+			header.putInt( MAGIC ).putInt( width ).putInt( height );
+			for ( int tile : goalBoard ) header.putInt( tile );
+			header.flip();
+			channel.write( header );
+
+			ByteBuffer contents = table.duplicate();
+			contents.clear();
+			while ( contents.hasRemaining() ) channel.write( contents );
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+
+	/**
+	 * Returns the number of moves from a state to the goal.
+	 *
+	 * @param board	The tiles of the state, where the tile at (x, y) is element x + y * width.
+	 * @return The number of moves, or UNREACHABLE.
+	 */
+	public int distance( int[] board )
+	{
+		return distance( PatternDatabase.rank( board, board.length, board.length ) );
+	}
+
+	/**
+	 * Returns the number of moves to the goal from the state with the specified rank.
+	 *
+	 * @param rank	The rank of the state.
+	 * @return The number of moves, or UNREACHABLE.
+	 */
+	public int distance( int rank )
+	{
+		return table.get( rank ) & 0xFF;
+	}
+
+	/**
+	 * Returns the number of entries in the table, one for each permutation of the tiles.
+	 *
+	 * @return The size of the table.
+	 */
+	public int size()
+	{
+		return table.capacity();
+	}
+
+	/**
+	 * Determine whether the table was built for the specified goal state.
+	 *
+	 * @param goalState	The goal state.
+	 * @return True if the goal state matches, false if not.
+	 */
+	public boolean matchesGoal( PuzzleGrid goalState )
+	{
+		if ( goalState.getWidth() != width || goalState.getHeight() != height ) return false;
+
+		return Arrays.equals( goalState.toBoard(), goalBoard );
+	}
+
+	/**
+	 * Returns the width of the grid the table was built for.
+	 *
+	 * @return The width of the grid.
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * Returns the height of the grid the table was built for.
+	 *
+	 * @return The height of the grid.
+	 */
+	public int getHeight()
+	{
+		return height;
+	}
+
+}
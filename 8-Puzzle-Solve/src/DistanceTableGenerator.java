@@ -0,0 +1,244 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+
+/**
+ * Builds distance tables (see DistanceTable) by a breadth first search of every state
+ * that can reach the goal state, spread over a pool of threads.
+ * <p>
+ * The search goes one level (distance from the goal) at a time. Each level is a list of
+ * the ranks of its states, which is split between the threads, and each thread adds the
+ * states one move further away that no thread has yet reached to its part of the next level.
+ * States are marked as reached in a shared bit set, so that only one thread can claim a state.
+ * No nodes are created, so the search needs one byte for the distance and one bit for
+ * each permutation of the tiles, plus the lists of the current and next levels.
+ * <p>
+ * Can be run from the command line as:
+ * <pre>
+ * java DistanceTableGenerator goal.txt table.dst [threads]
+ * </pre>
+ * which also prints the number of states at each distance from the goal.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class DistanceTableGenerator {
+	/**
+	 * The number of states of a level that a thread expands without splitting them further.
+	 */
+	private static final int SPLIT_SIZE = 4096;
+
+	/**
+	 * Default Constructor
+	 */
+	public DistanceTableGenerator() { }
+
+	/**
+	 * Entry method of program.
+	 *
+	 * @param args The goal state file, the file to write and optionally the number of threads.
+	 */
+	public static void main( String[] args )
+	{
+		if ( args.length < 2 )
+		{
+			System.out.println( "Usage: java DistanceTableGenerator goal.txt table.dst [threads]" );
+			return;
+		}
+
+		PuzzleGrid goalState = new PuzzleGrid( args[0] );
+		int threads = args.length > 2 ? Integer.parseInt( args[2] ) : Runtime.getRuntime().availableProcessors();
+
+		long startTime = System.nanoTime();
+		ForkJoinPool pool = new ForkJoinPool( threads );
+		DistanceTable table = generate( goalState, pool );
+		pool.shutdown();
+
+		try
+		{
+			table.save( args[1] );
+		}
+		catch ( IOException e )
+		{
+			System.out.println( "Unable to write to file " + args[1] + ". Closing..." );
+			System.exit(0);
+		}
+
+		// Count the states at each distance
+		int[] counts = new int[DistanceTable.UNREACHABLE];
+		long states = 0;
+		for ( int rank = 0; rank < table.size(); rank++ )
+		{
+			int distance = table.distance( rank );
+			if ( distance != DistanceTable.UNREACHABLE )
+			{
+				counts[distance]++;
+				states++;
+			}
+		}
+
+		System.out.println( "Distance\tStates" );
+		for ( int distance = 0; distance < counts.length && counts[distance] > 0; distance++ )
+		{
+			System.out.println( distance + "\t" + counts[distance] );
+		}
+
+		System.out.println( states + " states written to " + args[1] + " in "
+				+ ( System.nanoTime() - startTime ) / 1000000 + " milliseconds using " + threads + " threads" );
+	}
+
+	/**
+	 * Builds the distance table for the specified goal state.
+	 *
+	 * @param goalState	The goal state of the puzzle.
+	 * @param pool		The pool of threads to search on.
+	 * @return The distance table.
+	 */
+	public static DistanceTable generate( PuzzleGrid goalState, ForkJoinPool pool )
+	{
+		int n = goalState.getWidth() * goalState.getHeight();
+
+		if ( n > DistanceTable.MAX_TILES )
+		{
+			throw new IllegalArgumentException( "A " + goalState.getWidth() + "x" + goalState.getHeight()
+					+ " grid has too many states for a distance table" );
+		}
+
+		int[] goalBoard = goalState.toBoard();
+		int size = (int) PatternDatabase.tableSize( n, n );
+
+		byte[] distances = new byte[size];
+		Arrays.fill( distances, (byte) DistanceTable.UNREACHABLE );
+		AtomicIntegerArray reached = new AtomicIntegerArray( ( size + 31 ) / 32 );
+		int[][] neighbours = MoveTable.forSize( goalState.getWidth(), goalState.getHeight() ).getNeighbours();
+
+		int goal = PatternDatabase.rank( goalBoard, n, n );
+		distances[goal] = 0;
+		reached.set( goal >>> 5, 1 << ( goal & 31 ) );
+
+		IntList level = new IntList();
+		level.add( goal );
+
+		for ( int distance = 0; level.size() > 0; distance++ )
+		{
+			if ( distance + 1 >= DistanceTable.UNREACHABLE )
+			{
+				throw new IllegalStateException( "Distances are too large to store in a byte" );
+			}
+
+			level = pool.invoke( new ExpandTask( level, 0, level.size(), distance + 1, distances, reached, neighbours ) );
+		}
+
+		return new DistanceTable( goalState.getWidth(), goalState.getHeight(), goalBoard, ByteBuffer.wrap( distances ) );
+	}
+
+	/**
+	 * A task expanding part of a level of the search, returning the states of the next
+	 * level that it reached first.
+	 */
+	private static class ExpandTask extends RecursiveTask<IntList> {
+		private static final long serialVersionUID = 1L;
+
+		private IntList level;
+		private int from, to;
+		private int distance;
+		private byte[] distances;
+		private AtomicIntegerArray reached;
+		private int[][] neighbours;
+
+		/**
+		 * Constructor for a task expanding the states from index 'from' (inclusive) to 'to' (exclusive) of a level.
+		 *
+		 * @param level			The ranks of the states of the level.
+		 * @param from			The index of the first state to expand.
+		 * @param to			The index after the last state to expand.
+		 * @param distance		The distance of the next level from the goal.
+		 * @param distances		The table of distances being built.
+		 * @param reached		The bit set of states reached so far.
+		 * @param neighbours	The move table of the grid.
+		 */
+		public ExpandTask( IntList level, int from, int to, int distance, byte[] distances,
+				AtomicIntegerArray reached, int[][] neighbours )
+		{
+			this.level = level;
+			this.from = from;
+			this.to = to;
+			this.distance = distance;
+			this.distances = distances;
+			this.reached = reached;
+			this.neighbours = neighbours;
+		}
+
+		@Override
+		protected IntList compute()
+		{
+			if ( to - from > SPLIT_SIZE )
+			{
+				// Split the states in two, expanding the second half on another thread
+				int middle = ( from + to ) >>> 1;
+				ExpandTask second = new ExpandTask( level, middle, to, distance, distances, reached, neighbours );
+				second.fork();
+
+				IntList next = new ExpandTask( level, from, middle, distance, distances, reached, neighbours ).compute();
+				next.addAll( second.join() );
+				return next;
+			}
+
+			int n = neighbours.length;
+			int[] board = new int[n];
+			IntList next = new IntList();
+
+			for ( int i = from; i < to; i++ )
+			{
+				PatternDatabase.unrank( level.get( i ), n, n, board );
+
+				int blank = 0;
+				while ( board[blank] != 0 ) blank++;
+
+				for ( int direction = PackedGrid.UP; direction <= PackedGrid.DOWN; direction++ )
+				{
+					int target = neighbours[blank][direction];
+					if ( target < 0 ) continue;
+
+					// Move the tile at 'target' into the empty tile, rank the result and move it back
+					board[blank] = board[target];
+					board[target] = 0;
+					int child = PatternDatabase.rank( board, n, n );
+					board[target] = board[blank];
+					board[blank] = 0;
+
+					if ( claim( child ) )
+					{
+						distances[child] = (byte) distance;
+						next.add( child );
+					}
+				}
+			}
+
+			return next;
+		}
+
+		/**
+		 * Marks a state as reached, unless another thread already has.
+		 *
+		 * @param rank	The rank of the state.
+		 * @return True if this thread marked the state, false if it had already been reached.
+		 */
+		private boolean claim( int rank )
+		{
+			int word = rank >>> 5, bit = 1 << ( rank & 31 );
+
+			while ( true )
+			{
+				int bits = reached.get( word );
+				if ( ( bits & bit ) != 0 ) return false;
+				if ( reached.compareAndSet( word, bits, bits | bit ) ) return true;
+			}
+		}
+	}
+
+}
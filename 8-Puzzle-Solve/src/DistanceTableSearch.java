@@ -0,0 +1,214 @@
+import java.util.ArrayList;
+
+
+/**
+ * An implementation of the SolutionFinder interface that finds the solution to a
+ * problem by looking it up in a precomputed distance table, rather than searching.
+ * <p>
+ * The table gives the exact number of moves from every state to the goal (see
+ * DistanceTable), so from any state at distance d, one of its neighbours is at distance
+ * d - 1. Stepping to such a neighbour until the goal is reached gives a shortest solution
+ * after only d * 4 lookups, which takes microseconds for any 8-puzzle. Moves are made in
+ * place on a single board, so nothing is created apart from the states of the solution.
+ * <p>
+ * The table must have been built for the goal state of the problem (see DistanceTableGenerator).
+ *
+ * @author Spencer Newton
+ *
+ */
+public class DistanceTableSearch implements SolutionFinder {
+	/**
+	 * The table of distances to the goal state.
+	 */
+	private final DistanceTable table;
+
+	/**
+	 * The position the empty tile moves to from each position in each direction,
+	 * or -1 if the move is not legal, indexed as [position][direction].
+	 */
+	private final int[][] neighbours;
+
+	/**
+	 * The state of the last search made on each thread, kept so that the thread's next
+	 * search reuses its tables rather than allocating them again.
+	 */
+	private final ThreadLocal<Context> contexts = new ThreadLocal<Context>() {
+		protected Context initialValue()
+		{
+			return new Context();
+		}
+	};
+
+	/**
+	 * Constructor for finding solutions using a distance table.
+	 *
+	 * @param table	The distance table, built for the goal state of the problems to be solved.
+	 */
+	public DistanceTableSearch( DistanceTable table )
+	{
+		this.table = table;
+		neighbours = MoveTable.forSize( table.getWidth(), table.getHeight() ).getNeighbours();
+	}
+
+	/**
+	 * Finds a solution of the puzzle from the start state to the goal state by stepping
+	 * to a state one move closer to the goal until it is reached. If the table was built
+	 * for a different goal state, no solution is found (the goal should be checked once
+	 * with DistanceTable.matchesGoal() before searching, as Solve does).
+	 *
+	 * @see SolutionFinder#findSolution(PuzzleGrid, PuzzleGrid)
+	 */
+	public SearchStats findSolution( PuzzleGrid startState, PuzzleGrid goalState )
+	{
+		return contexts.get().search( startState, goalState );
+	}
+
+	/**
+	 * Does nothing, as no nodes are created.
+	 *
+	 * @see SolutionFinder#setSearchListener(SearchListener)
+	 */
+	public void setSearchListener( SearchListener listener ) { }
+
+	/**
+	 * Does nothing, as each step is a handful of table lookups, too short to time, so only
+	 * the counters of each search are kept (the lookups are counted as heuristic evaluations).
+	 *
+	 * @see SolutionFinder#setPhaseTiming(boolean)
+	 */
+	public void setPhaseTiming( boolean phaseTiming ) { }
+
+	/**
+	 * Does nothing, as a solution takes a handful of table lookups for each of its moves and
+	 * no memory apart from its states, so it can't go over any sensible budget.
+	 *
+	 * @see SolutionFinder#setSearchBudget(SearchBudget)
+	 */
+	public void setSearchBudget( SearchBudget budget ) { }
+
+	/**
+	 * Prints the data from the last search made on the calling thread.
+	 * 
+	 * @see SolutionFinder#printSearchData()
+	 */
+	public void printSearchData()
+	{
+		contexts.get().printSearchData();
+	}
+
+	/**
+	 * The state of one thread's searches: the board being stepped towards the goal and the
+	 * results of the last search.
+	 */
+	private class Context {
+		/**
+		 * The tiles of the current state, where the tile at (x, y) is element x + y * width.
+		 */
+		private int[] board = new int[ table.getWidth() * table.getHeight() ];
+
+		/**
+		 * The result of the last search, with its solution and the counts of its work.
+		 */
+		private SearchStats stats = new SearchStats( "DistanceTableSearch", false );
+
+		/**
+		 * Finds a solution of the puzzle from the start state to the goal state by stepping
+		 * to a state one move closer to the goal until it is reached, on this context's board.
+		 *
+		 * @see SolutionFinder#findSolution(PuzzleGrid, PuzzleGrid)
+		 */
+		public SearchStats search( PuzzleGrid startState, PuzzleGrid goalState )
+		{
+			// Initialize the stats and solution list
+			stats = new SearchStats( "DistanceTableSearch", false );
+			ArrayList<PuzzleGrid> solution = new ArrayList<PuzzleGrid>();
+
+			// The table holds no distances to any other goal state
+			if ( !table.matchesGoal( goalState ) )
+			{
+				return stats.finish( SearchStatus.NOT_FOUND, null );
+			}
+
+			// Record start time of search
+			stats.start();
+
+			int width = table.getWidth();
+			int n = board.length;
+
+			// Copy the start state onto the board, checking it has the same tiles as the goal (0 to n - 1)
+			boolean sameTiles = startState.getWidth() == width && startState.getHeight() == table.getHeight();
+			int blank = 0;
+			long used = 0L;
+			for ( int p = 0; p < n && sameTiles; p++ )
+			{
+				board[p] = startState.getRawGrid()[p % width][p / width];
+
+				if ( board[p] < 0 || board[p] >= n || ( used & ( 1L << board[p] ) ) != 0 ) sameTiles = false;
+				else used |= 1L << board[p];
+
+				if ( board[p] == 0 ) blank = p;
+			}
+
+			int distance = sameTiles ? lookup() : DistanceTable.UNREACHABLE;
+
+			// The goal state can't be reached from the start state
+			if ( distance == DistanceTable.UNREACHABLE )
+			{
+				return stats.finish( SearchStatus.UNSOLVABLE, null );
+			}
+
+			solution.add( new PuzzleGrid( startState ) );
+
+			while ( distance > 0 )
+			{
+				stats.nodeExpanded();
+
+				for ( int direction = PackedGrid.UP; direction <= PackedGrid.DOWN; direction++ )
+				{
+					int to = neighbours[blank][direction];
+					if ( to < 0 ) continue;
+					stats.nodeGenerated();
+
+					// Move the tile at 'to' into the empty tile, keeping the move if it is one closer to the goal
+					board[blank] = board[to];
+					board[to] = 0;
+
+					if ( lookup() == distance - 1 )
+					{
+						blank = to;
+						break;
+					}
+
+					board[to] = board[blank];
+					board[blank] = 0;
+				}
+
+				distance--;
+				solution.add( new PuzzleGrid( board, width ) );
+			}
+
+			return stats.finish( SearchStatus.SOLVED, solution );
+		}
+
+		/**
+		 * Returns the distance of the board from the goal.
+		 *
+		 * @return The number of moves, or DistanceTable.UNREACHABLE.
+		 */
+		private int lookup()
+		{
+			stats.heuristicEvaluated();
+			return table.distance( PatternDatabase.rank( board, board.length, board.length ) );
+		}
+
+		public void printSearchData()
+		{
+			System.out.println( " === SEARCH ANALYSIS === " );
+			System.out.println( " Run Time: " + stats.getRunTime() / 1000 + " microseconds" );
+			System.out.println( " Table Lookups: " + stats.getHeuristicEvaluations() );
+			System.out.println( " Solution Length: " + ( stats.getSolutionLength() + 1 ) );
+			System.out.println( " ======================= " );
+		}
+	}
+
+}
@@ -9,32 +9,31 @@
 public class EmptyHeuristic implements Heuristic {
 	
 	/**
-	 * The heuristic value of the attached node.
+	 * Default Constructor
 	 */
-	private float heuristic = 0.0f;
+	public EmptyHeuristic() { }
 	
 	/**
-	 * Default Constructor
+	 * Does nothing, as the goal state is not used.
 	 */
-	public EmptyHeuristic() { }
+	public void setGoal( PuzzleGrid goalState ) { }
 	
 	/**
 	 * Should calculate the heuristic based on the current state and goal state of the search, 
-	 * however this implemention indicates a lack of a heuristic, and so sets it to be 1.
+	 * however this implemention indicates a lack of a heuristic, and so returns 1.
 	 * 
 	 */
-	public void calculateHeuristic( PuzzleNode startState, PuzzleGrid goalState )
+	public float evaluate( PuzzleNode node )
 	{
-		heuristic = 1.0f;
+		return 1.0f;
 	}
-	
+
 	/**
-	 * Returns the heuristic value calculated by the calculateHeuristic function.
-	 * 
-	 * @return The heuristic value.
+	 * Returns a new empty heuristic.
 	 */
-	public float getHeuristicValue() 
+	public Heuristic copy()
 	{
-		return heuristic;
+		return new EmptyHeuristic();
 	}
+
 }
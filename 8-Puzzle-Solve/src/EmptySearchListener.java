@@ -0,0 +1,24 @@
+
+/**
+ * An implementation of the SearchListener interface that ignores every event, used
+ * by the searches unless another listener is set.
+ * 
+ * @author Spencer Newton
+ *
+ */
+public class EmptySearchListener implements SearchListener {
+
+	/**
+	 * Default Constructor
+	 */
+	public EmptySearchListener() { }
+	
+	public void searchStarted( String valueName ) { }
+	
+	public void nodeExpanded( PackedGrid state, float value, int count ) { }
+	
+	public void childOpened( PackedGrid state, float value ) { }
+	
+	public void childSeen( PackedGrid state, boolean reopened ) { }
+	
+}
@@ -0,0 +1,59 @@
+
+/**
+ * An interface representing the open states of a search, ordered as a priority
+ * queue on the heuristic value of each node (lowest first).
+ * 
+ * @author Spencer Newton
+ *
+ */
+public interface Frontier {
+
+	/**
+	 * Adds a node to the frontier, ordered by its current heuristic value.
+	 * 
+	 * @param pn The node to add.
+	 */
+	public void add( PuzzleNode pn );
+	
+	/**
+	 * Removes and returns the node with the lowest heuristic value.
+	 * 
+	 * @return The node with the lowest heuristic value, or null if the frontier is empty.
+	 */
+	public PuzzleNode poll();
+	
+	/**
+	 * Reorders a node already in the frontier after its heuristic value has decreased
+	 * (ie a decrease-key operation).
+	 * 
+	 * @param pn The node whose heuristic value has decreased.
+	 */
+	public void update( PuzzleNode pn );
+	
+	/**
+	 * Returns whether there are no nodes left in the frontier.
+	 * 
+	 * @return True if the frontier is empty, false if not.
+	 */
+	public boolean isEmpty();
+	
+	/**
+	 * Returns the number of nodes in the frontier.
+	 * 
+	 * @return The number of nodes in the frontier.
+	 */
+	public int size();
+	
+	/**
+	 * Removes all nodes from the frontier, keeping the space it has grown to so that
+	 * it can be reused for another search without growing again.
+	 */
+	public void clear();
+	
+	/**
+	 * Returns a new, empty frontier of the same kind, for use by a search on another thread.
+	 * 
+	 * @return The new frontier.
+	 */
+	public Frontier copy();
+}
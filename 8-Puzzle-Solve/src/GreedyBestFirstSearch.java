@@ -1,5 +1,5 @@
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.HashMap;
 
 
 
@@ -12,32 +12,73 @@ import java.util.LinkedList;
  */
 public class GreedyBestFirstSearch implements SolutionFinder {
 	/**
-	 * A list containing the states already visited along the search for the solution
+	 * The listener that is told of each event of the search, such as printing a trace of it.
 	 */
-	private ArrayList<PuzzleNode> statesVisited = new ArrayList<PuzzleNode>();
+	private volatile SearchListener listener = new EmptySearchListener();
 	
 	/**
-	 * A Linked List containing the states that have been opened and need to be searched. 
-	 * The list is treated as if it were a priority queue - elements are added in order of 
-	 * ascending heuristic values (lowest at the front) and are always removed from the front
-	 * of the queue.
+	 * The priority queue the open states are held in, which each thread's context has its
+	 * own copy of (see Frontier.copy()).
 	 */
-	private LinkedList<PuzzleNode> openStates = new LinkedList<PuzzleNode>(); // Could use priority queue
+	private final Frontier frontier;
 	
 	/**
-	 * A list containing the solution - a list of nodes from the start state to the goal state using
-	 * legal moves.
+	 * The heuristic used to order the open states, which each thread's context has its own
+	 * copy of (see Heuristic.copy()).
 	 */
-	private ArrayList<PuzzleGrid> solution = new ArrayList<PuzzleGrid>();
+	private final Heuristic heuristic;
 	
-	// Analysis Parameters
-	private long runTime = 0; // In milliseconds
-	private long startTime, endTime; // In nanoseconds
+	/**
+	 * Whether the time spent in each phase of a search is measured (see SearchStats).
+	 */
+	private volatile boolean phaseTiming = false;
+	
+	/**
+	 * The limits on the work of each search (see SearchBudget).
+	 */
+	private volatile SearchBudget budget = SearchBudget.UNLIMITED;
+	
+	/**
+	 * The state of the last search made on each thread, kept so that the thread's next
+	 * search reuses its tables rather than allocating them again.
+	 */
+	private final ThreadLocal<Context> contexts = new ThreadLocal<Context>() {
+		protected Context initialValue()
+		{
+			return new Context();
+		}
+	};
+	
+	/**
+	 * Default Constructor, using a BucketFrontier for the open states.
+	 */
+	public GreedyBestFirstSearch()
+	{
+		this( new BucketFrontier() );
+	}
+	
+	/**
+	 * Constructor specifying the priority queue implementation used for the open states.
+	 * 
+	 * @param frontier	The (empty) priority queue to hold the open states.
+	 */
+	public GreedyBestFirstSearch( Frontier frontier )
+	{
+		this( frontier, new GreedyHeuristic() );
+	}
 	
 	/**
-	 * Default Constructor
+	 * Constructor specifying the priority queue implementation used for the open states
+	 * and the heuristic used to order them.
+	 * 
+	 * @param frontier	The (empty) priority queue to hold the open states.
+	 * @param heuristic	The heuristic used to order the states, such as a GreedyHeuristic.
 	 */
-	public GreedyBestFirstSearch() { }
+	public GreedyBestFirstSearch( Frontier frontier, Heuristic heuristic )
+	{
+		this.frontier = frontier;
+		this.heuristic = heuristic;
+	}
 	
 	/**
 	 * Finds a solution of the puzzle from the start state to the goal state using a 
@@ -45,149 +86,248 @@ public class GreedyBestFirstSearch implements SolutionFinder {
 	 * 
 	 * @see SolutionFinder#findSolution(PuzzleGrid, PuzzleGrid)
 	 */
-	public ArrayList<PuzzleGrid> findSolution(PuzzleGrid startState, PuzzleGrid goalState)
+	public SearchStats findSolution( PuzzleGrid startState, PuzzleGrid goalState )
 	{
-		// Initialize list of children
-		ArrayList<PuzzleNode> children = new ArrayList<PuzzleNode>();
-		
-		// Initialize solution list
-		solution = new ArrayList<PuzzleGrid>();
-		PuzzleNode currentState = null;
+		return contexts.get().search( startState, goalState );
+	}
+	
+	/**
+	 * Sets the listener that is told of each node expanded and child opened.
+	 * 
+	 * @see SolutionFinder#setSearchListener(SearchListener)
+	 */
+	public void setSearchListener( SearchListener listener )
+	{
+		this.listener = listener;
+	}
+	
+	/**
+	 * Sets whether the time spent using the priority queue, creating children, checking for
+	 * visited states and evaluating the heuristic is measured.
+	 * 
+	 * @see SolutionFinder#setPhaseTiming(boolean)
+	 */
+	public void setPhaseTiming( boolean phaseTiming )
+	{
+		this.phaseTiming = phaseTiming;
+	}
+	
+	/**
+	 * Sets the limits on the nodes, memory and time of each search.
+	 * 
+	 * @see SolutionFinder#setSearchBudget(SearchBudget)
+	 */
+	public void setSearchBudget( SearchBudget budget )
+	{
+		this.budget = budget;
+	}
+	
+	/**
+	 * Prints the data from the last search made on the calling thread.
+	 * 
+	 * @see SolutionFinder#printSearchData()
+	 */
+	public void printSearchData()
+	{
+		contexts.get().printSearchData();
+	}
+	
+	/**
+	 * The state of one thread's searches: the parent table, the open nodes, the heuristic and
+	 * the results of the last search. The tables are emptied rather than created again for each search.
+	 */
+	private class Context {
+		/**
+		 * The states already visited and opened along the search for the solution, with the
+		 * move that reached each of them (the path the solution is rebuilt from).
+		 */
+		private ParentTable statesVisited = new ParentTable();
 		
-		boolean solutionFound = false, stateVisited = false;
-		int nodeCounter = 0;
+		/**
+		 * A hashed index of the nodes of the states that are open. Nodes are dropped once
+		 * searched, and don't keep their parents, so only the open nodes are kept in memory.
+		 */
+		private HashMap<PackedGrid, PuzzleNode> openNodes = new HashMap<PackedGrid, PuzzleNode>();
 		
-		// Create PuzzleNode using start state and a GreedyHeuristic and offer it to the end of the open states queue
-		openStates.offer( new PuzzleNode( startState, new GreedyHeuristic() ) );
+		/**
+		 * A priority queue containing the states that have been opened and need to be searched. 
+		 * Elements are always removed in order of ascending heuristic values (lowest first).
+		 */
+		private Frontier openStates = frontier.copy();
 		
-		// Record start time of search
-		startTime = System.nanoTime();
+		/**
+		 * The heuristic shared by every node of the search, the estimated distance to the goal.
+		 */
+		private Heuristic heuristic = GreedyBestFirstSearch.this.heuristic.copy();
 		
-		System.out.println( "===== Nodes Opened" );
+		/**
+		 * The result of the last search, with its solution and the counts of its work.
+		 */
+		private SearchStats stats = new SearchStats( "GreedyBestFirstSearch", false );
 		
-		// Continue search while there are still nodes to be searched AND a solution hasn't been found
-		while ( !openStates.isEmpty() && solutionFound == false )
+		/**
+		 * Finds a solution of the puzzle from the start state to the goal state using a
+		 * Greedy Best First Search Algorithm, keeping the state of the search in this context.
+		 *
+		 * @see SolutionFinder#findSolution(PuzzleGrid, PuzzleGrid)
+		 */
+		public SearchStats search( PuzzleGrid startState, PuzzleGrid goalState )
 		{
-			// Poll from head of openStates = currentState
-			currentState = openStates.poll();
-			nodeCounter++;
+			// Use the same listener and budget for the whole search, even if others are set part way through
+			SearchListener listener = GreedyBestFirstSearch.this.listener;
+			SearchBudget budget = GreedyBestFirstSearch.this.budget;
 			
-			// =========================================== Debug
-			System.out.println( "Current = " + nodeCounter + "  - h(current) = " + currentState.getHeuristicValue() );
-			currentState.getGrid().printGrid();
-			// =========================================== Debug
-
-			// If currentState == goalState, break and record path
-			if ( currentState.getGrid().equalTo( goalState ) )
+			// Initialize list of children
+			ArrayList<PuzzleNode> children = new ArrayList<PuzzleNode>();
+			
+			// Initialize the stats and clear the states of any earlier search
+			stats = new SearchStats( "GreedyBestFirstSearch", phaseTiming );
+			statesVisited.clear();
+			openNodes.clear();
+			openStates.clear();
+			PuzzleNode currentState = null;
+			
+			// Don't search if the goal state can't be reached from the start state
+			if ( !startState.isSolvable( goalState ) )
 			{
-				solutionFound = true;
-				break;
+				return stats.finish( SearchStatus.UNSOLVABLE, null );
 			}
 			
-			// Else, poll currentState for child nodes
-			children = currentState.createChildren();
-			for ( int i=0; i < children.size(); i++ )
+			// Pack the start and goal states so they can be compared to nodes in one comparison
+			PackedGrid start = new PackedGrid( startState );
+			PackedGrid goal = new PackedGrid( goalState );
+			
+			boolean solutionFound = false, stateVisited = false;
+			int nodeCounter = 0;
+			
+			// Create PuzzleNode using start state and the greedy heuristic and add it to the open states queue
+			heuristic.setGoal( goalState ); // Builds the lookup table shared by every node
+			currentState = new PuzzleNode( start, heuristic );
+			currentState.determineHeuristic();
+			stats.heuristicEvaluated();
+			openStates.add( currentState );
+			openNodes.put( start, currentState );
+			statesVisited.add( start, ParentTable.START );
+			
+			// Record start time of search
+			stats.start();
+			long deadline = budget.deadline();
+			String limit = null;
+			long lap = stats.clock();
+			
+			// The state searched so far that is estimated to be closest to the goal
+			PackedGrid bestState = start;
+			float bestDistance = Float.MAX_VALUE;
+			
+			listener.searchStarted( "h" );
+			
+			// Continue search while there are still nodes to be searched AND a solution hasn't been found
+			while ( !openStates.isEmpty() && solutionFound == false )
 			{
-				// Instead of using list.contains( child ), the list is manually searched
-
-				PuzzleNode child = children.get(i);
-				stateVisited = false;
+				// Stop if the search has gone over its budget
+				limit = budget.exceeded( nodeCounter, (long) statesVisited.size() * SearchBudget.TABLE_ENTRY_BYTES
+						+ (long) openNodes.size() * SearchBudget.NODE_BYTES, deadline );
+				if ( limit != null ) break;
+				
+				// Poll from head of openStates = currentState
+				currentState = openStates.poll();
+				openNodes.remove( currentState.getState() );
+				lap = stats.lap( SearchStats.FRONTIER, lap );
+				nodeCounter++;
 				
-				// Check whether each child node hasn't already been visited				
-				for ( PuzzleNode newNode : statesVisited )
+				listener.nodeExpanded( currentState.getState(), currentState.getHeuristicValue(), nodeCounter );
+
+				// If currentState == goalState, break and record path
+				if ( currentState.getState().equalTo( goal ) )
 				{
-					// If statesVisited already contains child
-					if ( child.equalTo( newNode ) ) 
-					{ 
-						System.out.println( "\t Closed \n" );
-						stateVisited = true;
-						break;
-					}
+					solutionFound = true;
+					break;
 				}
 				
-				// Check whether each child node hasn't already been opened, but hasn't been searched
-				for ( PuzzleNode newNode : openStates )
+				// Keep the closest state to the goal, in case the search runs out of budget
+				if ( currentState.getHeuristicValue() < bestDistance )
 				{
-					// If openStates already contains child
-					if ( child.equalTo( newNode ) ) 
-					{ 
-						System.out.println( "\t Opened \n" );
-						stateVisited = true;
-						break;
-					}
+					bestState = currentState.getState();
+					bestDistance = currentState.getHeuristicValue();
 				}
 				
-				
-				// CHILD HAS NOT BEEN VISITED
-				if ( stateVisited != true )
+				// Else, poll currentState for child nodes
+				children = currentState.createChildren();
+				stats.addNodesGenerated( children.size() );
+				lap = stats.lap( SearchStats.EXPANSION, lap );
+				for ( int i=0; i < children.size(); i++ )
 				{
-					boolean inserted = false;
+					PuzzleNode child = children.get(i);
+					stateVisited = false;
 					
-					// Calculate heuristic of child, now that it is needed
-					child.determineHeuristic( goalState );
+					// Check whether each child node hasn't already been visited, or opened but not searched
+					PuzzleNode openNode = openNodes.get( child.getState() );
+					if ( openNode == null && statesVisited.contains( child.getState() ) )
+					{ 
+						stats.duplicateClosed();
+						listener.childSeen( child.getState(), false );
+						stateVisited = true;
+					}
+					else if ( openNode != null )
+					{ 
+						stats.duplicateOpen();
+						listener.childSeen( child.getState(), false );
+						stateVisited = true;
+					}
+					lap = stats.lap( SearchStats.DUPLICATES, lap );
 					
-					// Add to openStates in ascending (lowest first) order of heuristic value
-					for ( int j = 0; j < openStates.size(); j++ )
+					// CHILD HAS NOT BEEN VISITED
+					if ( stateVisited != true )
 					{
-						if ( child.getHeuristicValue() < openStates.get(j).getHeuristicValue() ) 
-						{
-							openStates.add( j, child);
-							inserted = true;
-							break;
-						}
+						// Calculate heuristic of child, now that it is needed, then let go of its parent
+						// (the heuristic is found from the parent's, and the path is kept in statesVisited)
+						child.determineHeuristic();
+						child.setParent( null );
+						stats.heuristicEvaluated();
+						lap = stats.lap( SearchStats.HEURISTIC, lap );
+						
+						// Add to openStates, which orders by ascending (lowest first) heuristic value
+						openStates.add( child );
+						openNodes.put( child.getState(), child );
+						lap = stats.lap( SearchStats.FRONTIER, lap );
+						statesVisited.add( child.getState(), child.getMove() );
+						lap = stats.lap( SearchStats.DUPLICATES, lap );
+						listener.childOpened( child.getState(), child.getHeuristicValue() );
 					}
-					
-					if ( inserted == false ) openStates.offer( child );
-					
-					// =========================================== Debug
-					System.out.println( "\t h(child) = " + child.getHeuristicValue() );
-					child.getGrid().printGridAsChild(); // Wont print child if in statesVisited
-					// =========================================== Debug
 				}
+				
+				// currentState has now been searched
+				stats.nodeExpanded();
+				stats.frontierSize( openNodes.size() );
 			}
 			
-			// Add currentState to statesVisited, remove currentState from openStates
-			statesVisited.add( currentState );	
-			openStates.remove( currentState );		
-		}
-		
-		// Search ended, so record time (nanoseconds_ and calculate total search time (miliseconds)
-		endTime = System.nanoTime();
-		runTime = (endTime - startTime) / 1000000;
-		
-		if ( solutionFound == true )
-		{
-			boolean pathFound = false;
-			// Recreate path to solution
-			// At this point, currentState is the goal
-			// Concatenate parent-child chain until startState is reached
+			// Let go of the open nodes now, rather than keeping them until the next search
+			openNodes.clear();
+			openStates.clear();
 			
-			// Add current state to solution list
-			// Recursively prepend parent of current state to solution list
-			// End recursion when currentState = startState
-			solution.add( currentState.getGrid() );
-			while ( pathFound == false )
+			if ( solutionFound == true )
+			{
+				// Recreate path to solution by following the recorded moves back from the goal
+				return stats.finish( SearchStatus.SOLVED, statesVisited.path( currentState.getState() ) );
+			} 
+			else if ( limit != null ) // If the search ran out of budget, keep the path to the closest state
 			{
-				currentState = currentState.getParent();
-				solution.add( 0, currentState.getGrid() );
-				if ( currentState.getGrid().equalTo( startState ) ) pathFound = true;
+				return stats.finishOverBudget( limit, statesVisited.path( bestState ) );
+			}
+			else // If solution not found
+			{
+				return stats.finish( SearchStatus.NOT_FOUND, null );
 			}
-		} 
-		else // Solution wasn't found
-		{
-			System.out.println( "Could not find Solution :(" );
 		}
 		
-		return solution;
-	}
-	
-	public void printSearchData()
-	{
-		System.out.println( " === SEARCH ANALYSIS === " );
-		System.out.println( " Run Time: " + runTime + " milliseconds" );
-		System.out.println( " Nodes Searched: " + statesVisited.size() );
-		System.out.println( " Solution Length: " + solution.size() );
-		System.out.println( " ======================= " );
+		public void printSearchData()
+		{
+			System.out.println( " === SEARCH ANALYSIS === " );
+			System.out.println( " Run Time: " + stats.getRunTime() / 1000000 + " milliseconds" );
+			System.out.println( " Nodes Searched: " + stats.getNodesExpanded() );
+			System.out.println( " Solution Length: " + ( stats.getSolutionLength() + 1 ) );
+			System.out.println( " ======================= " );
+		}
 	}
 
 }
@@ -9,9 +9,9 @@
  */
 public class GreedyHeuristic implements Heuristic {
 	/**
-	 * The heuristic value of the attached node.
+	 * The goal position lookup table for the goal state of the search.
 	 */
-	private float heuristic = 0.0f;
+	private ManhattanTable table;
 	
 	/**
 	 * Default Constructor
@@ -19,45 +19,40 @@ public class GreedyHeuristic implements Heuristic {
 	public GreedyHeuristic() { }
 	
 	/**
-	 * Calculates the heuristic based on the current state and goal state of the search, using
+	 * Builds the goal position lookup table for the goal state.
+	 */
+	public void setGoal( PuzzleGrid goalState )
+	{
+		table = new ManhattanTable( goalState );
+	}
+	
+	/**
+	 * Calculates the heuristic based on the state of the node and the goal state of the search, using
 	 * a greedy heuristic that only takes into account the estimated cost to the goal.
 	 */
-	public void calculateHeuristic( PuzzleNode currentState, PuzzleGrid goalState )
+	public float evaluate( PuzzleNode node )
 	{
-		// Need PuzzleGrid, not PuzzleNode, for calculation
-		PuzzleGrid currentGrid = currentState.getGrid();
-		int size = goalState.getWidth() * goalState.getHeight();
-		int[] currentPosition = new int[2]; // Coordinates in grid; [0] = x, [1] = y
-		int[] destination = new int[2]; // Coordinates in grid; [0] = x, [1] = y
-		int distance; // Manhattan distance
-		int totalDistance = 0; // Sum of distances for all tiles
+		PuzzleNode parent = node.getParent();
 		
-		/* for each number from 0 to (width * height)
-		 * 		record position in currentState
-		 * 		calculate difference from goal position in number of moves (absolute difference in x and y)
-		 *		sum differences for each number
-		 * total sum = heuristic
-		*/
-		for ( int i = 0; i < size; i++)
+		/* DISTANCE TO GOAL CALCULATION:
+		 * If the parent was scored with this heuristic, only the tile that moved has changed
+		 * 		distance, so derive the distance from the parent's distance (its value) and that tile
+		 * Otherwise (ie at the start state) sum the distances of every tile
+		 */
+		if ( parent != null && parent.getHeuristic() == this )
 		{
-			currentPosition = currentGrid.getPositionInGrid( i );
-			destination = goalState.getPositionInGrid( i );
-			distance = Math.abs( currentPosition[0] - destination[0]) + 
-					Math.abs( currentPosition[1] - destination[1]);
-			totalDistance += distance;	
+			return (int) parent.getHeuristicValue() + table.delta( parent.getState(), node.getState() );
 		}
 		
-		heuristic = totalDistance;
+		return table.distance( node.getState() );
 	}
 
 	/**
-	 * Returns the heuristic value calculated by the calculateHeuristic function.
-	 * 
-	 * @return The heuristic value.
+	 * Returns a new greedy heuristic, with no goal state set.
 	 */
-	public float getHeuristicValue() 
+	public Heuristic copy()
 	{
-		return heuristic;
+		return new GreedyHeuristic();
 	}
-	
+
 }
@@ -0,0 +1,149 @@
+
+/**
+ * An implementation of the Frontier interface using a binary min-heap ordered on the
+ * heuristic value of each node.
+ * <p>
+ * Each node records its position in the heap, so adding, polling and decreasing the value
+ * of a node all take O(log n) time. Unlike BucketFrontier, any heuristic values can be used.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class HeapFrontier implements Frontier {
+	/**
+	 * The heap of nodes, where the children of element i are elements 2i+1 and 2i+2.
+	 */
+	private PuzzleNode[] heap = new PuzzleNode[64];
+
+	/**
+	 * The number of nodes in the heap.
+	 */
+	private int size = 0;
+
+	/**
+	 * Default Constructor
+	 */
+	public HeapFrontier() { }
+
+	public void add( PuzzleNode pn )
+	{
+		// Double the size of the heap if it is full
+		if ( size == heap.length )
+		{
+			PuzzleNode[] larger = new PuzzleNode[ heap.length * 2 ];
+			System.arraycopy( heap, 0, larger, 0, size );
+			heap = larger;
+		}
+
+		heap[size] = pn;
+		pn.setFrontierIndex( size );
+		size++;
+		siftUp( size - 1 );
+	}
+
+	public PuzzleNode poll()
+	{
+		if ( size == 0 ) return null;
+
+		PuzzleNode top = heap[0];
+
+		// Move the last node to the top and sift it down into place
+		size--;
+		heap[0] = heap[size];
+		heap[0].setFrontierIndex( 0 );
+		heap[size] = null;
+		if ( size > 0 ) siftDown( 0 );
+
+		top.setFrontierIndex( -1 );
+		return top;
+	}
+
+	public void update( PuzzleNode pn )
+	{
+		// As the value has decreased, the node can only need to move up the heap
+		siftUp( pn.getFrontierIndex() );
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public void clear()
+	{
+		for ( int i = 0; i < size; i++ )
+		{
+			heap[i].setFrontierIndex( -1 );
+			heap[i] = null;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Moves the node at position i up the heap until its parent has a lower or equal value.
+	 *
+	 * @param i The position of the node in the heap.
+	 */
+	private void siftUp( int i )
+	{
+		PuzzleNode pn = heap[i];
+		float value = pn.getHeuristicValue();
+
+		while ( i > 0 )
+		{
+			int parent = ( i - 1 ) / 2;
+			if ( heap[parent].getHeuristicValue() <= value ) break;
+
+			heap[i] = heap[parent];
+			heap[i].setFrontierIndex( i );
+			i = parent;
+		}
+
+		heap[i] = pn;
+		pn.setFrontierIndex( i );
+	}
+
+	/**
+	 * Moves the node at position i down the heap until its children have higher or equal values.
+	 *
+	 * @param i The position of the node in the heap.
+	 */
+	private void siftDown( int i )
+	{
+		PuzzleNode pn = heap[i];
+		float value = pn.getHeuristicValue();
+
+		while ( 2 * i + 1 < size )
+		{
+			int child = 2 * i + 1;
+
+			// Choose the lower of the two children
+			if ( child + 1 < size && heap[child + 1].getHeuristicValue() < heap[child].getHeuristicValue() )
+			{
+				child++;
+			}
+			if ( value <= heap[child].getHeuristicValue() ) break;
+
+			heap[i] = heap[child];
+			heap[i].setFrontierIndex( i );
+			i = child;
+		}
+
+		heap[i] = pn;
+		pn.setFrontierIndex( i );
+	}
+
+	/**
+	 * Returns a new, empty heap frontier.
+	 */
+	public Frontier copy()
+	{
+		return new HeapFrontier();
+	}
+
+}
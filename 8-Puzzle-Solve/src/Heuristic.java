@@ -2,6 +2,14 @@
 
 /**
  * An interface designed to represent a heuristic used in a search algorithm.
+ * <p>
+ * A heuristic is an evaluator shared by every node of a search: it holds nothing
+ * about any one node, only what it needs to know about the goal state (such as a
+ * lookup table), and returns the value of each node to be stored on the node itself.
+ * The search sets the goal state once, before any node is evaluated.
+ * <p>
+ * A heuristic may keep buffers that are written while evaluating a node, so a search
+ * used by several threads at once gives each thread its own copy (see copy()).
  * 
  * @author Spencer Newton
  *
@@ -9,19 +17,31 @@
 public interface Heuristic {
 
 	/**
-	 * Calculates a heuristic value using an implementation-dependent heuristic function
-	 * based upon the current state of the search and the goal state of the search.
+	 * Prepares the heuristic to evaluate nodes for a search towards the specified goal state,
+	 * such as by building its lookup tables.
 	 * 
-	 * @param currentState The current state of the search.
 	 * @param goalState The goal state of the search.
 	 */
-	public void calculateHeuristic( PuzzleNode currentState, PuzzleGrid goalState );
+	public void setGoal( PuzzleGrid goalState );
 
 	/**
-	 * Returns the heuristic value calculated by the calculateHeuristic function.
+	 * Calculates a heuristic value using an implementation-dependent heuristic function
+	 * based upon the state of a node and the goal state of the search.
+	 * <p>
+	 * If the node has a parent that was evaluated by this heuristic, the parent's value
+	 * (PuzzleNode.getHeuristicValue()) may be used to calculate the node's value more quickly.
 	 * 
+	 * @param node The node being evaluated.
 	 * @return The heuristic value.
 	 */
-	public float getHeuristicValue();
+	public float evaluate( PuzzleNode node );
+	
+	/**
+	 * Returns a new heuristic of the same kind and with the same settings (such as its pattern
+	 * databases), but with no goal state set, for use by a search on another thread.
+	 * 
+	 * @return The new heuristic.
+	 */
+	public Heuristic copy();
 	
 }
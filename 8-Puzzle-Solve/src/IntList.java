@@ -0,0 +1,80 @@
+import java.util.Arrays;
+
+
+/**
+ * A growable list of primitive ints, used in place of an ArrayList of Integers for
+ * queues of states that are identified by an index (such as a rank), to avoid creating
+ * an object for every state.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class IntList {
+	/**
+	 * The values in the list, followed by unused space.
+	 */
+	private int[] values = new int[1024];
+
+	/**
+	 * The number of values in the list.
+	 */
+	private int size = 0;
+
+	/**
+	 * Default Constructor
+	 */
+	public IntList() { }
+
+	/**
+	 * Adds a value to the end of the list.
+	 *
+	 * @param value	The value to add.
+	 */
+	public void add( int value )
+	{
+		if ( size == values.length ) values = Arrays.copyOf( values, size * 2 );
+		values[size++] = value;
+	}
+
+	/**
+	 * Adds every value of another list to the end of this list.
+	 *
+	 * @param list	The list to add.
+	 */
+	public void addAll( IntList list )
+	{
+		if ( size + list.size > values.length ) values = Arrays.copyOf( values, Math.max( size * 2, size + list.size ) );
+		System.arraycopy( list.values, 0, values, size, list.size );
+		size += list.size;
+	}
+
+	/**
+	 * Returns the value at an index of the list.
+	 *
+	 * @param i	The index.
+	 * @return The value.
+	 */
+	public int get( int i )
+	{
+		return values[i];
+	}
+
+	/**
+	 * Returns the number of values in the list.
+	 *
+	 * @return The size of the list.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Removes every value from the list.
+	 */
+	public void clear()
+	{
+		size = 0;
+	}
+
+}
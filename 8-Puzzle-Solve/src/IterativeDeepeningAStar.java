@@ -0,0 +1,474 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * An implementation of the SolutionFinder interface that will find the solution
+ * to a problem using an Iterative Deepening A* (IDA*) Search algorithm.
+ * <p>
+ * The search is a series of depth first searches, each cut off where the path cost
+ * plus the estimated distance of a state to the goal exceeds a bound, which is raised
+ * to the lowest value that was cut off on the previous iteration. Moves are made and
+ * unmade in place on a single board and no list of visited states is kept, so memory
+ * use only grows with the length of the solution. This makes it suitable for larger grids, such as the
+ * 15-puzzle, where the other searches run out of memory.
+ * <p>
+ * The distance to the goal is estimated using the Manhattan distance, or using
+ * additive pattern databases if they are given.
+ * <p>
+ * As no list of visited states is kept, moves that lead straight back to a state already
+ * on the path are pruned by a MovePruner. By default only the move undoing the last one is
+ * pruned, but setMovePruner( MovePruner.shortCycles() ) also prunes longer cycles and
+ * sequences of moves that have a shorter equivalent, which cuts down the nodes expanded.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class IterativeDeepeningAStar implements SolutionFinder {
+	/**
+	 * The value returned by a search iteration once the goal has been reached.
+	 */
+	private static final int FOUND = -1;
+
+	/**
+	 * The value returned by a search iteration once the search has gone over its budget.
+	 */
+	private static final int OVER_BUDGET = -2;
+
+	/**
+	 * The disjoint pattern databases used to estimate the distance to the goal, or null
+	 * to use the Manhattan distance.
+	 */
+	private PatternDatabase[] databases;
+
+	/**
+	 * The machine deciding which moves are not worth making after the moves made so far.
+	 */
+	private volatile MovePruner pruner = MovePruner.parentOnly();
+
+	/**
+	 * Whether the time spent evaluating the heuristic is measured (see SearchStats).
+	 */
+	private volatile boolean phaseTiming = false;
+
+	/**
+	 * The limits on the work of each search (see SearchBudget).
+	 */
+	private volatile SearchBudget budget = SearchBudget.UNLIMITED;
+
+	/**
+	 * The state of the last search made on each thread, kept so that the thread's next
+	 * search reuses its tables rather than allocating them again.
+	 */
+	private final ThreadLocal<Context> contexts = new ThreadLocal<Context>() {
+		protected Context initialValue()
+		{
+			return new Context();
+		}
+	};
+
+	/**
+	 * Default Constructor
+	 */
+	public IterativeDeepeningAStar() { }
+
+	/**
+	 * Constructor for a search estimating the distance to the goal using additive pattern databases.
+	 * 
+	 * @param databases	The disjoint pattern databases, built for the goal state of the search.
+	 */
+	public IterativeDeepeningAStar( PatternDatabase[] databases )
+	{
+		this.databases = databases;
+	}
+
+	/**
+	 * Sets the machine used to prune moves, such as MovePruner.shortCycles().
+	 *
+	 * @param pruner	The move pruner.
+	 */
+	public void setMovePruner( MovePruner pruner )
+	{
+		this.pruner = pruner;
+	}
+
+	/**
+	 * Finds a solution of the puzzle from the start state to the goal state using an
+	 * Iterative Deepening A* Search Algorithm.
+	 *
+	 * @see SolutionFinder#findSolution(PuzzleGrid, PuzzleGrid)
+	 */
+	public SearchStats findSolution( PuzzleGrid startState, PuzzleGrid goalState )
+	{
+		return contexts.get().search( startState, goalState );
+	}
+
+	/**
+	 * Does nothing, as this search makes its moves in place on a single board rather than
+	 * creating nodes, so it has no node events to report.
+	 * 
+	 * @see SolutionFinder#setSearchListener(SearchListener)
+	 */
+	public void setSearchListener( SearchListener listener ) { }
+
+	/**
+	 * Sets whether the time spent evaluating the heuristic is measured. Only the heuristic is
+	 * timed, as there is no frontier and no check for visited states, and the rest of the run
+	 * time is spent making and unmaking moves.
+	 * 
+	 * @see SolutionFinder#setPhaseTiming(boolean)
+	 */
+	public void setPhaseTiming( boolean phaseTiming )
+	{
+		this.phaseTiming = phaseTiming;
+	}
+
+	/**
+	 * Sets the limits on the nodes, memory and time of each search.
+	 *
+	 * @see SolutionFinder#setSearchBudget(SearchBudget)
+	 */
+	public void setSearchBudget( SearchBudget budget )
+	{
+		this.budget = budget;
+	}
+
+	/**
+	 * Prints the data from the last search made on the calling thread.
+	 * 
+	 * @see SolutionFinder#printSearchData()
+	 */
+	public void printSearchData()
+	{
+		contexts.get().printSearchData();
+	}
+
+	/**
+	 * The state of one thread's searches: the board being searched, its lookup tables, the
+	 * moves along the current path and the results of the last search. The path array is
+	 * kept at the length it has grown to for the thread's next search.
+	 */
+	private class Context {
+		/**
+		 * The tiles of the board being searched, where the tile at (x, y) is element x + y * width.
+		 */
+		private int[] board;
+
+		/**
+		 * The index of the empty tile on the board.
+		 */
+		private int blank;
+
+		/**
+		 * The position the empty tile moves to from each position in each direction,
+		 * or -1 if the move is not legal, indexed as [position][direction].
+		 */
+		private int[][] neighbours;
+
+		/**
+		 * The Manhattan distance lookup table for the goal state.
+		 */
+		private ManhattanTable table;
+
+		/**
+		 * The position of every tile on the board, indexed by tile, kept up to date when
+		 * pattern databases are used.
+		 */
+		private int[] positions;
+
+		/**
+		 * The tiles of the goal state, in the same layout as the board.
+		 */
+		private int[] goalBoard;
+
+		/**
+		 * The move pruner of the current search, read once at its start.
+		 */
+		private MovePruner pruner;
+
+		/**
+		 * The directions the empty tile has been moved in along the current path.
+		 */
+		private int[] path = new int[64];
+
+		/**
+		 * The number of moves in the solution, once found.
+		 */
+		private int solutionDepth;
+
+		/**
+		 * The budget of the current search, read once at its start, the time it must stop by
+		 * and the name of the limit it went over, if it did.
+		 */
+		private SearchBudget budget;
+		private long deadline;
+		private String limit;
+
+		/**
+		 * The moves to the board searched so far that is estimated to be closest to the goal,
+		 * and that estimate, kept in case the search goes over its budget.
+		 */
+		private int[] bestMoves;
+		private int bestDistance;
+
+		/**
+		 * The result of the last search, with its solution and the counts of its work.
+		 */
+		private SearchStats stats = new SearchStats( "IterativeDeepeningAStar", false );
+
+		// Analysis Parameters, counted here and added to the stats once the search ends
+		private long nodesExpanded = 0;
+		private long nodesGenerated = 0;
+		private int iterations = 0;
+
+		/**
+		 * Finds a solution of the puzzle from the start state to the goal state using an
+		 * Iterative Deepening A* Search Algorithm, keeping the state of the search in this context.
+		 *
+		 * @see SolutionFinder#findSolution(PuzzleGrid, PuzzleGrid)
+		 */
+		public SearchStats search( PuzzleGrid startState, PuzzleGrid goalState )
+		{
+			// Initialize the stats and analysis parameters
+			stats = new SearchStats( "IterativeDeepeningAStar", phaseTiming );
+			nodesExpanded = 0;
+			nodesGenerated = 0;
+			iterations = 0;
+
+			boolean solutionFound = false;
+
+			// Don't search if the goal state can't be reached from the start state
+			if ( !startState.isSolvable( goalState ) )
+			{
+				return stats.finish( SearchStatus.UNSOLVABLE, null );
+			}
+
+			int width = startState.getWidth();
+			int height = startState.getHeight();
+
+			pruner = IterativeDeepeningAStar.this.pruner;
+			budget = IterativeDeepeningAStar.this.budget;
+			limit = null;
+			bestMoves = new int[0];
+			bestDistance = Integer.MAX_VALUE;
+
+			// Copy the start state onto the board and build the move and distance tables
+			board = startState.toBoard();
+			blank = startState.getEmptyX() + startState.getEmptyY() * width;
+			neighbours = MoveTable.forSize( width, height ).getNeighbours();
+			table = new ManhattanTable( goalState );
+			goalBoard = goalState.toBoard();
+			if ( positions == null || positions.length != board.length ) positions = new int[ board.length ];
+			for ( int p = 0; p < board.length; p++ )
+			{
+				positions[ board[p] ] = p;
+			}
+
+			int distance = 0;
+			if ( databases != null )
+			{
+				for ( PatternDatabase pdb : databases )
+				{
+					if ( !pdb.matchesGoal( goalState ) )
+					{
+						throw new IllegalArgumentException( "Pattern database was built for a different goal state" );
+					}
+				}
+				distance = patternCost();
+			}
+			else
+			{
+				for ( int p = 0; p < board.length; p++ )
+				{
+					distance += table.tileDistance( board[p], p );
+				}
+			}
+
+			// Record start time of search
+			stats.start();
+			deadline = budget.deadline();
+
+			// Deepen the bound until the goal is found, or there is nothing left to search
+			int bound = distance;
+			while ( solutionFound == false )
+			{
+				iterations++;
+				int next = search( 0, distance, bound, MovePruner.START );
+
+				if ( next == FOUND ) solutionFound = true;
+				else if ( next == Integer.MAX_VALUE || next == OVER_BUDGET ) break;
+				else bound = next;
+			}
+
+			// Every child generated has its distance evaluated, as does the start state
+			stats.addNodesExpanded( nodesExpanded );
+			stats.addNodesGenerated( nodesGenerated );
+			stats.addHeuristicEvaluations( nodesGenerated + 1 );
+
+			if ( limit != null )
+			{
+				// Keep the path to the closest board to the goal that was searched
+				return stats.finishOverBudget( limit, replay( startState, bestMoves, bestMoves.length ) );
+			}
+			
+			if ( solutionFound == false )
+			{
+				return stats.finish( SearchStatus.NOT_FOUND, null );
+			}
+
+			// Recreate path to solution by replaying the moves from the start state
+			return stats.finish( SearchStatus.SOLVED, replay( startState, path, solutionDepth ) );
+		}
+
+		/**
+		 * Makes a number of moves from the start state on the board, recording each state reached.
+		 *
+		 * @param startState	The start state.
+		 * @param moves			The directions the empty tile is moved in.
+		 * @param depth			The number of moves to make.
+		 * @return The start state followed by the state after each move.
+		 */
+		private ArrayList<PuzzleGrid> replay( PuzzleGrid startState, int[] moves, int depth )
+		{
+			int width = startState.getWidth();
+			int height = startState.getHeight();
+			ArrayList<PuzzleGrid> states = new ArrayList<PuzzleGrid>();
+
+			board = startState.toBoard();
+			blank = startState.getEmptyX() + startState.getEmptyY() * width;
+			states.add( new PuzzleGrid( startState ) );
+			for ( int i = 0; i < depth; i++ )
+			{
+				int to = neighbours[blank][moves[i]];
+				board[blank] = board[to];
+				board[to] = 0;
+				blank = to;
+				states.add( new PuzzleGrid( board, width ) );
+			}
+
+			return states;
+		}
+
+		/**
+		 * Searches depth first from the current board, cutting off any path whose path cost
+		 * plus distance to the goal exceeds the bound.
+		 *
+		 * @param cost			The path cost (number of moves) to the current board.
+		 * @param distance		The estimated distance of the current board from the goal.
+		 * @param bound			The highest path cost plus distance that will be searched.
+		 * @param prunerState	The state of the move pruner after the moves that led to the current board.
+		 * @return FOUND if the goal was reached, OVER_BUDGET if the search went over its budget,
+		 * 		   otherwise the lowest path cost plus distance that exceeded the bound.
+		 */
+		private int search( int cost, int distance, int bound, int prunerState )
+		{
+			int estimate = cost + distance;
+
+			if ( estimate > bound ) return estimate;
+
+			// Every tile is in its goal position (a pattern database estimate of 0 only means
+			// that the pattern tiles are)
+			if ( distance == 0 && Arrays.equals( board, goalBoard ) )
+			{
+				solutionDepth = cost;
+				return FOUND;
+			}
+
+			nodesExpanded++;
+
+			// Stop if the search has gone over its budget (there are no tables to count the memory of)
+			limit = budget.exceeded( nodesExpanded, 0, deadline );
+			if ( limit != null ) return OVER_BUDGET;
+
+			// Keep the moves to the closest board to the goal, in case the search runs out of budget
+			if ( distance < bestDistance )
+			{
+				bestDistance = distance;
+				bestMoves = Arrays.copyOf( path, cost );
+			}
+
+			if ( cost == path.length )
+			{
+				int[] longer = new int[ path.length * 2 ];
+				System.arraycopy( path, 0, longer, 0, path.length );
+				path = longer;
+			}
+
+			int lowest = Integer.MAX_VALUE;
+			int from = blank;
+
+			for ( int direction = PackedGrid.UP; direction <= PackedGrid.DOWN; direction++ )
+			{
+				int to = neighbours[from][direction];
+
+				// Skip illegal moves, and moves the pruner rules out (such as undoing the last one)
+				if ( to < 0 ) continue;
+				int childState = pruner.next( prunerState, direction );
+				if ( childState < 0 ) continue;
+
+				// Move the tile at 'to' into the empty tile
+				int tile = board[to];
+				board[from] = tile;
+				board[to] = 0;
+				blank = to;
+				path[cost] = direction;
+				nodesGenerated++;
+
+				long lap = stats.clock();
+				int childDistance;
+				if ( databases != null )
+				{
+					positions[tile] = from;
+					childDistance = patternCost();
+				}
+				else
+				{
+					// Only the moved tile's distance changes
+					childDistance = distance - table.tileDistance( tile, to ) + table.tileDistance( tile, from );
+				}
+				stats.lap( SearchStats.HEURISTIC, lap );
+
+				int result = search( cost + 1, childDistance, bound, childState );
+
+				// Move the tile back
+				board[to] = tile;
+				board[from] = 0;
+				blank = from;
+				positions[tile] = to;
+
+				if ( result == FOUND || result == OVER_BUDGET ) return result;
+				if ( result < lowest ) lowest = result;
+			}
+
+			return lowest;
+		}
+
+		/**
+		 * Returns the sum of the costs of the current board in each pattern database.
+		 *
+		 * @return The estimated distance of the board from the goal.
+		 */
+		private int patternCost()
+		{
+			int total = 0;
+
+			for ( PatternDatabase pdb : databases )
+			{
+				total += pdb.cost( positions );
+			}
+
+			return total;
+		}
+
+		public void printSearchData()
+		{
+			System.out.println( " === SEARCH ANALYSIS === " );
+			System.out.println( " Run Time: " + stats.getRunTime() / 1000000 + " milliseconds" );
+			System.out.println( " Nodes Searched: " + stats.getNodesExpanded() );
+			System.out.println( " Iterations: " + iterations );
+			System.out.println( " Solution Length: " + ( stats.getSolutionLength() + 1 ) );
+			System.out.println( " ======================= " );
+		}
+	}
+
+}
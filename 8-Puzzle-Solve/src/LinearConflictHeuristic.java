@@ -0,0 +1,174 @@
+
+
+/**
+ * An implementation of the Heuristic interface that estimates the cost to the goal node
+ * using the Manhattan distance plus linear conflicts, and adds the total path length so
+ * far for use in an A* search.
+ * <p>
+ * Two tiles are in linear conflict when they are in the same row (or column) as their
+ * goal positions, but in the opposite order to them. One of the tiles must leave the
+ * line to let the other pass, and return to it again, which costs two moves the
+ * Manhattan distance does not count. For each line, the fewest tiles that must leave it
+ * is the number of its goal tiles less the longest run of them already in increasing goal
+ * order, so adding two moves for each of those tiles never overestimates the cost to the goal.
+ * <p>
+ * A move only changes the tile that moved, so a child's value is found from its parent's
+ * by recounting the two lines the tile left and entered (two columns for a move along a
+ * row, two rows for a move along a column).
+ *
+ * @author Spencer Newton
+ *
+ */
+public class LinearConflictHeuristic implements Heuristic {
+
+	/**
+	 * The Manhattan distance lookup table for the goal state.
+	 */
+	private ManhattanTable table;
+
+	/**
+	 * The width of the grid.
+	 */
+	private int width;
+
+	/**
+	 * The goal column and goal row of every tile, indexed by tile.
+	 */
+	private int[] goalX;
+	private int[] goalY;
+
+	/**
+	 * The goal positions of the goal tiles of the line being counted, in the order they
+	 * appear in the line, and the longest increasing run ending at each of them. Reused for
+	 * every line to avoid creating them per node (so a heuristic must only be used by one
+	 * thread at a time).
+	 */
+	private int[] order;
+	private int[] runs;
+
+	/**
+	 * Default Constructor
+	 */
+	public LinearConflictHeuristic() { }
+
+	/**
+	 * Builds the Manhattan distance table and the goal row and column of every tile.
+	 */
+	public void setGoal( PuzzleGrid goalState )
+	{
+		int[][] goal = goalState.getRawGrid();
+		width = goalState.getWidth();
+		int height = goalState.getHeight();
+
+		table = new ManhattanTable( goalState );
+		goalX = new int[width * height];
+		goalY = new int[width * height];
+		order = new int[Math.max( width, height )];
+		runs = new int[order.length];
+
+		for ( int y = 0; y < height; y++ )
+		{
+			for ( int x = 0; x < width; x++ )
+			{
+				goalX[ goal[x][y] ] = x;
+				goalY[ goal[x][y] ] = y;
+			}
+		}
+	}
+
+	/**
+	 * Calculates the heuristic based on the state of the node and the goal state of the search, by
+	 * adding together the Manhattan distance, two moves for each tile that must leave its line
+	 * and the path cost so far.
+	 */
+	public float evaluate( PuzzleNode node )
+	{
+		PuzzleNode parent = node.getParent();
+		PackedGrid state = node.getState();
+		int estimate;
+
+		if ( parent != null && parent.getHeuristic() == this )
+		{
+			// Start from the parent's estimate (its value less its path cost)
+			PackedGrid from = parent.getState();
+			estimate = (int) parent.getHeuristicValue() - parent.getPathCost() + table.delta( from, state );
+
+			// The tile that moved went from the node's empty position to the parent's
+			int left = state.getBlank(), entered = from.getBlank();
+
+			if ( left / width == entered / width )
+			{
+				// Moved along a row, so only the two columns have changed
+				int a = left % width, b = entered % width;
+				estimate += 2 * ( conflicts( state, a, false ) + conflicts( state, b, false )
+						- conflicts( from, a, false ) - conflicts( from, b, false ) );
+			}
+			else
+			{
+				// Moved along a column, so only the two rows have changed
+				int a = left / width, b = entered / width;
+				estimate += 2 * ( conflicts( state, a, true ) + conflicts( state, b, true )
+						- conflicts( from, a, true ) - conflicts( from, b, true ) );
+			}
+		}
+		else
+		{
+			// Count every row and column (ie at the start state)
+			estimate = table.distance( state );
+
+			int height = state.getHeight();
+			for ( int y = 0; y < height; y++ ) estimate += 2 * conflicts( state, y, true );
+			for ( int x = 0; x < width; x++ ) estimate += 2 * conflicts( state, x, false );
+		}
+
+		return estimate + node.getPathCost();
+	}
+
+	/**
+	 * Returns the fewest tiles that must leave a row or column for the rest of the tiles
+	 * whose goal positions are in it to be in goal order.
+	 *
+	 * @param state	The grid state.
+	 * @param line	The index of the row or column.
+	 * @param row	True to count a row, false to count a column.
+	 * @return The number of tiles that must leave the line.
+	 */
+	private int conflicts( PackedGrid state, int line, boolean row )
+	{
+		int length = row ? width : state.getHeight();
+		int count = 0;
+
+		// List the goal positions along the line of the tiles whose goal is in the line
+		for ( int i = 0; i < length; i++ )
+		{
+			int tile = state.getTile( row ? line * width + i : i * width + line );
+			if ( tile == 0 ) continue;
+
+			if ( row && goalY[tile] == line ) order[count++] = goalX[tile];
+			else if ( !row && goalX[tile] == line ) order[count++] = goalY[tile];
+		}
+
+		// The tiles that can stay are the longest run in increasing goal order
+		int longest = 0;
+		for ( int i = 0; i < count; i++ )
+		{
+			runs[i] = 1;
+			for ( int j = 0; j < i; j++ )
+			{
+				if ( order[j] < order[i] && runs[j] + 1 > runs[i] ) runs[i] = runs[j] + 1;
+			}
+			longest = Math.max( longest, runs[i] );
+		}
+
+		return count - longest;
+	}
+
+	/**
+	 * Returns a new linear conflict heuristic, with no goal state set (and its own buffers).
+	 */
+	public Heuristic copy()
+	{
+		return new LinearConflictHeuristic();
+	}
+
+}
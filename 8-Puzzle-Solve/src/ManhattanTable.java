@@ -0,0 +1,106 @@
+
+/**
+ * A precomputed lookup table of the Manhattan distance of every tile, from every
+ * position in the grid, to its position in a goal state.
+ * <p>
+ * The table allows the total Manhattan distance of a grid state to be calculated
+ * once, after which the distance of a child state can be derived from its parent's
+ * in constant time, as a single move only changes the distance of the tile that moved.
+ * The empty tile is not counted, as it does not need to be moved into place.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class ManhattanTable {
+	/**
+	 * The number of positions in the grid.
+	 */
+	private int size;
+
+	/**
+	 * The distance of tile t at position p from its goal position is stored in
+	 * element [t * size + p].
+	 */
+	private int[] distances;
+
+	/**
+	 * A Constructor for building the table for the specified goal state.
+	 *
+	 * @param goalState	The goal state of the search.
+	 */
+	public ManhattanTable( PuzzleGrid goalState )
+	{
+		int width = goalState.getWidth();
+		int height = goalState.getHeight();
+		int[][] goal = goalState.getRawGrid();
+
+		size = width * height;
+		distances = new int[size * size];
+
+		// For each tile's goal position, record its distance from every other position
+		for ( int gy = 0; gy < height; gy++ )
+		{
+			for ( int gx = 0; gx < width; gx++ )
+			{
+				int tile = goal[gx][gy];
+
+				// The empty tile is left with a distance of 0 everywhere
+				if ( tile == 0 ) continue;
+
+				for ( int p = 0; p < size; p++ )
+				{
+					distances[tile * size + p] = Math.abs( p % width - gx ) + Math.abs( p / width - gy );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the sum of the Manhattan distances of every tile in the grid state.
+	 *
+	 * @param state	The grid state.
+	 * @return The total Manhattan distance of the state from the goal.
+	 */
+	public int distance( PackedGrid state )
+	{
+		int total = 0;
+
+		for ( int p = 0; p < size; p++ )
+		{
+			total += distances[state.getTile( p ) * size + p];
+		}
+
+		return total;
+	}
+
+	/**
+	 * Returns the Manhattan distance of a tile at the specified position from its goal position.
+	 *
+	 * @param tile		The tile.
+	 * @param position	The index (x + y * width) of the position of the tile.
+	 * @return The distance of the tile from its goal position.
+	 */
+	public int tileDistance( int tile, int position )
+	{
+		return distances[tile * size + position];
+	}
+
+	/**
+	 * Returns the change in total Manhattan distance caused by the single move from
+	 * parent to child.
+	 * <p>
+	 * The tile that moved is the one now at the parent's empty position, which it moved
+	 * into from the child's empty position.
+	 *
+	 * @param parent	The grid state before the move.
+	 * @param child		The grid state after the move.
+	 * @return The change in distance, either -1 or +1.
+	 */
+	public int delta( PackedGrid parent, PackedGrid child )
+	{
+		int row = child.getTile( parent.getBlank() ) * size;
+
+		return distances[row + parent.getBlank()] - distances[row + child.getBlank()];
+	}
+
+}
@@ -0,0 +1,392 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+
+/**
+ * A finite state machine that prunes moves of the empty tile which would only lead back
+ * to a state already reachable by a shorter (or equally short) sequence of moves, used by
+ * searches that don't keep a list of visited states (such as IterativeDeepeningAStar).
+ * <p>
+ * The simplest such sequence is a move followed by its inverse, and the machine built by
+ * parentOnly() only prunes these. The machine built by shortCycles() also prunes every
+ * longer sequence of up to MAX_LENGTH moves that ends in the same arrangement of tiles as
+ * an earlier sequence, such as going around a 2x2 block of tiles twice, which can be done
+ * by going around it once the other way. The sequences are found by a breadth first search
+ * of every sequence of moves on a grid large enough to never reach an edge, keeping the
+ * first sequence (in order of length, then direction) to reach each arrangement. A later
+ * sequence is only pruned if the first sequence stays within the same rows and columns, so
+ * it is legal wherever the pruned one is.
+ * <p>
+ * The pruned sequences are built into a machine (an Aho-Corasick automaton) whose state
+ * records the end of the path so far. A search starts from START, and next() gives the
+ * state after each move, or -1 if the move ends a pruned sequence and so should not be made.
+ *
+ * @author Spencer Newton
+ *
+ */
+public final class MovePruner {
+	/**
+	 * The state of the machine before any move has been made.
+	 */
+	public static final int START = 0;
+
+	/**
+	 * The longest sequence of moves searched for by shortCycles().
+	 */
+	public static final int MAX_LENGTH = 10;
+
+	/**
+	 * The machines already built, by parentOnly() and shortCycles().
+	 */
+	private static MovePruner parentOnly;
+	private static MovePruner shortCycles;
+
+	/**
+	 * The state after each move from each state, or -1 if the move is pruned, at element
+	 * state + direction. States are numbered in steps of four, so a lookup is a single add.
+	 */
+	private final int[] transitions;
+
+	/**
+	 * The number of sequences of moves that are pruned.
+	 */
+	private final int pruned;
+
+	/**
+	 * A Constructor for building the machine pruning every duplicate sequence of up to
+	 * 'maxLength' moves.
+	 *
+	 * @param maxLength	The longest sequence of moves to search for.
+	 */
+	private MovePruner( int maxLength )
+	{
+		ArrayList<int[]> sequences = findDuplicates( maxLength );
+		pruned = sequences.size();
+
+		// Flatten the machine into one array, with each state's moves side by side
+		int[][] machine = buildMachine( sequences );
+		transitions = new int[machine.length * 4];
+		for ( int state = 0; state < machine.length; state++ )
+		{
+			for ( int direction = PackedGrid.UP; direction <= PackedGrid.DOWN; direction++ )
+			{
+				int next = machine[state][direction];
+				transitions[state * 4 + direction] = next < 0 ? -1 : next * 4;
+			}
+		}
+	}
+
+	/**
+	 * Returns the machine that only prunes moves undoing the move before.
+	 *
+	 * @return The move pruner.
+	 */
+	public static synchronized MovePruner parentOnly()
+	{
+		if ( parentOnly == null ) parentOnly = new MovePruner( 2 );
+
+		return parentOnly;
+	}
+
+	/**
+	 * Returns the machine that prunes every duplicate sequence of up to MAX_LENGTH moves,
+	 * building it the first time it is needed.
+	 *
+	 * @return The move pruner.
+	 */
+	public static synchronized MovePruner shortCycles()
+	{
+		if ( shortCycles == null ) shortCycles = new MovePruner( MAX_LENGTH );
+
+		return shortCycles;
+	}
+
+	/**
+	 * Returns the state of the machine after a move.
+	 *
+	 * @param state		The state before the move.
+	 * @param direction	The direction the empty tile is moved in (PackedGrid.UP, LEFT, RIGHT or DOWN).
+	 * @return The state after the move, or -1 if the move should not be made.
+	 */
+	public int next( int state, int direction )
+	{
+		return transitions[state + direction];
+	}
+
+	/**
+	 * Returns the number of states of the machine.
+	 *
+	 * @return The number of states.
+	 */
+	public int size()
+	{
+		return transitions.length / 4;
+	}
+
+	/**
+	 * Returns the number of sequences of moves the machine prunes.
+	 *
+	 * @return The number of pruned sequences.
+	 */
+	public int prunedSequences()
+	{
+		return pruned;
+	}
+
+	/**
+	 * Finds every sequence of up to 'maxLength' moves that ends in the same arrangement of
+	 * tiles as an earlier sequence that stays within its rows and columns, and doesn't contain
+	 * a shorter such sequence.
+	 *
+	 * @param maxLength	The longest sequence of moves to search for.
+	 * @return The sequences of directions.
+	 */
+	private static ArrayList<int[]> findDuplicates( int maxLength )
+	{
+		// The empty tile starts in the middle of a grid it can't leave in maxLength moves
+		int size = 2 * maxLength + 1;
+		MoveTable moves = MoveTable.forSize( size, size );
+		int centre = maxLength * size + maxLength;
+
+		ArrayList<int[]> duplicates = new ArrayList<int[]>();
+		HashSet<Long> pruned = new HashSet<Long>();
+
+		int[] board = new int[size * size];
+		for ( int p = 0; p < board.length; p++ ) board[p] = p;
+
+		// The rows and columns used by the first sequence to reach each arrangement
+		HashMap<String, int[]> reached = new HashMap<String, int[]>();
+		reached.put( arrangement( new int[0], moves, centre, board ), bounds( new int[0], moves, centre ) );
+
+		ArrayDeque<int[]> level = new ArrayDeque<int[]>();
+		level.add( new int[0] );
+
+		for ( int length = 1; length <= maxLength; length++ )
+		{
+			ArrayDeque<int[]> next = new ArrayDeque<int[]>();
+
+			for ( int[] sequence : level )
+			{
+				for ( int direction = PackedGrid.UP; direction <= PackedGrid.DOWN; direction++ )
+				{
+					int[] longer = Arrays.copyOf( sequence, length );
+					longer[length - 1] = direction;
+
+					// Sequences ending in one already pruned are never reached by a search
+					if ( endsInPruned( longer, pruned ) ) continue;
+
+					String key = arrangement( longer, moves, centre, board );
+					int[] box = bounds( longer, moves, centre );
+					int[] first = reached.get( key );
+
+					if ( first == null )
+					{
+						reached.put( key, box );
+					}
+					else if ( box[0] <= first[0] && box[1] <= first[1] && first[2] <= box[2] && first[3] <= box[3] )
+					{
+						// The first sequence is legal wherever this one is, so this one can be pruned
+						duplicates.add( longer );
+						pruned.add( code( longer, 0 ) );
+						continue;
+					}
+
+					next.add( longer );
+				}
+			}
+
+			level = next;
+		}
+
+		return duplicates;
+	}
+
+	/**
+	 * Determine whether a sequence of moves ends in a sequence that has already been pruned.
+	 *
+	 * @param sequence	The sequence of directions.
+	 * @param pruned	The codes of the pruned sequences (see code()).
+	 * @return True if the sequence ends in a pruned sequence, false if not.
+	 */
+	private static boolean endsInPruned( int[] sequence, HashSet<Long> pruned )
+	{
+		for ( int from = 0; from < sequence.length; from++ )
+		{
+			if ( pruned.contains( code( sequence, from ) ) ) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Packs the end of a sequence of moves into a long, two bits per move after a leading 1.
+	 *
+	 * @param sequence	The sequence of directions.
+	 * @param from		The index of the first move to pack.
+	 * @return The code.
+	 */
+	private static long code( int[] sequence, int from )
+	{
+		long code = 1;
+
+		for ( int i = from; i < sequence.length; i++ )
+		{
+			code = ( code << 2 ) | sequence[i];
+		}
+
+		return code;
+	}
+
+	/**
+	 * Returns the arrangement of tiles after making a sequence of moves from a grid with
+	 * every tile in its starting place, as the position of the empty tile followed by the
+	 * position and starting place of each tile that has moved.
+	 *
+	 * @param sequence	The sequence of directions.
+	 * @param moves		The move table of the grid.
+	 * @param centre	The starting position of the empty tile.
+	 * @param board		The grid, with the starting place of the tile at each position, which
+	 * 					is left as it was.
+	 * @return The arrangement, written as a string.
+	 */
+	private static String arrangement( int[] sequence, MoveTable moves, int centre, int[] board )
+	{
+		// Only the tiles at the positions the empty tile has passed can have moved
+		int[] visited = new int[sequence.length + 1];
+		int blank = centre;
+		visited[0] = blank;
+
+		for ( int i = 0; i < sequence.length; i++ )
+		{
+			int to = moves.target( blank, sequence[i] );
+			board[blank] = board[to];
+			board[to] = centre;
+			blank = to;
+			visited[i + 1] = blank;
+		}
+
+		Arrays.sort( visited );
+
+		StringBuilder key = new StringBuilder().append( blank );
+		for ( int i = 0; i < visited.length; i++ )
+		{
+			int position = visited[i];
+			if ( i > 0 && position == visited[i - 1] ) continue;
+
+			if ( position != blank && board[position] != position ) key.append( ',' ).append( position ).append( '=' ).append( board[position] );
+
+			// Put the starting tile back
+			board[position] = position;
+		}
+
+		return key.toString();
+	}
+
+	/**
+	 * Returns the rows and columns used by the empty tile over a sequence of moves.
+	 *
+	 * @param sequence	The sequence of directions.
+	 * @param moves		The move table of the grid.
+	 * @param centre	The starting position of the empty tile.
+	 * @return The lowest column, lowest row, highest column and highest row.
+	 */
+	private static int[] bounds( int[] sequence, MoveTable moves, int centre )
+	{
+		int width = moves.getWidth();
+		int blank = centre;
+		int[] box = { centre % width, centre / width, centre % width, centre / width };
+
+		for ( int direction : sequence )
+		{
+			blank = moves.target( blank, direction );
+			box[0] = Math.min( box[0], blank % width );
+			box[1] = Math.min( box[1], blank / width );
+			box[2] = Math.max( box[2], blank % width );
+			box[3] = Math.max( box[3], blank / width );
+		}
+
+		return box;
+	}
+
+	/**
+	 * Builds the transitions of an Aho-Corasick automaton that rejects any path ending in
+	 * one of the pruned sequences.
+	 *
+	 * @param sequences	The pruned sequences of directions.
+	 * @return The transitions, indexed as [state][direction], with -1 for pruned moves.
+	 */
+	private static int[][] buildMachine( ArrayList<int[]> sequences )
+	{
+		// Build a trie of the sequences, marking the nodes where a sequence ends
+		ArrayList<int[]> trie = new ArrayList<int[]>();
+		ArrayList<Boolean> ends = new ArrayList<Boolean>();
+		trie.add( new int[] { -1, -1, -1, -1 } );
+		ends.add( false );
+
+		for ( int[] sequence : sequences )
+		{
+			int node = START;
+			for ( int direction : sequence )
+			{
+				if ( trie.get( node )[direction] < 0 )
+				{
+					trie.get( node )[direction] = trie.size();
+					trie.add( new int[] { -1, -1, -1, -1 } );
+					ends.add( false );
+				}
+				node = trie.get( node )[direction];
+			}
+			ends.set( node, true );
+		}
+
+		// Fill in the missing moves from the failure links, breadth first, so that each state
+		// follows the longest end of the path that is the start of a pruned sequence
+		int[][] transitions = trie.toArray( new int[0][] );
+		int[] failure = new int[transitions.length];
+		boolean[] dead = new boolean[transitions.length];
+		ArrayDeque<Integer> open = new ArrayDeque<Integer>();
+
+		for ( int direction = PackedGrid.UP; direction <= PackedGrid.DOWN; direction++ )
+		{
+			int child = transitions[START][direction];
+			if ( child < 0 ) transitions[START][direction] = START;
+			else
+			{
+				failure[child] = START;
+				open.add( child );
+			}
+		}
+
+		while ( !open.isEmpty() )
+		{
+			int node = open.poll();
+			dead[node] = ends.get( node ) || dead[ failure[node] ];
+
+			for ( int direction = PackedGrid.UP; direction <= PackedGrid.DOWN; direction++ )
+			{
+				int child = transitions[node][direction];
+				if ( child < 0 ) transitions[node][direction] = transitions[ failure[node] ][direction];
+				else
+				{
+					failure[child] = transitions[ failure[node] ][direction];
+					open.add( child );
+				}
+			}
+		}
+
+		// Moves into a state where a pruned sequence ends are not made
+		for ( int[] row : transitions )
+		{
+			for ( int direction = PackedGrid.UP; direction <= PackedGrid.DOWN; direction++ )
+			{
+				if ( dead[ row[direction] ] ) row[direction] = -1;
+			}
+		}
+
+		return transitions;
+	}
+
+}
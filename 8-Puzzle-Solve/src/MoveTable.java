@@ -0,0 +1,137 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * A precomputed table of the legal moves of the empty tile from every position of a
+ * grid of a given size.
+ * <p>
+ * Tables are created once per grid size and shared, so that move generation for any
+ * size of grid (including rectangular grids) is a single lookup rather than a set of
+ * bounds checks.
+ *
+ * @author Spencer Newton
+ *
+ */
+public final class MoveTable {
+	/**
+	 * The tables already created, keyed by (width << 16) | height.
+	 */
+	private static final ConcurrentHashMap<Integer, MoveTable> tables = new ConcurrentHashMap<Integer, MoveTable>();
+
+	/**
+	 * The width and height of the grid.
+	 */
+	private final int width;
+	private final int height;
+
+	/**
+	 * The number of bits needed to store any tile of the grid (at least 4).
+	 */
+	private final int tileBits;
+
+	/**
+	 * The position the empty tile moves to from each position in each direction,
+	 * or -1 if the move is not legal, indexed as [position][direction].
+	 */
+	private final int[][] neighbours;
+
+	/**
+	 * A Constructor for building the table of a grid of width 'w' and height 'h'.
+	 *
+	 * @param w	The width of the grid.
+	 * @param h	The height of the grid.
+	 */
+	private MoveTable( int w, int h )
+	{
+		width = w;
+		height = h;
+		tileBits = Math.max( 4, 32 - Integer.numberOfLeadingZeros( w * h - 1 ) );
+		neighbours = new int[w * h][4];
+
+		for ( int p = 0; p < w * h; p++ )
+		{
+			int x = p % w, y = p / w;
+
+			neighbours[p][PackedGrid.UP] = y > 0 ? p - w : -1;
+			neighbours[p][PackedGrid.LEFT] = x > 0 ? p - 1 : -1;
+			neighbours[p][PackedGrid.RIGHT] = x < w - 1 ? p + 1 : -1;
+			neighbours[p][PackedGrid.DOWN] = y < h - 1 ? p + w : -1;
+		}
+	}
+
+	/**
+	 * Returns the table for a grid of the specified size, creating it if needed.
+	 *
+	 * @param width		The width of the grid.
+	 * @param height	The height of the grid.
+	 * @return The move table for the grid size.
+	 */
+	public static MoveTable forSize( int width, int height )
+	{
+		Integer key = ( width << 16 ) | height;
+		MoveTable table = tables.get( key );
+
+		if ( table == null )
+		{
+			table = new MoveTable( width, height );
+			MoveTable existing = tables.putIfAbsent( key, table );
+			if ( existing != null ) table = existing;
+		}
+
+		return table;
+	}
+
+	/**
+	 * Returns the position the empty tile moves to from a position in a direction.
+	 *
+	 * @param position	The index (x + y * width) of the empty tile.
+	 * @param direction	One of PackedGrid.UP, LEFT, RIGHT or DOWN.
+	 * @return The index of the new position of the empty tile, or -1 if the move is not legal.
+	 */
+	public int target( int position, int direction )
+	{
+		return neighbours[position][direction];
+	}
+
+	/**
+	 * Returns the whole table, indexed as [position][direction]. The table must not be modified.
+	 *
+	 * @return The table of moves.
+	 */
+	public int[][] getNeighbours()
+	{
+		return neighbours;
+	}
+
+	/**
+	 * Returns the width of the grid.
+	 *
+	 * @return The width of the grid.
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * Returns the height of the grid.
+	 *
+	 * @return The height of the grid.
+	 */
+	public int getHeight()
+	{
+		return height;
+	}
+
+	/**
+	 * Returns the number of bits needed to store any tile of the grid, which is never
+	 * less than 4.
+	 *
+	 * @return The number of bits per tile.
+	 */
+	public int getTileBits()
+	{
+		return tileBits;
+	}
+
+}
@@ -0,0 +1,342 @@
+
+/**
+ * A compact, immutable representation of a puzzle grid state for use in the
+ * search algorithms.
+ * <p>
+ * Each tile is stored in a fixed number of bits (4 for grids of up to 16 tiles, 5 for
+ * grids of up to 32), with the tile at position (x, y) held in the bits starting at
+ * bits * (x + y * width) of a 128 bit number made up of two longs. Grids of up to 16
+ * tiles, such as the 8-puzzle and 15-puzzle, fit entirely into the low long.
+ * <p>
+ * As the empty tile is always stored as 0, moving it is a matter of shifting the
+ * neighbouring tile into its position. The position of the empty tile is cached so
+ * that moves can be generated without scanning the grid, and two states are equal
+ * when their packed values are equal.
+ *
+ * @author Spencer Newton
+ *
+ */
+public final class PackedGrid {
+	/**
+	 * The directions that the empty tile can be moved in. These are in the same order
+	 * that children are created in by PuzzleNode, and the inverse of a direction d is (3 - d).
+	 */
+	public static final int UP = 0;
+	public static final int LEFT = 1;
+	public static final int RIGHT = 2;
+	public static final int DOWN = 3;
+
+	/**
+	 * The number of bits available to store the tiles.
+	 */
+	public static final int MAX_BITS = 128;
+
+	/**
+	 * The low and high 64 bits of the tiles of the grid.
+	 */
+	private final long low;
+	private final long high;
+
+	/**
+	 * The index (x + y * width) of the 0 element (the empty tile).
+	 */
+	private final int blank;
+
+	/**
+	 * The moves of the empty tile for this size of grid, shared by all grids of the same size.
+	 */
+	private final MoveTable moves;
+
+	/**
+	 * A Constructor for packing the contents of a PuzzleGrid.
+	 *
+	 * @param pg	The grid that the information will be packed from.
+	 */
+	public PackedGrid( PuzzleGrid pg )
+	{
+		int width = pg.getWidth();
+		int height = pg.getHeight();
+
+		moves = MoveTable.forSize( width, height );
+
+		int bits = moves.getTileBits();
+		if ( width * height * bits > MAX_BITS )
+		{
+			throw new IllegalArgumentException( "A " + width + "x" + height + " grid is too large to pack" );
+		}
+
+		long lo = 0L, hi = 0L;
+		int[][] grid = pg.getRawGrid();
+
+		// For each x / y coordinate, place the tile into its bits
+		for ( int y = 0; y < height; y++ )
+		{
+			for ( int x = 0; x < width; x++ )
+			{
+				int offset = bits * ( x + y * width );
+				lo |= lowPart( grid[x][y], offset );
+				hi |= highPart( grid[x][y], offset );
+			}
+		}
+
+		low = lo;
+		high = hi;
+		blank = pg.getEmptyX() + pg.getEmptyY() * width;
+	}
+
+	/**
+	 * A Constructor for a grid state that has already been packed, such as one kept as longs
+	 * by a search and moved with movedLow() and movedHigh().
+	 *
+	 * @param low	The low 64 bits of the packed tiles.
+	 * @param high	The high 64 bits of the packed tiles.
+	 * @param blank	The index of the empty tile.
+	 * @param moves	The move table for the size of the grid.
+	 */
+	public PackedGrid( long low, long high, int blank, MoveTable moves )
+	{
+		this.low = low;
+		this.high = high;
+		this.blank = blank;
+		this.moves = moves;
+	}
+
+	/**
+	 * Returns the index of the position the empty tile would be moved to by
+	 * moving it in the specified direction, or -1 if the move is not legal.
+	 *
+	 * @param direction	One of UP, LEFT, RIGHT or DOWN.
+	 * @return The index of the new position of the empty tile, or -1.
+	 */
+	public int target( int direction )
+	{
+		return moves.target( blank, direction );
+	}
+
+	/**
+	 * Returns the grid state created by moving the empty tile in the specified direction.
+	 * <p>
+	 * The tile at the new position of the empty tile is cleared from its old position and
+	 * set in the old position of the empty tile (which was 0).
+	 *
+	 * @param direction	One of UP, LEFT, RIGHT or DOWN.
+	 * @return The new grid state, or null if the move is not legal.
+	 */
+	public PackedGrid move( int direction )
+	{
+		int to = moves.target( blank, direction );
+
+		if ( to < 0 ) return null;
+
+		int bits = moves.getTileBits();
+
+		return new PackedGrid( movedLow( low, high, blank, to, bits ), movedHigh( low, high, blank, to, bits ), to, moves );
+	}
+
+	/**
+	 * Returns the low 64 bits of a packed grid state after moving its empty tile to a
+	 * neighbouring position, for searches that keep their states as longs rather than
+	 * creating a PackedGrid for each (see move()).
+	 *
+	 * @param low	The low 64 bits of the packed tiles.
+	 * @param high	The high 64 bits of the packed tiles.
+	 * @param blank	The index of the empty tile.
+	 * @param to	The index the empty tile is moved to (see MoveTable.target()).
+	 * @param bits	The number of bits of each tile (see MoveTable.getTileBits()).
+	 * @return The low 64 bits of the moved state.
+	 */
+	public static long movedLow( long low, long high, int blank, int to, int bits )
+	{
+		long mask = ( 1L << bits ) - 1;
+
+		return ( low & ~lowPart( mask, bits * to ) ) | lowPart( tileAt( low, high, to, bits ), bits * blank );
+	}
+
+	/**
+	 * Returns the high 64 bits of a packed grid state after moving its empty tile to a
+	 * neighbouring position (see movedLow()).
+	 *
+	 * @param low	The low 64 bits of the packed tiles.
+	 * @param high	The high 64 bits of the packed tiles.
+	 * @param blank	The index of the empty tile.
+	 * @param to	The index the empty tile is moved to.
+	 * @param bits	The number of bits of each tile.
+	 * @return The high 64 bits of the moved state.
+	 */
+	public static long movedHigh( long low, long high, int blank, int to, int bits )
+	{
+		long mask = ( 1L << bits ) - 1;
+
+		return ( high & ~highPart( mask, bits * to ) ) | highPart( tileAt( low, high, to, bits ), bits * blank );
+	}
+
+	/**
+	 * Returns the tile at the specified index (x + y * width) of the grid.
+	 *
+	 * @param index	The index of the position in the grid.
+	 * @return The tile at that position.
+	 */
+	public int getTile( int index )
+	{
+		return tileAt( low, high, index, moves.getTileBits() );
+	}
+
+	/**
+	 * Returns the tile at an index of a packed grid state.
+	 *
+	 * @param low	The low 64 bits of the packed tiles.
+	 * @param high	The high 64 bits of the packed tiles.
+	 * @param index	The index of the position in the grid.
+	 * @param bits	The number of bits of each tile.
+	 * @return The tile at that position.
+	 */
+	private static int tileAt( long low, long high, int index, int bits )
+	{
+		int offset = bits * index;
+		long mask = ( 1L << bits ) - 1;
+
+		if ( offset >= 64 ) return (int) ( ( high >>> ( offset - 64 ) ) & mask );
+
+		// The tile may continue into the high long
+		long value = low >>> offset;
+		if ( offset > 0 ) value |= high << ( 64 - offset );
+
+		return (int) ( value & mask );
+	}
+
+	/**
+	 * Returns the part of a value, placed at a bit offset in a 128 bit number, that falls
+	 * in the low 64 bits.
+	 *
+	 * @param value		The value.
+	 * @param offset	The bit offset of the value.
+	 * @return The low 64 bits.
+	 */
+	private static long lowPart( long value, int offset )
+	{
+		return offset < 64 ? value << offset : 0L;
+	}
+
+	/**
+	 * Returns the part of a value, placed at a bit offset in a 128 bit number, that falls
+	 * in the high 64 bits.
+	 *
+	 * @param value		The value.
+	 * @param offset	The bit offset of the value.
+	 * @return The high 64 bits.
+	 */
+	private static long highPart( long value, int offset )
+	{
+		if ( offset >= 64 ) return value << ( offset - 64 );
+		return offset > 0 ? value >>> ( 64 - offset ) : 0L;
+	}
+
+	/**
+	 * Unpacks this grid state into a PuzzleGrid, for printing and for
+	 * returning as part of a solution.
+	 *
+	 * @return A new PuzzleGrid containing this grid state.
+	 */
+	public PuzzleGrid toPuzzleGrid()
+	{
+		int[] board = new int[ moves.getWidth() * moves.getHeight() ];
+
+		for ( int p = 0; p < board.length; p++ )
+		{
+			board[p] = getTile( p );
+		}
+
+		return new PuzzleGrid( board, moves.getWidth() );
+	}
+
+	/**
+	 * Returns the low 64 bits of the packed tiles, which hold the whole grid for grids
+	 * of up to 16 tiles.
+	 *
+	 * @return The low 64 bits.
+	 */
+	public long getLow()
+	{
+		return low;
+	}
+
+	/**
+	 * Returns the high 64 bits of the packed tiles.
+	 *
+	 * @return The high 64 bits.
+	 */
+	public long getHigh()
+	{
+		return high;
+	}
+
+	/**
+	 * Returns the index (x + y * width) of the empty tile.
+	 *
+	 * @return The index of the empty tile.
+	 */
+	public int getBlank()
+	{
+		return blank;
+	}
+
+	/**
+	 * Returns the width of the grid.
+	 *
+	 * @return The width of the grid.
+	 */
+	public int getWidth()
+	{
+		return moves.getWidth();
+	}
+
+	/**
+	 * Returns the height of the grid.
+	 *
+	 * @return The height of the grid.
+	 */
+	public int getHeight()
+	{
+		return moves.getHeight();
+	}
+
+	/**
+	 * Determine whether this grid state is equal to (each tile is in the same
+	 * position) the specified PackedGrid pg.
+	 *
+	 * @param pg The PackedGrid that we are testing for equality.
+	 * @return True if they are equal, false if not.
+	 */
+	public boolean equalTo( PackedGrid pg )
+	{
+		return low == pg.low && high == pg.high;
+	}
+
+	@Override
+	public boolean equals( Object o )
+	{
+		return o instanceof PackedGrid && equalTo( (PackedGrid) o );
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hash( low, high );
+	}
+
+	/**
+	 * Returns the hash code of the state with the specified packed tiles, for tables
+	 * that store the tiles rather than PackedGrid objects (see ParentTable).
+	 *
+	 * @param low	The low 64 bits of the tiles.
+	 * @param high	The high 64 bits of the tiles.
+	 * @return The hash code.
+	 */
+	public static int hash( long low, long high )
+	{
+		// Mix the bits so that states differing only in a few tiles spread across a hash table
+		long h = ( low ^ ( high * 0xC2B2AE3D27D4EB4FL ) ) * 0x9E3779B97F4A7C15L;
+		return (int) ( h ^ ( h >>> 32 ) );
+	}
+
+}
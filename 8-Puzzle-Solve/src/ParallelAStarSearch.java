@@ -0,0 +1,870 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * An implementation of the SolutionFinder interface that will find the solution
+ * to a problem using a Hash Distributed A* (HDA*) Search algorithm, which runs an
+ * A* search on several threads at once.
+ * <p>
+ * Every state is owned by one worker thread, chosen by the hash of its packed grid,
+ * and only that worker opens, searches and records it, so each worker has its own
+ * open states and index of states seen and no locking is needed between them. When a
+ * worker creates a child owned by another worker it buffers it, and sends the buffered
+ * children in batches through the owner's mailbox (a lock-free queue). A worker with
+ * nothing to search parks until children are sent to it or the search ends.
+ * <p>
+ * Each search object owns one set of worker threads, started by its first search and
+ * reused by the searches after it, so it runs one search at a time (a search already
+ * uses every worker, so searches from several threads wait for each other in turn). The
+ * threads park between searches until close() stops them. They are daemon threads, so
+ * they don't keep the program running if close() is never called.
+ * <p>
+ * As workers search their states in their own order, a worker may reach a goal by a
+ * longer path before another reaches it by a shorter one. The cost of the best solution
+ * found so far is therefore shared, and the search only ends once no worker has an open
+ * state that could lead to a cheaper one and no children are still waiting to be
+ * received. With the (admissible) Manhattan distance heuristic the solution found is
+ * the same length as the one found by AStarSearch.
+ * <p>
+ * While a SearchListener is set, the workers take turns to expand their nodes, each holding
+ * the listener's lock while it tells it of a node and its children, so the events of each
+ * node stay together (and the search no longer runs in parallel). A child is reported as
+ * opened when it is passed to its owner, which reports it as seen if it already has a node
+ * for its state. When phases are timed, each worker times its own and the times are summed,
+ * so they can add up to more than the run time of the search.
+ * <p>
+ * Each worker checks the budget of the search every SearchBudget.CHECK_INTERVAL nodes it
+ * expands, so the node limit may be gone over by up to that many nodes per worker.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class ParallelAStarSearch implements SolutionFinder {
+	/**
+	 * The number of children buffered for another worker before they are sent.
+	 */
+	private static final int BATCH_SIZE = 64;
+
+	/**
+	 * The number of nodes a worker searches between sending any children it has buffered.
+	 */
+	private static final int FLUSH_INTERVAL = 256;
+
+	/**
+	 * The longest time an idle worker parks before checking again whether the search has
+	 * ended, in case it isn't woken (it is normally woken as soon as there is a change).
+	 */
+	private static final long PARK_NANOS = 1000000;
+
+	/**
+	 * The number of worker threads.
+	 */
+	private final int threads;
+
+	/**
+	 * The listener that is told of each event of the search, or null if there is none.
+	 */
+	private volatile SearchListener listener = null;
+
+	/**
+	 * Whether the time spent in each phase of a search is measured (see SearchStats).
+	 */
+	private volatile boolean phaseTiming = false;
+
+	/**
+	 * The limits on the work of each search (see SearchBudget).
+	 */
+	private volatile SearchBudget budget = SearchBudget.UNLIMITED;
+
+	/**
+	 * The workers and the state of the last search, kept so that the next search reuses
+	 * the workers' threads and tables rather than starting and allocating them again.
+	 */
+	private final Context context = new Context();
+
+	/**
+	 * Default Constructor, using one worker thread for each available processor.
+	 */
+	public ParallelAStarSearch()
+	{
+		this( Runtime.getRuntime().availableProcessors() );
+	}
+
+	/**
+	 * Constructor specifying the number of worker threads.
+	 *
+	 * @param threads	The number of worker threads.
+	 */
+	public ParallelAStarSearch( int threads )
+	{
+		if ( threads < 1 ) throw new IllegalArgumentException( "At least one thread is needed" );
+		this.threads = threads;
+	}
+
+	/**
+	 * Returns the worker that owns a state.
+	 *
+	 * @param state	The state.
+	 * @return The index of the owning worker.
+	 */
+	private int ownerOf( PackedGrid state )
+	{
+		// Use different bits of the hash than the workers' hash maps do
+		int h = state.hashCode() * 0x9E3779B9;
+		return (int) ( ( ( h >>> 8 ) & 0xFFFFFFL ) % threads );
+	}
+
+	/**
+	 * Finds a solution of the puzzle from the start state to the goal state using a
+	 * Hash Distributed A* Search Algorithm, once any search already running has finished.
+	 *
+	 * @see SolutionFinder#findSolution(PuzzleGrid, PuzzleGrid)
+	 */
+	public synchronized SearchStats findSolution( PuzzleGrid startState, PuzzleGrid goalState )
+	{
+		return context.search( startState, goalState );
+	}
+
+	/**
+	 * Stops the worker threads, once any search already running has finished, and waits
+	 * for them to end. A later search starts them again.
+	 */
+	public synchronized void close()
+	{
+		context.stopWorkers();
+	}
+
+	/**
+	 * Sets the listener that is told of each node expanded and child opened, or null for
+	 * none. The workers take turns to expand their nodes while a listener is set.
+	 *
+	 * @see SolutionFinder#setSearchListener(SearchListener)
+	 */
+	public void setSearchListener( SearchListener listener )
+	{
+		this.listener = listener;
+	}
+
+	/**
+	 * Sets whether the time spent in each phase is measured, summed over the workers.
+	 *
+	 * @see SolutionFinder#setPhaseTiming(boolean)
+	 */
+	public void setPhaseTiming( boolean phaseTiming )
+	{
+		this.phaseTiming = phaseTiming;
+	}
+
+	/**
+	 * Sets the limits on the nodes, memory and time of each search.
+	 *
+	 * @see SolutionFinder#setSearchBudget(SearchBudget)
+	 */
+	public void setSearchBudget( SearchBudget budget )
+	{
+		this.budget = budget;
+	}
+
+	/**
+	 * Prints the data from the last search.
+	 * 
+	 * @see SolutionFinder#printSearchData()
+	 */
+	public synchronized void printSearchData()
+	{
+		context.printSearchData();
+	}
+
+	/**
+	 * The state of the searches: the workers, which keep their threads and tables between
+	 * searches, the best goal found so far and the results of the last search.
+	 */
+	private class Context {
+		/**
+		 * The workers of the current search, kept with their threads for the next search, or
+		 * null if their threads haven't been started (or have been stopped).
+		 */
+		private Worker[] workers;
+
+		/**
+		 * The number of searches started, which the workers wait for to change before searching.
+		 */
+		private volatile int round = 0;
+
+		/**
+		 * Whether the workers have been told to stop, which ends their threads.
+		 */
+		private volatile boolean stopping = false;
+
+		/**
+		 * Counted down by each worker once it has finished the current search.
+		 */
+		private CountDownLatch finished;
+
+		/**
+		 * The goal state of the current search.
+		 */
+		private PackedGrid goal;
+
+		/**
+		 * The number of workers that are busy plus the number of batches of children that have
+		 * been sent but not yet received. The search has ended once this reaches 0, as only a
+		 * busy worker can send children and only a batch of children can make an idle worker busy.
+		 */
+		private AtomicLong work = new AtomicLong();
+
+		/**
+		 * The path cost of the cheapest goal node found so far, and the node itself.
+		 */
+		private volatile int bestCost;
+		private PuzzleNode bestNode;
+
+		/**
+		 * The error that stopped a worker, which stops every other worker and is thrown once they have.
+		 */
+		private volatile Throwable failure;
+
+		/**
+		 * The listener of the current search, or null, and whether it times its phases, read once at its start.
+		 */
+		private SearchListener listener;
+		private boolean phaseTiming;
+
+		/**
+		 * The budget of the current search, read once at its start, and the time it must stop by.
+		 */
+		private SearchBudget budget;
+		private long deadline;
+
+		/**
+		 * The number of nodes expanded by every worker, added to in steps of SearchBudget.CHECK_INTERVAL.
+		 */
+		private AtomicLong expanded = new AtomicLong();
+
+		/**
+		 * The name of the limit the search went over, which stops every worker like a failure does.
+		 */
+		private volatile String limit;
+
+		/**
+		 * The result of the last search, with its solution and the counts of its work (summed
+		 * over the workers once they have finished).
+		 */
+		private SearchStats stats = new SearchStats( "ParallelAStarSearch", false );
+
+		/**
+		 * Finds a solution of the puzzle from the start state to the goal state using a
+		 * Hash Distributed A* Search Algorithm, keeping the state of the search in this context.
+		 * Only one search may run on a context at a time.
+		 *
+		 * @see SolutionFinder#findSolution(PuzzleGrid, PuzzleGrid)
+		 */
+		public SearchStats search( PuzzleGrid startState, PuzzleGrid goalState )
+		{
+			// Use the same listener, phase timing and budget for the whole search, even if others are set part way through
+			listener = ParallelAStarSearch.this.listener;
+			phaseTiming = ParallelAStarSearch.this.phaseTiming;
+
+			// Initialize the stats
+			stats = new SearchStats( "ParallelAStarSearch", phaseTiming );
+
+			// Don't search if the goal state can't be reached from the start state
+			if ( !startState.isSolvable( goalState ) )
+			{
+				return stats.finish( SearchStatus.UNSOLVABLE, null );
+			}
+
+			goal = new PackedGrid( goalState );
+			PackedGrid start = new PackedGrid( startState );
+			bestCost = Integer.MAX_VALUE;
+			bestNode = null;
+			failure = null;
+			budget = ParallelAStarSearch.this.budget;
+			expanded.set( 0 );
+			limit = null;
+
+			// Every worker starts busy, until it finds it has nothing to search (the workers and their
+			// threads are started by the first search after they were created or stopped, and the later
+			// searches reuse them, keeping their tables at the size they grew to)
+			if ( workers == null ) startWorkers();
+			for ( int i = 0; i < threads; i++ ) workers[i].prepare();
+			work.set( threads );
+
+			// Give the start state to its owner, building the lookup table shared by every node
+			// (the A* heuristic only reads the table once it is built, so every thread can share it)
+			Heuristic heuristic = new AStarHeuristic();
+			heuristic.setGoal( goalState );
+			PuzzleNode root = new PuzzleNode( start, heuristic );
+			root.determineHeuristic();
+			stats.heuristicEvaluated();
+			workers[ ownerOf( start ) ].receive( root );
+
+			// Record start time of search
+			stats.start();
+			deadline = budget.deadline();
+			if ( listener != null ) listener.searchStarted( "f" );
+
+			// Start the next round, and wait for every worker to finish it (even if interrupted, as
+			// their tables are cleared once they have)
+			finished = new CountDownLatch( threads );
+			round++;
+			wakeAll();
+
+			boolean interrupted = false;
+			while ( true )
+			{
+				try
+				{
+					finished.await();
+					break;
+				}
+				catch ( InterruptedException e )
+				{
+					interrupted = true;
+				}
+			}
+			if ( interrupted ) Thread.currentThread().interrupt();
+
+			for ( int i = 0; i < threads; i++ ) workers[i].addStats();
+
+			PuzzleNode currentState = bestNode;
+
+			// If the search went over its budget, keep the closest node to the goal any worker searched
+			// (a goal node already found is the closest, but a cheaper one may not have been found yet)
+			PuzzleNode closest = bestNode;
+			for ( int i = 0; i < threads && bestNode == null; i++ )
+			{
+				if ( workers[i].closest != null && ( closest == null || workers[i].closestDistance < closestDistance( closest ) ) )
+				{
+					closest = workers[i].closest;
+				}
+			}
+
+			// Let go of the nodes of the search (the goal node keeps its own path)
+			for ( int i = 0; i < threads; i++ ) workers[i].clear();
+
+			if ( failure != null ) throw new IllegalStateException( "A search thread failed", failure );
+
+			if ( limit != null )
+			{
+				return stats.finishOverBudget( limit, closest != null ? pathTo( closest ) : null );
+			}
+
+			if ( currentState == null )
+			{
+				return stats.finish( SearchStatus.NOT_FOUND, null );
+			}
+
+			// Recreate path to solution by following the parents of the goal node back to the start state
+			return stats.finish( SearchStatus.SOLVED, pathTo( currentState ) );
+		}
+
+		/**
+		 * Creates the workers and starts their threads, which wait for the first round.
+		 */
+		private void startWorkers()
+		{
+			workers = new Worker[threads];
+
+			for ( int i = 0; i < threads; i++ )
+			{
+				workers[i] = new Worker( i );
+				workers[i].thread = new Thread( workers[i], "ParallelAStarSearch-" + i );
+				workers[i].thread.setDaemon( true );
+				workers[i].thread.start();
+			}
+		}
+
+		/**
+		 * Tells the workers to stop and waits for their threads to end, if they were started.
+		 */
+		private void stopWorkers()
+		{
+			if ( workers == null ) return;
+
+			stopping = true;
+			wakeAll();
+
+			boolean interrupted = false;
+			for ( int i = 0; i < threads; i++ )
+			{
+				while ( workers[i].thread.isAlive() )
+				{
+					try
+					{
+						workers[i].thread.join();
+					}
+					catch ( InterruptedException e )
+					{
+						interrupted = true;
+					}
+				}
+			}
+			if ( interrupted ) Thread.currentThread().interrupt();
+
+			workers = null;
+			stopping = false;
+		}
+
+		/**
+		 * Unparks every worker, so each checks whether a round has started or the search has ended.
+		 */
+		private void wakeAll()
+		{
+			for ( int i = 0; i < threads; i++ ) LockSupport.unpark( workers[i].thread );
+		}
+
+		/**
+		 * Recreates the path to a node by following its parents back to the start state.
+		 *
+		 * @param node	The node.
+		 * @return The states from the start state to the node.
+		 */
+		private ArrayList<PuzzleGrid> pathTo( PuzzleNode node )
+		{
+			ArrayList<PuzzleGrid> path = new ArrayList<PuzzleGrid>();
+
+			path.add( node.getGrid() );
+			while ( node.getParent() != null )
+			{
+				node = node.getParent();
+				path.add( 0, node.getGrid() );
+			}
+
+			return path;
+		}
+
+		/**
+		 * Returns the estimated distance of a node to the goal (its value less its path cost).
+		 *
+		 * @param node	The node.
+		 * @return The estimated distance.
+		 */
+		private float closestDistance( PuzzleNode node )
+		{
+			return node.getHeuristicValue() - node.getPathCost();
+		}
+
+		/**
+		 * Records a goal node reached by a worker, if it is cheaper than the best found so far.
+		 *
+		 * @param node	The goal node.
+		 */
+		private synchronized void foundGoal( PuzzleNode node )
+		{
+			if ( node.getPathCost() < bestCost )
+			{
+				bestNode = node;
+				bestCost = node.getPathCost();
+			}
+		}
+
+		/**
+		 * A worker thread, searching the states it owns.
+		 */
+		private class Worker implements Runnable {
+			/**
+			 * The index of this worker.
+			 */
+			private int id;
+
+			/**
+			 * The thread running this worker.
+			 */
+			private Thread thread;
+
+			/**
+			 * The last round this worker has searched, or the round before the worker was created.
+			 */
+			private int searched = round;
+
+			/**
+			 * The open states owned by this worker, in order of ascending heuristic value (lowest first).
+			 */
+			private Frontier openStates = new BucketFrontier();
+
+			/**
+			 * The cheapest node found for each state owned by this worker, whether open or searched.
+			 */
+			private HashMap<PackedGrid, PuzzleNode> statesSeen = new HashMap<PackedGrid, PuzzleNode>();
+
+			/**
+			 * Batches of children sent to this worker by other workers.
+			 */
+			private ConcurrentLinkedQueue<ArrayList<PuzzleNode>> mailbox = new ConcurrentLinkedQueue<ArrayList<PuzzleNode>>();
+
+			/**
+			 * The children buffered for each other worker, not yet sent.
+			 */
+			private ArrayList<ArrayList<PuzzleNode>> outbox;
+
+			/**
+			 * Whether this worker is counted as busy in the shared work count.
+			 */
+			private boolean busy = true;
+
+			/**
+			 * The node searched by this worker that is estimated to be closest to the goal, and
+			 * that estimate, kept in case the search goes over its budget.
+			 */
+			private PuzzleNode closest;
+			private float closestDistance = Float.MAX_VALUE;
+
+			/**
+			 * The times of this worker's phases in the current search, and the start of its current lap.
+			 */
+			private SearchStats timer;
+			private long lap;
+
+			// Analysis Parameters, added to the search's stats once the worker has finished
+			private long nodesExpanded = 0;
+			private long nodesGenerated = 0;
+			private long duplicatesClosed = 0;
+			private long duplicatesOpen = 0;
+			private long peakOpen = 0;
+
+			/**
+			 * Constructor for the worker with index 'id'.
+			 *
+			 * @param id	The index of the worker.
+			 */
+			public Worker( int id )
+			{
+				this.id = id;
+				outbox = new ArrayList<ArrayList<PuzzleNode>>( threads );
+				for ( int i = 0; i < threads; i++ ) outbox.add( new ArrayList<PuzzleNode>( BATCH_SIZE ) );
+			}
+
+			/**
+			 * Starts timing this worker's phases for a new search.
+			 */
+			private void prepare()
+			{
+				timer = new SearchStats( "ParallelAStarSearch", phaseTiming );
+				lap = timer.clock();
+			}
+
+			/**
+			 * Removes every node from this worker's tables, so it can be used for another search.
+			 */
+			private void clear()
+			{
+				openStates.clear();
+				statesSeen.clear();
+				mailbox.clear();
+				for ( int i = 0; i < threads; i++ ) outbox.get(i).clear();
+				busy = true;
+				closest = null;
+				closestDistance = Float.MAX_VALUE;
+				nodesExpanded = 0;
+				nodesGenerated = 0;
+				duplicatesClosed = 0;
+				duplicatesOpen = 0;
+				peakOpen = 0;
+			}
+
+			/**
+			 * Adds the counts of this worker to the stats of the search. The peak frontier is the
+			 * sum of each worker's peak, which may not have been reached at the same time.
+			 */
+			private void addStats()
+			{
+				stats.addNodesExpanded( nodesExpanded );
+				stats.addNodesGenerated( nodesGenerated );
+				stats.addHeuristicEvaluations( nodesGenerated );
+				stats.addDuplicatesClosed( duplicatesClosed );
+				stats.addDuplicatesOpen( duplicatesOpen );
+				stats.frontierSize( stats.getPeakFrontier() + peakOpen );
+				stats.addPhaseTimes( timer );
+			}
+
+			/**
+			 * Searches each round once it has started, parking in between, until told to stop.
+			 */
+			public void run()
+			{
+				while ( true )
+				{
+					while ( round == searched && !stopping ) LockSupport.park( this );
+					if ( stopping ) return;
+					searched = round;
+
+					try
+					{
+						search();
+					}
+					catch ( RuntimeException | Error e )
+					{
+						failure = e;
+						wakeAll();
+					}
+
+					finished.countDown();
+				}
+			}
+
+			/**
+			 * Searches the states owned by this worker until the search has ended.
+			 */
+			private void search()
+			{
+				int sinceFlush = 0;
+
+				// Time from when this worker starts, not from when the search gave it the start state
+				lap = timer.clock();
+
+				while ( failure == null && limit == null )
+				{
+					receiveMail();
+
+					PuzzleNode currentState = openStates.poll();
+					lap = timer.lap( SearchStats.FRONTIER, lap );
+
+					// No open state can lead to a cheaper solution than the best found, so drop them all
+					// (polling rather than clearing, so each is marked as no longer open)
+					if ( currentState != null && currentState.getHeuristicValue() >= bestCost )
+					{
+						while ( openStates.poll() != null ) { }
+						currentState = null;
+					}
+
+					if ( currentState == null )
+					{
+						// Send everything buffered before going idle, then wait for more children or the end of the search
+						flush();
+						// (the last worker to go idle with no children waiting ends the search, and wakes the others)
+						if ( busy )
+						{
+							busy = false;
+							if ( work.decrementAndGet() == 0 ) wakeAll();
+						}
+
+						while ( mailbox.isEmpty() )
+						{
+							if ( work.get() == 0 || failure != null || limit != null ) return;
+							LockSupport.parkNanos( this, PARK_NANOS );
+						}
+
+						// Don't count the time spent idle in any phase
+						lap = timer.clock();
+						continue;
+					}
+
+					// Take turns with the other workers to expand a node while there is a listener
+					if ( listener == null )
+					{
+						expand( currentState );
+					}
+					else
+					{
+						synchronized ( listener )
+						{
+							expand( currentState );
+						}
+					}
+
+					if ( ( nodesExpanded & ( SearchBudget.CHECK_INTERVAL - 1 ) ) == 0 ) checkBudget();
+
+					if ( ++sinceFlush == FLUSH_INTERVAL )
+					{
+						flush();
+						sinceFlush = 0;
+					}
+				}
+			}
+
+			/**
+			 * Searches a node, recording it if it is a goal and otherwise passing each of its
+			 * children to its owner. Must hold the listener's lock if there is a listener.
+			 *
+			 * @param currentState	The node to search.
+			 */
+			private void expand( PuzzleNode currentState )
+			{
+				nodesExpanded++;
+				if ( listener != null ) listener.nodeExpanded( currentState.getState(), currentState.getHeuristicValue(), (int) nodesExpanded );
+
+				if ( currentState.getState().equalTo( goal ) )
+				{
+					foundGoal( currentState );
+					return;
+				}
+
+				// Keep the closest node to the goal, in case the search runs out of budget
+				if ( closestDistance( currentState ) < closestDistance )
+				{
+					closest = currentState;
+					closestDistance = closestDistance( currentState );
+				}
+
+				// createChildren() doesn't move straight back to the parent, which is never cheaper
+				ArrayList<PuzzleNode> children = currentState.createChildren();
+				lap = timer.lap( SearchStats.EXPANSION, lap );
+
+				for ( PuzzleNode child : children )
+				{
+					nodesGenerated++;
+					child.determineHeuristic();
+					lap = timer.lap( SearchStats.HEURISTIC, lap );
+					if ( child.getHeuristicValue() >= bestCost ) continue;
+
+					if ( listener != null ) listener.childOpened( child.getState(), child.getHeuristicValue() );
+
+					int owner = ownerOf( child.getState() );
+					if ( owner == id )
+					{
+						receive( child );
+					}
+					else
+					{
+						ArrayList<PuzzleNode> buffer = outbox.get( owner );
+						buffer.add( child );
+						if ( buffer.size() == BATCH_SIZE ) send( owner );
+						lap = timer.lap( SearchStats.FRONTIER, lap );
+					}
+				}
+			}
+
+			/**
+			 * Adds the last CHECK_INTERVAL nodes expanded by this worker to the shared count, and stops
+			 * the search if it has gone over its budget. The memory used is estimated from this
+			 * worker's own tables, as every worker owns about the same number of states.
+			 */
+			private void checkBudget()
+			{
+				long total = expanded.addAndGet( SearchBudget.CHECK_INTERVAL );
+				String exceeded = budget.exceeded( total, (long) statesSeen.size() * threads * SearchBudget.NODE_BYTES, deadline );
+				if ( exceeded != null )
+				{
+					limit = exceeded;
+					wakeAll();
+				}
+			}
+
+			/**
+			 * Opens a node owned by this worker, unless a node at least as cheap has been seen
+			 * for its state. If a dearer node had been seen, it is moved onto the new node's path
+			 * and opened again, taking the new node's heuristic value (evaluated by the worker
+			 * that created it) rather than evaluating it here, which could read the new parent
+			 * while the worker that owns the parent is changing it.
+			 *
+			 * @param node	The node to open.
+			 */
+			private void receive( PuzzleNode node )
+			{
+				if ( node.getHeuristicValue() >= bestCost ) return;
+
+				PuzzleNode seen = statesSeen.get( node.getState() );
+				lap = timer.lap( SearchStats.DUPLICATES, lap );
+
+				if ( seen == null )
+				{
+					statesSeen.put( node.getState(), node );
+					openStates.add( node );
+					if ( openStates.size() > peakOpen ) peakOpen = openStates.size();
+					lap = timer.lap( SearchStats.FRONTIER, lap );
+					return;
+				}
+
+				if ( seen.getFrontierIndex() >= 0 ) duplicatesOpen++;
+				else duplicatesClosed++;
+
+				if ( node.getPathCost() < seen.getPathCost() )
+				{
+					seen.setParent( node.getParent() );
+					seen.setPathCost( node.getPathCost() );
+					seen.setMove( node.getMove() );
+					seen.setHeuristicValue( node.getHeuristicValue() );
+
+					if ( seen.getFrontierIndex() >= 0 ) openStates.update( seen );
+					else openStates.add( seen );
+					lap = timer.lap( SearchStats.FRONTIER, lap );
+					childSeen( seen, true );
+				}
+				else
+				{
+					childSeen( seen, false );
+				}
+			}
+
+			/**
+			 * Tells the listener, if there is one, that a child's state had already been seen.
+			 *
+			 * @param node		The node already seen for the state.
+			 * @param reopened	Whether the node was opened again on the child's cheaper path.
+			 */
+			private void childSeen( PuzzleNode node, boolean reopened )
+			{
+				if ( listener == null ) return;
+
+				synchronized ( listener )
+				{
+					listener.childSeen( node.getState(), reopened );
+				}
+			}
+
+			/**
+			 * Opens every child in the batches sent to this worker.
+			 */
+			private void receiveMail()
+			{
+				ArrayList<PuzzleNode> batch = mailbox.poll();
+
+				while ( batch != null )
+				{
+					// Count as busy before the batch stops being counted, so the work count can't reach 0 in between
+					if ( !busy )
+					{
+						busy = true;
+						work.incrementAndGet();
+					}
+
+					for ( int i = 0; i < batch.size(); i++ ) receive( batch.get(i) );
+					work.decrementAndGet();
+
+					batch = mailbox.poll();
+				}
+			}
+
+			/**
+			 * Sends the children buffered for a worker to its mailbox, waking it if it is idle.
+			 *
+			 * @param owner	The index of the worker.
+			 */
+			private void send( int owner )
+			{
+				work.incrementAndGet();
+				workers[owner].mailbox.add( outbox.get( owner ) );
+				outbox.set( owner, new ArrayList<PuzzleNode>( BATCH_SIZE ) );
+				LockSupport.unpark( workers[owner].thread );
+			}
+
+			/**
+			 * Sends the children buffered for every worker.
+			 */
+			private void flush()
+			{
+				for ( int i = 0; i < threads; i++ )
+				{
+					if ( !outbox.get(i).isEmpty() ) send( i );
+				}
+			}
+		}
+
+		public void printSearchData()
+		{
+			System.out.println( " === SEARCH ANALYSIS === " );
+			System.out.println( " Run Time: " + stats.getRunTime() / 1000000 + " milliseconds" );
+			System.out.println( " Nodes Searched: " + stats.getNodesExpanded() );
+			System.out.println( " Threads: " + threads );
+			System.out.println( " Solution Length: " + ( stats.getSolutionLength() + 1 ) );
+			System.out.println( " ======================= " );
+		}
+	}
+
+}
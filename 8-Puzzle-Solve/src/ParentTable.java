@@ -0,0 +1,266 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * A compact record of how each state reached during a search was reached, used instead
+ * of keeping a PuzzleNode (and its parent) for every state to rebuild the solution from.
+ * <p>
+ * For each state only the direction the empty tile was last moved in is kept, as the
+ * parent of a state is found again by moving the empty tile back in the opposite direction.
+ * The table is an open addressing hash table of the packed tiles in two long arrays and
+ * the moves in a byte array, so each state costs around 34 bytes at most (the arrays are
+ * kept between a quarter and a half full), rather than the hundreds of bytes taken by a
+ * PuzzleNode, its heuristic, its children and a HashMap entry. The solution path is
+ * rebuilt once at the end by following the moves back from the goal to the start state.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class ParentTable {
+	/**
+	 * The move recorded for the start state, which has no parent.
+	 */
+	public static final int START = 4;
+
+	/**
+	 * The number of slots the table starts with.
+	 */
+	private static final int INITIAL_CAPACITY = 1 << 10;
+
+	/**
+	 * The most slots kept by clear(), so a table reused for many searches doesn't hold on
+	 * to the memory of one very large search (around 17MB).
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 1 << 20;
+
+	/**
+	 * The packed tiles of the state in each slot (see PackedGrid.getLow() and getHigh()).
+	 */
+	private long[] lows;
+	private long[] highs;
+
+	/**
+	 * The move that reached the state in each slot plus one, or 0 if the slot is empty.
+	 */
+	private byte[] moves;
+
+	/**
+	 * The number of states in the table.
+	 */
+	private int size = 0;
+
+	/**
+	 * Default Constructor
+	 */
+	public ParentTable()
+	{
+		allocate( INITIAL_CAPACITY );
+	}
+
+	/**
+	 * Records the move that reached a state, unless the state is already in the table.
+	 *
+	 * @param state	The state.
+	 * @param move	The direction the empty tile was moved in to reach the state, or START.
+	 * @return True if the state was added, false if it was already in the table.
+	 */
+	public boolean add( PackedGrid state, int move )
+	{
+		int slot = find( state );
+		if ( moves[slot] != 0 ) return false;
+
+		insert( slot, state.getLow(), state.getHigh(), move );
+		return true;
+	}
+
+	/**
+	 * Records the move that reached a state, replacing any move already recorded for it
+	 * (such as when a cheaper path to the state is found).
+	 *
+	 * @param state	The state.
+	 * @param move	The direction the empty tile was moved in to reach the state, or START.
+	 */
+	public void set( PackedGrid state, int move )
+	{
+		int slot = find( state );
+
+		if ( moves[slot] != 0 ) moves[slot] = (byte) ( move + 1 );
+		else insert( slot, state.getLow(), state.getHigh(), move );
+	}
+
+	/**
+	 * Returns the move recorded for a state.
+	 *
+	 * @param state	The state.
+	 * @return The direction the empty tile was moved in to reach the state, START, or -1 if
+	 * 			the state is not in the table.
+	 */
+	public int getMove( PackedGrid state )
+	{
+		return moves[find( state )] - 1;
+	}
+
+	/**
+	 * Determine whether a state has been reached.
+	 *
+	 * @param state	The state being tested.
+	 * @return True if the state is in the table, false if not.
+	 */
+	public boolean contains( PackedGrid state )
+	{
+		return moves[find( state )] != 0;
+	}
+
+	/**
+	 * Returns the number of states in the table.
+	 *
+	 * @return The number of states.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Removes all states from the table so that it can be used for a new search, keeping
+	 * the slots it has grown to (up to MAX_RETAINED_CAPACITY) so that a search of a similar
+	 * size doesn't have to grow it again.
+	 */
+	public void clear()
+	{
+		if ( moves.length > MAX_RETAINED_CAPACITY )
+		{
+			allocate( MAX_RETAINED_CAPACITY );
+			return;
+		}
+
+		// Only the moves mark which slots are in use, so the tiles can be left as they are
+		Arrays.fill( moves, (byte) 0 );
+		size = 0;
+	}
+
+	/**
+	 * Rebuilds the path from the start state to a state in the table by following the
+	 * recorded moves backwards.
+	 *
+	 * @param end	The last state of the path.
+	 * @return The grids of the path, from the start state to the end state.
+	 */
+	public ArrayList<PuzzleGrid> path( PackedGrid end )
+	{
+		ArrayList<PuzzleGrid> path = new ArrayList<PuzzleGrid>();
+		PackedGrid state = end;
+		int move = getMove( state );
+
+		while ( move != START )
+		{
+			if ( move < 0 ) throw new IllegalStateException( "State on the path is missing from the table" );
+
+			path.add( state.toPuzzleGrid() );
+
+			// Moving the empty tile in the opposite direction gives the parent
+			state = state.move( PackedGrid.DOWN - move );
+			move = getMove( state );
+		}
+		path.add( state.toPuzzleGrid() );
+
+		// The path was built from the end state back to the start state
+		for ( int i = 0, j = path.size() - 1; i < j; i++, j-- )
+		{
+			path.set( i, path.set( j, path.get( i ) ) );
+		}
+
+		return path;
+	}
+
+	/**
+	 * Returns the slot holding a state, or the empty slot it would be added to.
+	 *
+	 * @param state	The state.
+	 * @return The index of the slot.
+	 */
+	private int find( PackedGrid state )
+	{
+		return find( state.hashCode(), state.getLow(), state.getHigh() );
+	}
+
+	/**
+	 * Returns the slot holding the packed tiles, or the empty slot they would be added to.
+	 *
+	 * @param hash	The hash code of the state.
+	 * @param low	The low 64 bits of the tiles.
+	 * @param high	The high 64 bits of the tiles.
+	 * @return The index of the slot.
+	 */
+	private int find( int hash, long low, long high )
+	{
+		int mask = moves.length - 1;
+		int slot = hash & mask;
+
+		// Step along the slots until the state or an empty slot is found
+		while ( moves[slot] != 0 && ( lows[slot] != low || highs[slot] != high ) )
+		{
+			slot = ( slot + 1 ) & mask;
+		}
+
+		return slot;
+	}
+
+	/**
+	 * Adds a state to an empty slot, doubling the size of the table once it is half full.
+	 *
+	 * @param slot	The empty slot.
+	 * @param low	The low 64 bits of the tiles.
+	 * @param high	The high 64 bits of the tiles.
+	 * @param move	The move that reached the state.
+	 */
+	private void insert( int slot, long low, long high, int move )
+	{
+		lows[slot] = low;
+		highs[slot] = high;
+		moves[slot] = (byte) ( move + 1 );
+		size++;
+
+		if ( size > moves.length / 2 ) resize( moves.length * 2 );
+	}
+
+	/**
+	 * Moves every state into a new set of arrays with the specified number of slots.
+	 *
+	 * @param capacity	The new number of slots, a power of two.
+	 */
+	private void resize( int capacity )
+	{
+		long[] oldLows = lows, oldHighs = highs;
+		byte[] oldMoves = moves;
+
+		allocate( capacity );
+
+		for ( int i = 0; i < oldMoves.length; i++ )
+		{
+			if ( oldMoves[i] == 0 ) continue;
+
+			int slot = find( PackedGrid.hash( oldLows[i], oldHighs[i] ), oldLows[i], oldHighs[i] );
+
+			lows[slot] = oldLows[i];
+			highs[slot] = oldHighs[i];
+			moves[slot] = oldMoves[i];
+			size++;
+		}
+	}
+
+	/**
+	 * Replaces the arrays with empty arrays of the specified number of slots.
+	 *
+	 * @param capacity	The number of slots, a power of two.
+	 */
+	private void allocate( int capacity )
+	{
+		lows = new long[capacity];
+		highs = new long[capacity];
+		moves = new byte[capacity];
+		size = 0;
+	}
+
+}
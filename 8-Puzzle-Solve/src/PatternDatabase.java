@@ -0,0 +1,365 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * A pattern database - a precomputed table of the number of moves needed to bring a
+ * subset (pattern) of the tiles into their goal positions, for every arrangement of
+ * those tiles on the grid.
+ * <p>
+ * Only moves of the pattern tiles themselves are counted, so the costs of databases
+ * built from disjoint patterns can be added together to give an admissible heuristic
+ * (see PatternDatabaseHeuristic). The tables are built by PatternDatabaseGenerator.
+ * <p>
+ * A database file consists of a header of 4 byte integers:
+ * <pre>
+ * magic ("PDB1"), width, height, k, k pattern tiles, k goal positions of the pattern tiles
+ * </pre>
+ * followed by one byte per arrangement of the pattern tiles, indexed by rank (see rank()).
+ * Files are memory-mapped rather than read, so loading a database costs no parsing, and
+ * each file is only mapped once per JVM and shared by every search that loads it.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class PatternDatabase {
+	/**
+	 * The first 4 bytes of a pattern database file ("PDB1").
+	 */
+	public static final int MAGIC = 0x50444231;
+
+	/**
+	 * The databases already loaded, keyed by the canonical path of their files.
+	 */
+	private static final ConcurrentHashMap<String, PatternDatabase> loaded = new ConcurrentHashMap<String, PatternDatabase>();
+
+	/**
+	 * The width and height of the grid the database was built for.
+	 */
+	private final int width;
+	private final int height;
+
+	/**
+	 * The tiles making up the pattern.
+	 */
+	private final int[] tiles;
+
+	/**
+	 * The goal positions (x + y * width) of the pattern tiles.
+	 */
+	private final int[] goalPositions;
+
+	/**
+	 * The table of costs, one byte per arrangement of the pattern tiles.
+	 */
+	private final ByteBuffer table;
+
+	/**
+	 * A Constructor for a database from an existing table of costs.
+	 *
+	 * @param width			The width of the grid.
+	 * @param height		The height of the grid.
+	 * @param tiles			The tiles making up the pattern.
+	 * @param goalPositions	The goal positions of the pattern tiles.
+	 * @param table			The table of costs, indexed by rank.
+	 */
+	public PatternDatabase( int width, int height, int[] tiles, int[] goalPositions, ByteBuffer table )
+	{
+		this.width = width;
+		this.height = height;
+		this.tiles = tiles;
+		this.goalPositions = goalPositions;
+		this.table = table;
+	}
+
+	/**
+	 * Loads a pattern database from a file, or returns the database already loaded from it.
+	 *
+	 * @param filename	The name of the database file.
+	 * @return The pattern database.
+	 * @throws IOException If the file cannot be read or is not a pattern database.
+	 */
+	public static PatternDatabase load( String filename ) throws IOException
+	{
+		String key = new File( filename ).getCanonicalPath();
+		PatternDatabase pdb = loaded.get( key );
+
+		if ( pdb == null )
+		{
+			pdb = map( filename );
+			PatternDatabase existing = loaded.putIfAbsent( key, pdb );
+			if ( existing != null ) pdb = existing;
+		}
+
+		return pdb;
+	}
+
+	/**
+	 * Memory-maps a pattern database file and reads its header.
+	 *
+	 * @param filename	The name of the database file.
+	 * @return The pattern database.
+	 * @throws IOException If the file cannot be read or is not a pattern database.
+	 */
+	private static PatternDatabase map( String filename ) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile( filename, "r" );
+
+		try
+		{
+			FileChannel channel = file.getChannel();
+			ByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+
+			if ( buffer.getInt() != MAGIC )
+			{
+				throw new IOException( filename + " is not a pattern database" );
+			}
+
+			int width = buffer.getInt();
+			int height = buffer.getInt();
+			int k = buffer.getInt();
+			int[] tiles = new int[k];
+			int[] goalPositions = new int[k];
+
+			for ( int i = 0; i < k; i++ ) tiles[i] = buffer.getInt();
+			for ( int i = 0; i < k; i++ ) goalPositions[i] = buffer.getInt();
+
+			// The rest of the file is the table
+			if ( buffer.remaining() != tableSize( width * height, k ) )
+			{
+				throw new IOException( filename + " has a table of the wrong size" );
+			}
+
+			return new PatternDatabase( width, height, tiles, goalPositions, buffer.slice() );
+		}
+		finally
+		{
+			// The mapping remains valid once the file is closed
+			file.close();
+		}
+	}
+
+	/**
+	 * Writes this pattern database to a file in the format read by load().
+	 *
+	 * @param filename	The name of the file to write.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void save( String filename ) throws IOException
+	{
+		int k = tiles.length;
+		ByteBuffer header = ByteBuffer.allocate( 4 * ( 4 + 2 * k ) );
+
+		header.putInt( MAGIC ).putInt( width ).putInt( height ).putInt( k );
+		for ( int i = 0; i < k; i++ ) header.putInt( tiles[i] );
+		for ( int i = 0; i < k; i++ ) header.putInt( goalPositions[i] );
+		header.flip();
+
+		RandomAccessFile file = new RandomAccessFile( filename, "rw" );
+
+		try
+		{
+			FileChannel channel = file.getChannel();
+			ByteBuffer contents = table.duplicate();
+			contents.clear();
+
+			channel.truncate( 0 );
+			while ( header.hasRemaining() ) channel.write( header );
+			while ( contents.hasRemaining() ) channel.write( contents );
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+
+	/**
+	 * Returns the number of moves of the pattern tiles needed to bring them to their
+	 * goal positions.
+	 *
+	 * @param positions	The position of every tile in the grid, indexed by tile.
+	 * @return The cost of the arrangement of the pattern tiles.
+	 */
+	public int cost( int[] positions )
+	{
+		int cells = width * height;
+		int index = 0;
+
+		// Rank the positions of the pattern tiles (see rank())
+		for ( int i = 0; i < tiles.length; i++ )
+		{
+			int position = positions[tiles[i]];
+			int digit = position;
+
+			for ( int j = 0; j < i; j++ )
+			{
+				if ( positions[tiles[j]] < position ) digit--;
+			}
+
+			index = index * ( cells - i ) + digit;
+		}
+
+		return table.get( index ) & 0xFF;
+	}
+
+	/**
+	 * Returns the index of an arrangement of distinct positions, numbering the arrangements
+	 * of k positions out of n from 0 to n! / (n - k)! - 1.
+	 * <p>
+	 * Each position is replaced by the number of positions below it not already used by
+	 * an earlier element, and the results are read as a mixed radix number with radices
+	 * n, n - 1, ..., n - k + 1.
+	 *
+	 * @param positions	The positions, each between 0 and n - 1.
+	 * @param k			The number of positions to rank.
+	 * @param n			The number of positions in the grid.
+	 * @return The rank of the arrangement.
+	 */
+	public static int rank( int[] positions, int k, int n )
+	{
+		int index = 0;
+
+		for ( int i = 0; i < k; i++ )
+		{
+			int digit = positions[i];
+
+			for ( int j = 0; j < i; j++ )
+			{
+				if ( positions[j] < positions[i] ) digit--;
+			}
+
+			index = index * ( n - i ) + digit;
+		}
+
+		return index;
+	}
+
+	/**
+	 * Reverses rank(), filling the positions array with the arrangement of the given index.
+	 *
+	 * @param index		The rank of the arrangement.
+	 * @param k			The number of positions in the arrangement.
+	 * @param n			The number of positions in the grid.
+	 * @param positions	The array to fill with the k positions.
+	 */
+	public static void unrank( int index, int k, int n, int[] positions )
+	{
+		// Read off the mixed radix digits, last first
+		for ( int i = k - 1; i >= 0; i-- )
+		{
+			positions[i] = index % ( n - i );
+			index /= ( n - i );
+		}
+
+		// Turn each digit back into a position by skipping those used by earlier elements
+		long used = 0L;
+		for ( int i = 0; i < k; i++ )
+		{
+			int digit = positions[i];
+			int position = 0;
+
+			while ( true )
+			{
+				if ( ( used & ( 1L << position ) ) == 0 )
+				{
+					if ( digit == 0 ) break;
+					digit--;
+				}
+				position++;
+			}
+
+			positions[i] = position;
+			used |= 1L << position;
+		}
+	}
+
+	/**
+	 * Returns the number of arrangements of k positions out of n, n! / (n - k)!.
+	 *
+	 * @param n	The number of positions in the grid.
+	 * @param k	The number of positions in an arrangement.
+	 * @return The number of arrangements.
+	 */
+	public static long tableSize( int n, int k )
+	{
+		long size = 1;
+
+		for ( int i = 0; i < k; i++ ) size *= n - i;
+
+		return size;
+	}
+
+	/**
+	 * Determine whether this database was built for the specified goal state.
+	 *
+	 * @param goalState	The goal state of the search.
+	 * @return True if the grid size and goal positions of the pattern tiles match.
+	 */
+	public boolean matchesGoal( PuzzleGrid goalState )
+	{
+		if ( goalState.getWidth() != width || goalState.getHeight() != height ) return false;
+
+		for ( int i = 0; i < tiles.length; i++ )
+		{
+			int[] position = goalState.getPositionInGrid( tiles[i] );
+			if ( position[0] + position[1] * width != goalPositions[i] ) return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns a tile that is in both this pattern and another, as the costs of databases can
+	 * only be added together when their patterns share no tiles.
+	 *
+	 * @param other	The other database.
+	 * @return A tile in both patterns, or -1 if they are disjoint.
+	 */
+	public int sharedTile( PatternDatabase other )
+	{
+		for ( int tile : tiles )
+		{
+			for ( int otherTile : other.tiles )
+			{
+				if ( tile == otherTile ) return tile;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns the tiles making up the pattern.
+	 *
+	 * @return The pattern tiles.
+	 */
+	public int[] getTiles()
+	{
+		return tiles;
+	}
+
+	/**
+	 * Returns the width of the grid the database was built for.
+	 *
+	 * @return The width of the grid.
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * Returns the height of the grid the database was built for.
+	 *
+	 * @return The height of the grid.
+	 */
+	public int getHeight()
+	{
+		return height;
+	}
+
+}
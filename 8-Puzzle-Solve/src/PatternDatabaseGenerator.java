@@ -0,0 +1,199 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+
+/**
+ * Builds pattern databases (see PatternDatabase) by a retrograde breadth first search
+ * backwards from the goal state.
+ * <p>
+ * The search is over abstract states made up of the positions of the pattern tiles and
+ * the empty tile, with every other tile treated as indistinguishable. Moving a pattern tile
+ * costs 1 and moving any other tile costs 0, so the search proceeds one cost level at a time,
+ * spreading through all states reachable at no extra cost before moving on to the next level.
+ * The cost of each arrangement of the pattern tiles is then the lowest cost over every
+ * position of the empty tile.
+ * <p>
+ * Can be run from the command line as:
+ * <pre>
+ * java PatternDatabaseGenerator goal.txt pattern.pdb 1,2,3,4,5,6
+ * </pre>
+ * Large patterns need a large heap: the search uses one byte for each arrangement of the
+ * pattern tiles and empty tile (57,657,600 for 6 tiles of the 15-puzzle) plus its queues.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class PatternDatabaseGenerator {
+	/**
+	 * The cost recorded for abstract states that have not yet been reached.
+	 */
+	private static final int UNVISITED = 0xFF;
+
+	/**
+	 * Default Constructor
+	 */
+	public PatternDatabaseGenerator() { }
+
+	/**
+	 * Entry method of program.
+	 *
+	 * @param args The goal state file, the file to write and a comma separated list of pattern tiles.
+	 */
+	public static void main( String[] args )
+	{
+		if ( args.length != 3 )
+		{
+			System.out.println( "Usage: java PatternDatabaseGenerator goal.txt pattern.pdb 1,2,3,4" );
+			return;
+		}
+
+		PuzzleGrid goalState = new PuzzleGrid( args[0] );
+		String[] data = args[2].split( "," );
+		int[] tiles = new int[data.length];
+
+		for ( int i = 0; i < data.length; i++ )
+		{
+			tiles[i] = Integer.parseInt( data[i].trim() );
+		}
+
+		long startTime = System.nanoTime();
+		PatternDatabase pdb = null;
+		try
+		{
+			pdb = generate( goalState, tiles );
+		}
+		catch ( IllegalArgumentException e )
+		{
+			System.out.println( e.getMessage() + ". Closing..." );
+			System.exit(0);
+		}
+
+		try
+		{
+			pdb.save( args[1] );
+		}
+		catch ( IOException e )
+		{
+			System.out.println( "Unable to write to file " + args[1] + ". Closing..." );
+			System.exit(0);
+		}
+
+		System.out.println( "Pattern " + Arrays.toString( tiles ) + " written to " + args[1] + " in "
+				+ ( System.nanoTime() - startTime ) / 1000000 + " milliseconds" );
+	}
+
+	/**
+	 * Builds the pattern database for the specified pattern tiles and goal state.
+	 *
+	 * @param goalState	The goal state of the puzzle.
+	 * @param tiles		The tiles making up the pattern (not including the empty tile, 0).
+	 * @return The pattern database.
+	 * @throws IllegalArgumentException If a tile is the empty tile, isn't in the goal state or is
+	 * 									given twice, or the pattern is too large.
+	 */
+	public static PatternDatabase generate( PuzzleGrid goalState, int[] tiles )
+	{
+		int width = goalState.getWidth();
+		int height = goalState.getHeight();
+		int n = width * height;
+		int k = tiles.length;
+
+		if ( PatternDatabase.tableSize( n, k + 1 ) > Integer.MAX_VALUE )
+		{
+			throw new IllegalArgumentException( "Pattern of " + k + " tiles is too large for a " + width + "x" + height + " grid" );
+		}
+
+		// Abstract state: positions of the pattern tiles, followed by the position of the empty tile
+		int[] positions = new int[k + 1];
+		int[] goalPositions = new int[k];
+		boolean[] inPattern = new boolean[n];
+		for ( int i = 0; i < k; i++ )
+		{
+			if ( tiles[i] == 0 ) throw new IllegalArgumentException( "The empty tile cannot be part of a pattern" );
+			if ( tiles[i] < 0 || tiles[i] >= n ) throw new IllegalArgumentException( "Tile " + tiles[i] + " is not in the goal state" );
+			if ( inPattern[tiles[i]] ) throw new IllegalArgumentException( "Tile " + tiles[i] + " is in the pattern more than once" );
+			inPattern[tiles[i]] = true;
+
+			int[] position = goalState.getPositionInGrid( tiles[i] );
+			goalPositions[i] = position[0] + position[1] * width;
+			positions[i] = goalPositions[i];
+		}
+		positions[k] = goalState.getEmptyX() + goalState.getEmptyY() * width;
+
+		byte[] costs = new byte[ (int) PatternDatabase.tableSize( n, k + 1 ) ];
+		Arrays.fill( costs, (byte) UNVISITED );
+
+		int[] occupant = new int[n]; // Pattern tile number + 1 at each position, 0 if none
+		int[][] neighbours = MoveTable.forSize( width, height ).getNeighbours();
+
+		IntList current = new IntList(), next = new IntList();
+		int goal = PatternDatabase.rank( positions, k + 1, n );
+		costs[goal] = 0;
+		current.add( goal );
+
+		for ( int level = 0; current.size() > 0; level++ )
+		{
+			// Entries are added to current while it is being processed (moves costing 0)
+			for ( int e = 0; e < current.size(); e++ )
+			{
+				int index = current.get( e );
+
+				// Skip entries in the queue that were since reached at a lower cost
+				if ( ( costs[index] & 0xFF ) != level ) continue;
+
+				PatternDatabase.unrank( index, k + 1, n, positions );
+				Arrays.fill( occupant, 0 );
+				for ( int i = 0; i < k; i++ ) occupant[positions[i]] = i + 1;
+
+				int blank = positions[k];
+
+				for ( int direction = PackedGrid.UP; direction <= PackedGrid.DOWN; direction++ )
+				{
+					int to = neighbours[blank][direction];
+					if ( to < 0 ) continue;
+
+					int tile = occupant[to] - 1;
+
+					// Move the tile at 'to' into the empty tile, rank the result and move it back
+					if ( tile >= 0 ) positions[tile] = blank;
+					positions[k] = to;
+					int child = PatternDatabase.rank( positions, k + 1, n );
+					if ( tile >= 0 ) positions[tile] = to;
+					positions[k] = blank;
+
+					int cost = costs[child] & 0xFF;
+
+					if ( tile < 0 && cost > level )
+					{
+						// Moving a non-pattern tile is free
+						costs[child] = (byte) level;
+						current.add( child );
+					}
+					else if ( tile >= 0 && cost == UNVISITED )
+					{
+						costs[child] = (byte) ( level + 1 );
+						next.add( child );
+					}
+				}
+			}
+
+			IntList swap = current;
+			current = next;
+			next = swap;
+			next.clear();
+		}
+
+		// Drop the position of the empty tile, keeping the lowest cost over all its positions
+		byte[] table = new byte[ (int) PatternDatabase.tableSize( n, k ) ];
+		Arrays.fill( table, (byte) UNVISITED );
+		for ( int index = 0; index < costs.length; index++ )
+		{
+			int pattern = index / ( n - k );
+			if ( ( costs[index] & 0xFF ) < ( table[pattern] & 0xFF ) ) table[pattern] = costs[index];
+		}
+
+		return new PatternDatabase( width, height, tiles, goalPositions, ByteBuffer.wrap( table ) );
+	}
+
+}
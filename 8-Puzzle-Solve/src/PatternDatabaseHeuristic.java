@@ -0,0 +1,98 @@
+
+/**
+ * An implementation of the Heuristic interface that estimates the cost to the goal node
+ * using additive disjoint pattern databases, and adds the total path length so far for
+ * use in an A* search.
+ * <p>
+ * Each database gives the number of moves of its own pattern tiles needed to bring them
+ * into place. As the patterns do not share tiles, the costs can be added together while
+ * still never overestimating the cost to the goal, giving a much more accurate estimate
+ * than the Manhattan distance for larger grids such as the 15-puzzle.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class PatternDatabaseHeuristic implements Heuristic {
+
+	/**
+	 * The pattern databases.
+	 */
+	private PatternDatabase[] databases;
+
+	/**
+	 * The position of every tile in the grid being scored, indexed by tile, reused for
+	 * every node to avoid creating one per node (so a heuristic must only be used by one
+	 * thread at a time).
+	 */
+	private int[] positions;
+
+	/**
+	 * Constructor for a heuristic using the specified databases.
+	 *
+	 * @param databases	The disjoint pattern databases to add together.
+	 * @throws IllegalArgumentException If two of the databases share a tile.
+	 */
+	public PatternDatabaseHeuristic( PatternDatabase[] databases )
+	{
+		for ( int i = 0; i < databases.length; i++ )
+		{
+			for ( int j = i + 1; j < databases.length; j++ )
+			{
+				int tile = databases[i].sharedTile( databases[j] );
+				if ( tile >= 0 ) throw new IllegalArgumentException( "Pattern databases share tile " + tile );
+			}
+		}
+
+		this.databases = databases;
+	}
+
+	/**
+	 * Checks the databases were built for the goal state.
+	 *
+	 * @throws IllegalArgumentException If a database was built for a different goal state.
+	 */
+	public void setGoal( PuzzleGrid goalState )
+	{
+		for ( PatternDatabase pdb : databases )
+		{
+			if ( !pdb.matchesGoal( goalState ) )
+			{
+				throw new IllegalArgumentException( "Pattern database was built for a different goal state" );
+			}
+		}
+		positions = new int[ goalState.getWidth() * goalState.getHeight() ];
+	}
+
+	/**
+	 * Calculates the heuristic based on the state of the node and the goal state of the search, by
+	 * adding together the cost of the node's state in each pattern database and the
+	 * path cost so far.
+	 */
+	public float evaluate( PuzzleNode node )
+	{
+		// Record the position of every tile in the node's state
+		PackedGrid state = node.getState();
+		for ( int p = 0; p < positions.length; p++ )
+		{
+			positions[ state.getTile( p ) ] = p;
+		}
+
+		// Sum the cost of each pattern and the path cost so far
+		int cost = 0;
+		for ( PatternDatabase pdb : databases )
+		{
+			cost += pdb.cost( positions );
+		}
+
+		return cost + node.getPathCost();
+	}
+
+	/**
+	 * Returns a new heuristic using the same databases, with its own buffer of tile positions.
+	 */
+	public Heuristic copy()
+	{
+		return new PatternDatabaseHeuristic( databases );
+	}
+
+}
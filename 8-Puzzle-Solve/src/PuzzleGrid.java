@@ -3,6 +3,7 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 
 /**
@@ -105,6 +106,63 @@ public class PuzzleGrid
 		y0 = pg.getEmptyY();
 	}
 	
+	/**
+	 * A Constructor for initializing a grid with an existing 2D array of tiles,
+	 * indexed as [x][y].
+	 *
+	 * @param grid	The array of tiles that will make up the grid.
+	 */
+	public PuzzleGrid( int[][] grid )
+	{
+		this.grid = grid;
+		width = grid.length;
+		height = grid[0].length;
+
+		// Record coordinates of the empty tile
+		for ( int y = 0; y < height; y++ )
+		{
+			for ( int x = 0; x < width; x++ )
+			{
+				if ( grid[x][y] == 0 )
+				{
+					x0 = x;
+					y0 = y;
+				}
+			}
+		}
+	}
+
+	/**
+	 * A Constructor for initializing a grid from a board array, where the tile at (x, y)
+	 * is element x + y * width (see toBoard()).
+	 *
+	 * @param board	The board array, which is copied.
+	 * @param width	The width of the grid.
+	 */
+	public PuzzleGrid( int[] board, int width )
+	{
+		this( toGrid( board, width ) );
+	}
+
+	/**
+	 * Copies a board array into a 2D array of tiles, indexed as [x][y].
+	 *
+	 * @param board	The board array.
+	 * @param width	The width of the grid.
+	 * @return The 2D array of tiles.
+	 */
+	private static int[][] toGrid( int[] board, int width )
+	{
+		int[][] grid = new int[width][board.length / width];
+
+		for ( int p = 0; p < board.length; p++ )
+		{
+			grid[p % width][p / width] = board[p];
+		}
+
+		return grid;
+	}
+
 	/**
 	 * Loads a puzzle grid state from a file. 
 	 * <p>
@@ -112,7 +170,9 @@ public class PuzzleGrid
 	 * 0,1,2
 	 * 3,4,5
 	 * 6,7,8
-	 * where there numbers can be in any order.
+	 * where there numbers can be in any order. The grid can be of any width 
+	 * and height (such as 4x4 for the 15-puzzle, or 3x4), with the width taken
+	 * from the number of tiles on each line and the height from the number of lines.
 	 * 
 	 * @param filename The name of the file containing the grid state.
 	 */
@@ -120,7 +180,7 @@ public class PuzzleGrid
 	{
 		try {
 			BufferedReader br = new BufferedReader( new FileReader( filename ));
-			String[] data = new String[width];
+			ArrayList<String[]> rows = new ArrayList<String[]>();
 			String delimiter = ",", line = null;
 			int i = 0, j = 0;
 			
@@ -128,37 +188,62 @@ public class PuzzleGrid
 			{ 
 				line = br.readLine(); 
 				
-				// Based on file format, determine grid width / height
-				width = line.length() / 2 + 1;
-				height = line.length() / 2 + 1;
-				grid = new int[width][height];
-				
-				// While file isn't empty
+				// While file isn't empty, split non-empty lines using delimiter of ','
 				while ( line != null )
 				{
-					// Split lines using delimiter of ','
-					data = line.split( delimiter );
-					
-					// Put contents of each formatted line into grid array
-					for (i = 0; i < width; i++) 
-					{
-						grid[i][j] = Integer.parseInt( data[i] );
-						if ( grid[i][j] == 0 ) 
-						{
-							x0 = i;
-							y0 = j;
-						}
-					}
-				
-					j++;
+					if ( line.trim().length() > 0 ) rows.add( line.split( delimiter ) );
 					line = br.readLine();
 				}
+				br.close();
 			}
 			catch (IOException e) 
 			{ 
 				System.out.println( "Unable to read from file " + filename + ". Closing..." ); 
 				System.exit(0);
 			}
+			
+			if ( rows.isEmpty() )
+			{
+				System.out.println( "File " + filename + " does not contain a grid. Closing..." );
+				System.exit(0);
+			}
+			
+			// Based on file contents, determine grid width / height
+			width = rows.get(0).length;
+			height = rows.size();
+			grid = new int[width][height];
+			
+			// Put contents of each formatted line into grid array
+			for (j = 0; j < height; j++) 
+			{
+				String[] data = rows.get(j);
+				
+				if ( data.length != width )
+				{
+					System.out.println( "Line " + (j + 1) + " of file " + filename + " has " + data.length 
+							+ " tiles, expected " + width + ". Closing..." );
+					System.exit(0);
+				}
+				
+				for (i = 0; i < width; i++) 
+				{
+					try
+					{
+						grid[i][j] = Integer.parseInt( data[i].trim() );
+					}
+					catch ( NumberFormatException e )
+					{
+						System.out.println( "Tile '" + data[i] + "' in file " + filename + " is not a number. Closing..." );
+						System.exit(0);
+					}
+					
+					if ( grid[i][j] == 0 ) 
+					{
+						x0 = i;
+						y0 = j;
+					}
+				}
+			}
 		}
 		catch ( FileNotFoundException e)
 		{
@@ -183,7 +268,7 @@ public class PuzzleGrid
 		// If translation is horizontal
 		if ( x != 0 )
 		{
-			if ( x > 0 && x0 < 2) // Translate right, can't if x0 > 1
+			if ( x > 0 && x0 < width - 1) // Translate right, can't if on right edge
 			{
 				grid[x0][y0] = grid[x0+1][y0];
 				grid[x0+1][y0] = 0;
@@ -191,7 +276,7 @@ public class PuzzleGrid
 				x0 = x0+1;
 				success = true;
 			}
-			else if ( x < 0 && x0 > 0 ) // Translate left, can't if x0 < 1
+			else if ( x < 0 && x0 > 0 ) // Translate left, can't if on left edge
 			{
 				grid[x0][y0] = grid[x0-1][y0];
 				grid[x0-1][y0] = 0;
@@ -202,7 +287,7 @@ public class PuzzleGrid
 		} // If translation is vertical
 		else if ( y != 0 ) // Can't translate diagonal, so if x != 0, then y wont be translated no matter
 		{				   // what it is, and visa versa
-			if ( y > 0 && y0 < 2) // Translate down, can't if y0 > 1
+			if ( y > 0 && y0 < height - 1) // Translate down, can't if on bottom edge
 			{
 				grid[x0][y0] = grid[x0][y0+1];
 				grid[x0][y0+1] = 0;
@@ -210,7 +295,7 @@ public class PuzzleGrid
 				y0 = y0+1;
 				success = true;
 			}
-			else if ( y < 0 && y0 > 0 ) // Translate up, cant if y0 < 1
+			else if ( y < 0 && y0 > 0 ) // Translate up, cant if on top edge
 			{
 				grid[x0][y0] = grid[x0][y0-1];
 				grid[x0][y0-1] = 0;
@@ -233,9 +318,9 @@ public class PuzzleGrid
 			for ( int x = 0; x < width; x++ )
 			{
 				// If x & y are the same as the empty tile coordinates, print empty tile
-				if ( x == x0 && y == y0 ) System.out.print( "  " );
+				if ( x == x0 && y == y0 ) System.out.print( padTile( "" ) );
 				// Else print element of grid
-				else System.out.print( grid[x][y] + " " );
+				else System.out.print( padTile( String.valueOf( grid[x][y] ) ) );
 			}
 			System.out.print( "\n" );
 		}
@@ -254,15 +339,32 @@ public class PuzzleGrid
 			for ( int x = 0; x < width; x++ )
 			{
 				// If x & y are the same as the empty tile coordinates, print empty tile
-				if ( x == x0 && y == y0 ) System.out.print( "  " );
+				if ( x == x0 && y == y0 ) System.out.print( padTile( "" ) );
 				// Else print element of grid
-				else System.out.print( grid[x][y] + " " );
+				else System.out.print( padTile( String.valueOf( grid[x][y] ) ) );
 			}
 			System.out.print( "\n" );
 		}
 		System.out.print( "\n" );
 	}
 	
+	/**
+	 * Pads a tile to the width of the largest tile in the grid, plus a space, so that
+	 * the columns of grids with two digit tiles line up when printed.
+	 * 
+	 * @param tile The tile as text (empty for the empty tile).
+	 * @return The padded tile.
+	 */
+	private String padTile( String tile )
+	{
+		int digits = String.valueOf( width * height - 1 ).length();
+		StringBuilder padded = new StringBuilder();
+		
+		for ( int i = tile.length(); i < digits; i++ ) padded.append( ' ' );
+		
+		return padded.append( tile ).append( ' ' ).toString();
+	}
+	
 	/**
 	 * Determine whether the grid in this object is equal 
 	 * to (each tile is in the same position) the specified PuzzleGrid pg.
@@ -291,6 +393,34 @@ public class PuzzleGrid
 		return equal;
 	}
 	
+	/**
+	 * Determine whether the specified object is a PuzzleGrid of the same size
+	 * with each tile in the same position as this grid.
+	 * 
+	 * @param o The object that we are testing for equality.
+	 * @return True if they are equal, false if not.
+	 */
+	@Override
+	public boolean equals( Object o )
+	{
+		if ( !( o instanceof PuzzleGrid ) ) return false;
+		
+		PuzzleGrid pg = (PuzzleGrid) o;
+		return width == pg.getWidth() && height == pg.getHeight() && equalTo( pg );
+	}
+	
+	/**
+	 * Returns a hash code based upon the position of every tile in the grid,
+	 * consistent with equals.
+	 * 
+	 * @return The hash code of the grid.
+	 */
+	@Override
+	public int hashCode()
+	{
+		return Arrays.deepHashCode( grid );
+	}
+	
 	/**
 	 * Returns the position of a number in the grid in the form of a 2D array, 
 	 * where element [0] is the x coordinate and element [1] is the y coordinate.
@@ -319,6 +449,123 @@ public class PuzzleGrid
 		return position;
 	}
 	
+	/**
+	 * Determine whether the specified goal state can be reached from this grid state
+	 * by moving the empty tile, without searching.
+	 * <p>
+	 * Reading the tiles (other than the empty tile) row by row, a horizontal move never 
+	 * changes their order and a vertical move passes one tile over (width - 1) others, 
+	 * changing the number of inversions (pairs in the wrong order) by an odd number when 
+	 * the width is even and an even number when it is odd. So the parity of the number of 
+	 * inversions, plus the row of the empty tile when the width is even, can never change,
+	 * and two states can reach each other exactly when it is the same for both. Grids of
+	 * a single row or column can only reach states with the tiles in the same order.
+	 * 
+	 * @param goalState The goal state.
+	 * @return True if the goal state can be reached, false if not.
+	 */
+	public boolean isSolvable( PuzzleGrid goalState )
+	{
+		if ( goalState.getWidth() != width || goalState.getHeight() != height ) return false;
+		
+		int[] tiles = getTileOrder();
+		int[] goalTiles = goalState.getTileOrder();
+		
+		// Both grids must contain the same tiles
+		int[] sortedTiles = tiles.clone(), sortedGoalTiles = goalTiles.clone();
+		Arrays.sort( sortedTiles );
+		Arrays.sort( sortedGoalTiles );
+		if ( !Arrays.equals( sortedTiles, sortedGoalTiles ) ) return false;
+		
+		if ( width == 1 || height == 1 ) return Arrays.equals( tiles, goalTiles );
+		
+		long parity = countInversions( tiles, new int[ tiles.length ], 0, tiles.length );
+		long goalParity = countInversions( goalTiles, new int[ goalTiles.length ], 0, goalTiles.length );
+		
+		if ( width % 2 == 0 )
+		{
+			parity += y0;
+			goalParity += goalState.getEmptyY();
+		}
+		
+		return parity % 2 == goalParity % 2;
+	}
+	
+	/**
+	 * Returns the tiles of the grid row by row, leaving out the empty tile.
+	 * 
+	 * @return An array of the tiles in reading order.
+	 */
+	private int[] getTileOrder()
+	{
+		int[] tiles = new int[ width * height - 1 ];
+		int i = 0;
+		
+		for ( int y = 0; y < height; y++ )
+		{
+			for ( int x = 0; x < width; x++ )
+			{
+				if ( x != x0 || y != y0 ) tiles[i++] = grid[x][y];
+			}
+		}
+		
+		return tiles;
+	}
+	
+	/**
+	 * Counts the pairs of elements in the wrong order between positions 'from' (inclusive) 
+	 * and 'to' (exclusive) of an array using a merge sort, in O(n log n) time. The elements
+	 * are left sorted.
+	 * 
+	 * @param a		The array, which is sorted by the count.
+	 * @param temp	An array of the same length used while merging.
+	 * @param from	The first position to count.
+	 * @param to	The position after the last to count.
+	 * @return The number of inversions.
+	 */
+	private static long countInversions( int[] a, int[] temp, int from, int to )
+	{
+		if ( to - from < 2 ) return 0;
+		
+		int middle = ( from + to ) / 2;
+		long inversions = countInversions( a, temp, from, middle ) + countInversions( a, temp, middle, to );
+		
+		// Merge the sorted halves, counting the elements of the left half each right element passes
+		int i = from, j = middle, k = from;
+		while ( i < middle && j < to )
+		{
+			if ( a[i] <= a[j] ) temp[k++] = a[i++];
+			else 
+			{
+				inversions += middle - i;
+				temp[k++] = a[j++];
+			}
+		}
+		while ( i < middle ) temp[k++] = a[i++];
+		while ( j < to ) temp[k++] = a[j++];
+		System.arraycopy( temp, from, a, from, to - from );
+		
+		return inversions;
+	}
+	
+	/**
+	 * Copies the grid into a board array, where the tile at (x, y) is element x + y * width,
+	 * as used by the searches that make their moves in place on a single array.
+	 *
+	 * @return The board array.
+	 */
+	public int[] toBoard()
+	{
+		int[] board = new int[width * height];
+
+		for ( int p = 0; p < board.length; p++ )
+		{
+			board[p] = grid[p % width][p / width];
+		}
+
+		return board;
+	}
+
 	/**
 	 * Returns the 2D array representing the puzzle grid.
 	 * 
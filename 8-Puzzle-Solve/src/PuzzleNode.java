@@ -12,15 +12,21 @@ import java.util.ArrayList;
  */
 public class PuzzleNode {
 	/**
-	 * The grid state the information contain within is regarding.
+	 * The grid state the information contain within is regarding, in packed form.
 	 */
-	private PuzzleGrid grid;
+	private PackedGrid state;
 	
 	/**
-	 * The heuristic used, specified by the search algorithm that created the object.
+	 * The heuristic used, specified by the search algorithm that created the object and
+	 * shared by every node of the search.
 	 */
 	private Heuristic heuristic;
 	
+	/**
+	 * The value of this node given by the heuristic, once determined.
+	 */
+	private float heuristicValue = 0.0f;
+	
 	/**
 	 * A list of children of the PuzzleGrid.
 	 * A child represents one legal move from the current state.
@@ -32,6 +38,23 @@ public class PuzzleNode {
 	 */
 	private PuzzleNode parent;
 	
+	/**
+	 * The cost of the path from the start state to this node (the number of moves made).
+	 */
+	private int pathCost = 0;
+	
+	/**
+	 * The direction the empty tile was moved in to create this node from its parent
+	 * (PackedGrid.UP, LEFT, RIGHT or DOWN), or -1 for a start node.
+	 */
+	private int move = -1;
+	
+	/**
+	 * The position of this node within the frontier holding it, maintained by the
+	 * Frontier implementation (-1 when not in a frontier).
+	 */
+	private int frontierIndex = -1;
+	
 	/**
 	 * Constructor for a PuzzleNode.
 	 * 
@@ -40,90 +63,58 @@ public class PuzzleNode {
 	 */
 	public PuzzleNode( PuzzleGrid grid, Heuristic h )
 	{
-		this.grid = grid;
+		this( new PackedGrid( grid ), h );
+	}
+	
+	/**
+	 * Constructor for a PuzzleNode from a packed grid state.
+	 * 
+	 * @param state	The packed grid state this node represents.
+	 * @param h		The heuristic that is being used by the search algorithm.
+	 */
+	public PuzzleNode( PackedGrid state, Heuristic h )
+	{
+		this.state = state;
 		this.heuristic = h;
 	}
 	
 	/**
 	 * Generates and returns a list of child nodes of the grid state, where a 
 	 * child node represents one legal move from the grid state.
+	 * <p>
+	 * The move that would undo the move this node was created by is not made, as it
+	 * only leads back to the parent, which is never cheaper to reach that way.
 	 * 
 	 * @return		An ArrayList of child nodes extending from the grid state.
 	 */
 	public ArrayList<PuzzleNode> createChildren()
 	{
 		PuzzleNode pn;
-		PuzzleGrid pg;
+		PackedGrid next;
 		
 		/*
-		 * Child Generation Procedure (next 4 blocks of code):
-		 * 1 - Copy this grid state into new object
-		 * 2 - Try to move the empty space (0) up / left / right / down
-		 * 3 - If possible (translateSpace returns true)... 
-		 * 		Create new PuzzleNode for the grid state, copying the current used heuristic using 
-		 * 		reflection.
-		 * 		Set the parent of the new PuzzleNode to this object
+		 * Child Generation Procedure:
+		 * 1 - Try to move the empty space (0) up / left / right / down, except back the way it came
+		 * 2 - If possible (move returns a new packed state)... 
+		 * 		Create new PuzzleNode for the grid state, sharing the heuristic used by this node
+		 * 		Set the parent of the new PuzzleNode to this object, one move further from the start
 		 * 		Add the new PuzzleNode to the list of Children for this object
-		 * 4 - If not possible then do nothing
+		 * 3 - If not possible then do nothing
 		 */
-
-		// Up
-		pg = new PuzzleGrid( grid );
-		if ( pg.translateSpace(0, -1) ) 
-		{ 
-			try {
-				pn = new PuzzleNode( pg, heuristic.getClass().newInstance() );
+		children = new ArrayList<PuzzleNode>( 4 ); // Don't add to the children of an earlier call
+		for ( int direction = PackedGrid.UP; direction <= PackedGrid.DOWN; direction++ )
+		{
+			// Moving in the opposite direction to the last move gives the parent again
+			if ( move >= 0 && direction == PackedGrid.DOWN - move ) continue;
+			
+			next = state.move( direction );
+			if ( next != null ) 
+			{ 
+				pn = new PuzzleNode( next, heuristic );
 				pn.setParent( this );
+				pn.setPathCost( pathCost + 1 );
+				pn.move = direction;
 				children.add( pn ); 
-			} catch (InstantiationException e) {
-				e.printStackTrace();
-			} catch (IllegalAccessException e) {
-				e.printStackTrace();
-			}
-		}
-
-		// Left
-		pg = new PuzzleGrid( grid );
-		if ( pg.translateSpace(-1, 0) ) 
-		{ 
-			try {
-				pn = new PuzzleNode( pg, heuristic.getClass().newInstance() );
-				pn.setParent( this );
-				children.add( pn ); 
-			} catch (InstantiationException e) {
-				e.printStackTrace();
-			} catch (IllegalAccessException e) {
-				e.printStackTrace();
-			}
-		}
-		
-		// Right
-		pg = new PuzzleGrid( grid );
-		if ( pg.translateSpace(1, 0) ) 
-		{ 
-			try {
-				pn = new PuzzleNode( pg, heuristic.getClass().newInstance() );
-				pn.setParent( this );
-				children.add( pn ); 
-			} catch (InstantiationException e) {
-				e.printStackTrace();
-			} catch (IllegalAccessException e) {
-				e.printStackTrace();
-			}
-		}
-				
-		// Down
-		pg = new PuzzleGrid( grid );
-		if ( pg.translateSpace(0, 1) ) // True if it is possible to move empty square
-		{ 
-			try {
-				pn = new PuzzleNode( pg, heuristic.getClass().newInstance() );
-				pn.setParent( this );
-				children.add( pn ); 
-			} catch (InstantiationException e) {
-				e.printStackTrace();
-			} catch (IllegalAccessException e) {
-				e.printStackTrace();
 			}
 		}
 		
@@ -131,16 +122,14 @@ public class PuzzleNode {
 	}
 	
 	/**
-	 * Calculates the value using the heuristic object based upon the
-	 * specified goal grid state.
-	 * 
-	 * @param goalState 	The goal state of the solution.
+	 * Calculates the value using the heuristic object, whose goal state must
+	 * already have been set (see Heuristic.setGoal()).
 	 */
-	public void determineHeuristic( PuzzleGrid goalState )
+	public void determineHeuristic()
 	{
 	    if ( heuristic != null )
 	    { 
-		heuristic.calculateHeuristic( this, goalState);
+		heuristicValue = heuristic.evaluate( this );
 	    }
 	}	
 	
@@ -153,12 +142,33 @@ public class PuzzleNode {
 	{
 	    if ( heuristic != null )
 	    {
-		return heuristic.getHeuristicValue();
+		return heuristicValue;
 	    } else {
 		return 9999.f;
 	    }
 	}
 	
+	/**
+	 * Sets the heuristic value without evaluating the heuristic, such as to copy the
+	 * value of another node for the same state reached by the same path.
+	 * 
+	 * @param value	The heuristic value.
+	 */
+	public void setHeuristicValue( float value )
+	{
+	    this.heuristicValue = value;
+	}
+	
+	/**
+	 * Returns the heuristic object attached to this node.
+	 * 
+	 * @return The heuristic used to score this node.
+	 */
+	public Heuristic getHeuristic()
+	{
+	    return heuristic;
+	}
+	
 	/**
 	 * Determine whether the grid state in this object is equal 
 	 * to (each tile is in the same position) the specified PuzzleNode pn.
@@ -168,7 +178,7 @@ public class PuzzleNode {
 	 */
 	public boolean equalTo( PuzzleNode pn )
 	{
-	    return grid.equalTo( pn.getGrid() );
+	    return state.equalTo( pn.getState() );
 	}
 	
 	/**
@@ -202,13 +212,74 @@ public class PuzzleNode {
 	}
 	
 	/**
-	 * Returns the puzzle grid state of this node.
+	 * Sets the cost of the path from the start state to this node.
+	 * 
+	 * @param cost	The number of moves from the start state.
+	 */
+	public void setPathCost( int cost )
+	{
+	    this.pathCost = cost;
+	}
+	
+	/**
+	 * Returns the cost of the path from the start state to this node.
+	 * 
+	 * @return	The number of moves from the start state.
+	 */
+	public int getPathCost()
+	{
+	    return pathCost;
+	}
+	
+	/**
+	 * Returns the direction the empty tile was moved in to create this node from its parent.
+	 * 
+	 * @return	PackedGrid.UP, LEFT, RIGHT or DOWN, or -1 if this node was not created by createChildren().
+	 */
+	public int getMove()
+	{
+	    return move;
+	}
+	
+	/**
+	 * Sets the direction the empty tile was moved in to create this node from its parent,
+	 * such as when the node is moved onto a cheaper path.
+	 * 
+	 * @param move	PackedGrid.UP, LEFT, RIGHT or DOWN, or -1 for a start node.
+	 */
+	public void setMove( int move )
+	{
+	    this.move = move;
+	}
+	
+	/**
+	 * Sets the position of this node within the frontier holding it.
+	 * 
+	 * @param index	The position of this node in the frontier.
+	 */
+	public void setFrontierIndex( int index )
+	{
+	    this.frontierIndex = index;
+	}
+	
+	/**
+	 * Returns the position of this node within the frontier holding it.
+	 * 
+	 * @return	The position of this node in the frontier, or -1 if not in a frontier.
+	 */
+	public int getFrontierIndex()
+	{
+	    return frontierIndex;
+	}
+	
+	/**
+	 * Returns the puzzle grid state of this node, unpacked into a new PuzzleGrid.
 	 * 
 	 * @return	The puzzle grid state of this node.
 	 */
 	public PuzzleGrid getGrid()
 	{
-	    return grid;
+	    return state.toPuzzleGrid();
 	}
 	
 	/**
@@ -218,7 +289,17 @@ public class PuzzleNode {
 	 */
 	public void setGrid( PuzzleGrid grid )
 	{
-	    this.grid = grid;
+	    this.state = new PackedGrid( grid );
+	}
+	
+	/**
+	 * Returns the packed grid state of this node.
+	 * 
+	 * @return	The packed grid state of this node.
+	 */
+	public PackedGrid getState()
+	{
+	    return state;
 	}
 	
 }
@@ -0,0 +1,165 @@
+
+
+/**
+ * The limits on the work a single search may do before it gives up: the number of nodes
+ * it expands, an estimate of the memory its tables take, and the time it runs for. A
+ * search that goes over any of them stops with the status SearchStatus.BUDGET_EXCEEDED,
+ * returning the path to the most promising state it reached (see SearchStats.getBestPath())
+ * rather than running until the JVM runs out of memory.
+ * <p>
+ * The searches check their budget in their main loop with exceeded(). The node limit is
+ * checked for every node, but reading the clock and working out the memory used are only
+ * done every CHECK_INTERVAL nodes, so an unlimited budget costs a comparison per node.
+ * The memory used is estimated from the number of states each search holds, using the
+ * sizes below, as measuring it exactly would take far longer than the search.
+ * <p>
+ * A budget holds no state of its own, so it can be shared by every search and thread.
+ *
+ * @author Spencer Newton
+ *
+ */
+public final class SearchBudget {
+	/**
+	 * The names of the limits, as returned by exceeded().
+	 */
+	public static final String NODES = "nodes";
+	public static final String MEMORY = "memory";
+	public static final String TIME = "time";
+
+	/**
+	 * The budget with no limits, used by every search unless another is set.
+	 */
+	public static final SearchBudget UNLIMITED = new SearchBudget( Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE );
+
+	/**
+	 * The number of nodes between checks of the memory and time limits (a power of 2).
+	 */
+	public static final int CHECK_INTERVAL = 1024;
+
+	/**
+	 * The estimated size of a PackedGrid held by a search, with the reference to it.
+	 */
+	public static final int STATE_BYTES = 48;
+
+	/**
+	 * The estimated size of a state recorded in a ParentTable (two longs and a byte per slot,
+	 * with the table between a quarter and half full).
+	 */
+	public static final int TABLE_ENTRY_BYTES = 50;
+
+	/**
+	 * The estimated size of a PuzzleNode held by a search, with its state, its (empty) list
+	 * of children and the hash map entry indexing it.
+	 */
+	public static final int NODE_BYTES = 200;
+
+	/**
+	 * The most nodes a search may expand.
+	 */
+	private final long maxNodes;
+
+	/**
+	 * The most memory, in bytes, a search's tables may be estimated to take.
+	 */
+	private final long maxBytes;
+
+	/**
+	 * The longest time, in milliseconds, a search may run for.
+	 */
+	private final long maxMillis;
+
+	/**
+	 * Constructor for a budget. Long.MAX_VALUE can be given for any limit that isn't needed.
+	 *
+	 * @param maxNodes	The most nodes a search may expand.
+	 * @param maxBytes	The most memory, in bytes, a search's tables may be estimated to take.
+	 * @param maxMillis	The longest time, in milliseconds, a search may run for.
+	 */
+	public SearchBudget( long maxNodes, long maxBytes, long maxMillis )
+	{
+		if ( maxNodes < 0 || maxBytes < 0 || maxMillis < 0 ) throw new IllegalArgumentException( "Budget limits can't be negative" );
+
+		this.maxNodes = maxNodes;
+		this.maxBytes = maxBytes;
+		this.maxMillis = maxMillis;
+	}
+
+	/**
+	 * Returns the time a search starting now must stop by, to be passed to exceeded().
+	 *
+	 * @return The deadline, as a value of System.nanoTime().
+	 */
+	public long deadline()
+	{
+		long now = System.nanoTime();
+
+		// Saturate rather than overflow for an unlimited (or very long) time limit
+		if ( maxMillis >= ( Long.MAX_VALUE - now ) / 1000000 ) return Long.MAX_VALUE;
+
+		return now + maxMillis * 1000000;
+	}
+
+	/**
+	 * Determines whether a search has gone over its budget. Only the node limit is checked
+	 * unless 'nodes' is a multiple of CHECK_INTERVAL, so this must be called for each node
+	 * expanded for the other limits to be checked.
+	 *
+	 * @param nodes		The number of nodes expanded so far.
+	 * @param bytes		The estimated memory taken by the search's tables.
+	 * @param deadline	The time the search must stop by, from deadline().
+	 * @return The name of the limit that has been gone over (NODES, MEMORY or TIME), or null if
+	 * 		   the search is within its budget.
+	 */
+	public String exceeded( long nodes, long bytes, long deadline )
+	{
+		if ( nodes >= maxNodes ) return NODES;
+
+		if ( ( nodes & ( CHECK_INTERVAL - 1 ) ) != 0 ) return null;
+
+		if ( bytes >= maxBytes ) return MEMORY;
+		if ( deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0 ) return TIME;
+
+		return null;
+	}
+
+	/**
+	 * Determine whether this budget has no limits.
+	 *
+	 * @return True if every limit is Long.MAX_VALUE, false if not.
+	 */
+	public boolean isUnlimited()
+	{
+		return maxNodes == Long.MAX_VALUE && maxBytes == Long.MAX_VALUE && maxMillis == Long.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the most nodes a search may expand.
+	 *
+	 * @return The node limit, or Long.MAX_VALUE if there is no limit.
+	 */
+	public long getMaxNodes()
+	{
+		return maxNodes;
+	}
+
+	/**
+	 * Returns the most memory a search's tables may be estimated to take.
+	 *
+	 * @return The memory limit in bytes, or Long.MAX_VALUE if there is no limit.
+	 */
+	public long getMaxBytes()
+	{
+		return maxBytes;
+	}
+
+	/**
+	 * Returns the longest time a search may run for.
+	 *
+	 * @return The time limit in milliseconds, or Long.MAX_VALUE if there is no limit.
+	 */
+	public long getMaxMillis()
+	{
+		return maxMillis;
+	}
+
+}
@@ -0,0 +1,74 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+
+/**
+ * A Java Flight Recorder event for a search made by a SolutionFinder, committed by
+ * SearchStats.finish() with the counters and phase timings of the search. The event lasts
+ * for the run time of the search, so the searches show up on the recording's timeline
+ * next to garbage collections and other events. Recorded by running with, for example:
+ * <pre>
+ * java -XX:StartFlightRecording=filename=search.jfr Solve ...
+ * </pre>
+ *
+ * @author Spencer Newton
+ *
+ */
+@Name( "puzzle.Search" )
+@Label( "Puzzle Search" )
+@Category( "8-Puzzle Solver" )
+@Description( "A search for the solution of a puzzle" )
+public class SearchEvent extends Event {
+	@Label( "Algorithm" )
+	String algorithm;
+
+	@Label( "Status" )
+	String status;
+
+	@Label( "Exceeded Limit" )
+	String exceededLimit;
+
+	@Label( "Solution Length" )
+	int solutionLength;
+
+	@Label( "Nodes Expanded" )
+	long nodesExpanded;
+
+	@Label( "Nodes Generated" )
+	long nodesGenerated;
+
+	@Label( "Duplicates" )
+	long duplicates;
+
+	@Label( "Closed Duplicates" )
+	long duplicatesClosed;
+
+	@Label( "Open Duplicates" )
+	long duplicatesOpen;
+
+	@Label( "Peak Frontier" )
+	long peakFrontier;
+
+	@Label( "Heuristic Evaluations" )
+	long heuristicEvaluations;
+
+	@Label( "Expansion Time" )
+	@Timespan( Timespan.NANOSECONDS )
+	long expansionTime;
+
+	@Label( "Duplicate Checking Time" )
+	@Timespan( Timespan.NANOSECONDS )
+	long duplicatesTime;
+
+	@Label( "Heuristic Time" )
+	@Timespan( Timespan.NANOSECONDS )
+	long heuristicTime;
+
+	@Label( "Frontier Time" )
+	@Timespan( Timespan.NANOSECONDS )
+	long frontierTime;
+}
@@ -0,0 +1,50 @@
+
+/**
+ * An interface for receiving the events of a search as it runs, such as the states
+ * being expanded and the children being opened.
+ * <p>
+ * The searches report every event to their listener, which by default is an
+ * EmptySearchListener that ignores them, so that a search does no printing (or
+ * building of strings to print) unless a listener such as a TraceSearchListener
+ * is set (see SolutionFinder.setSearchListener()).
+ * 
+ * @author Spencer Newton
+ *
+ */
+public interface SearchListener {
+
+	/**
+	 * Called once the start state has been opened, before any node is expanded.
+	 * 
+	 * @param valueName	The name of the value the search orders its nodes by ("f" or "h"),
+	 * 					or null if the search does not order its nodes by a value.
+	 */
+	public void searchStarted( String valueName );
+	
+	/**
+	 * Called when a state is taken from the open states to be searched.
+	 * 
+	 * @param state	The state being expanded.
+	 * @param value	The value the state is ordered by, if the search orders its states by a value.
+	 * @param count	The number of states expanded so far, including this one.
+	 */
+	public void nodeExpanded( PackedGrid state, float value, int count );
+	
+	/**
+	 * Called when a child is opened for the first time and added to the open states.
+	 * 
+	 * @param state	The state of the child that was opened.
+	 * @param value	The value the child is ordered by, if the search orders its states by a value.
+	 */
+	public void childOpened( PackedGrid state, float value );
+	
+	/**
+	 * Called when a child's state has already been opened or searched, so the child is not opened.
+	 * 
+	 * @param state		The state of the child.
+	 * @param reopened	True if the child was a cheaper path to the state, which was
+	 * 					moved onto the child's path.
+	 */
+	public void childSeen( PackedGrid state, boolean reopened );
+	
+}
@@ -0,0 +1,536 @@
+import java.util.ArrayList;
+
+
+/**
+ * The result of a call to SolutionFinder.findSolution(): the outcome of the search, the
+ * solution if one was found, and counters and timings describing the work the search did.
+ * <p>
+ * A search creates a SearchStats as it starts and counts its work in it as it goes, so
+ * the counters are only ever written by the thread making the search. The following are
+ * counted, by the searches for which they mean something:
+ * <ul>
+ * <li>nodes expanded - the states taken from the frontier and searched</li>
+ * <li>nodes generated - the children created by moving the empty tile</li>
+ * <li>duplicates - the children whose state had already been reached, split into those
+ * already searched (closed) and those still waiting to be searched (open) by the searches
+ * that can tell them apart</li>
+ * <li>peak frontier - the most states waiting to be searched at once</li>
+ * <li>heuristic evaluations - the estimates of the distance to the goal calculated</li>
+ * </ul>
+ * The time spent in each phase of the search (creating children, checking for duplicates,
+ * evaluating the heuristic and using the frontier) is only measured when asked for (see
+ * SolutionFinder.setPhaseTiming()), as reading the clock several times for every node slows
+ * the search down noticeably. Phases are timed with lap(), which adds the time since the
+ * last lap to a phase and starts the next one.
+ * <p>
+ * Once finished, the stats can be written as a line of JSON (see toJson() and SearchStatsLog),
+ * and a SearchEvent is committed for Java Flight Recorder, which costs next to nothing
+ * unless a recording is running.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class SearchStats {
+	/**
+	 * The phases of a search that can be timed (see lap()).
+	 */
+	public static final int EXPANSION = 0;
+	public static final int DUPLICATES = 1;
+	public static final int HEURISTIC = 2;
+	public static final int FRONTIER = 3;
+
+	/**
+	 * The name of each phase, as written by toJson().
+	 */
+	private static final String[] PHASE_NAMES = { "expansion", "duplicates", "heuristic", "frontier" };
+
+	/**
+	 * The name of the search algorithm, such as the class name of the SolutionFinder.
+	 */
+	private final String algorithm;
+
+	/**
+	 * Whether the time spent in each phase is measured.
+	 */
+	private final boolean phaseTiming;
+
+	/**
+	 * The outcome of the search, and the solution if one was found.
+	 */
+	private SearchStatus status = SearchStatus.NOT_FOUND;
+	private ArrayList<PuzzleGrid> solution;
+
+	/**
+	 * The limit of the search's budget that stopped it, and the path to the most promising
+	 * state it had reached, if it was stopped.
+	 */
+	private String exceededLimit;
+	private ArrayList<PuzzleGrid> bestPath;
+
+	// Counters
+	private long nodesExpanded = 0;
+	private long nodesGenerated = 0;
+	private long duplicates = 0;
+	private long duplicatesClosed = 0;
+	private long duplicatesOpen = 0;
+	private long peakFrontier = 0;
+	private long heuristicEvaluations = 0;
+
+	// Timings, in nanoseconds
+	private long startTime;
+	private long runTime = 0;
+	private long[] phaseTimes = new long[ PHASE_NAMES.length ];
+
+	/**
+	 * The Flight Recorder event of the search, begun by start().
+	 */
+	private SearchEvent event;
+
+	/**
+	 * Constructor for the stats of a new search.
+	 *
+	 * @param algorithm		The name of the search algorithm.
+	 * @param phaseTiming	Whether to measure the time spent in each phase of the search.
+	 */
+	public SearchStats( String algorithm, boolean phaseTiming )
+	{
+		this.algorithm = algorithm;
+		this.phaseTiming = phaseTiming;
+		startTime = System.nanoTime();
+	}
+
+	/**
+	 * Marks the start of the search itself, once any tables it needs have been built, from
+	 * which its run time is measured.
+	 */
+	public void start()
+	{
+		event = new SearchEvent();
+		event.begin();
+		startTime = System.nanoTime();
+	}
+
+	/**
+	 * Records the outcome of the search and its run time, and commits its Flight Recorder event.
+	 *
+	 * @param status	The outcome of the search.
+	 * @param solution	The solution, or null if none was found.
+	 * @return These stats, so that a search can end with "return stats.finish( ... );".
+	 */
+	public SearchStats finish( SearchStatus status, ArrayList<PuzzleGrid> solution )
+	{
+		runTime = System.nanoTime() - startTime;
+		this.status = status;
+		this.solution = solution;
+
+		if ( event != null && event.shouldCommit() )
+		{
+			event.algorithm = algorithm;
+			event.status = status.name();
+			event.exceededLimit = exceededLimit;
+			event.solutionLength = getSolutionLength();
+			event.nodesExpanded = nodesExpanded;
+			event.nodesGenerated = nodesGenerated;
+			event.duplicatesClosed = duplicatesClosed;
+			event.duplicatesOpen = duplicatesOpen;
+			event.duplicates = duplicates;
+			event.peakFrontier = peakFrontier;
+			event.heuristicEvaluations = heuristicEvaluations;
+			event.expansionTime = phaseTimes[EXPANSION];
+			event.duplicatesTime = phaseTimes[DUPLICATES];
+			event.heuristicTime = phaseTimes[HEURISTIC];
+			event.frontierTime = phaseTimes[FRONTIER];
+			event.commit();
+		}
+
+		return this;
+	}
+
+	/**
+	 * Records that the search was stopped by its budget, with its run time, and commits its
+	 * Flight Recorder event.
+	 *
+	 * @param limit		The limit that was gone over (SearchBudget.NODES, MEMORY or TIME).
+	 * @param bestPath	The path from the start state to the most promising state reached, or null.
+	 * @return These stats.
+	 */
+	public SearchStats finishOverBudget( String limit, ArrayList<PuzzleGrid> bestPath )
+	{
+		exceededLimit = limit;
+		this.bestPath = bestPath;
+		return finish( SearchStatus.BUDGET_EXCEEDED, null );
+	}
+
+	/**
+	 * Counts a node expanded.
+	 */
+	public void nodeExpanded()
+	{
+		nodesExpanded++;
+	}
+
+	/**
+	 * Counts a number of nodes expanded at once, for searches that keep their own count.
+	 *
+	 * @param count	The number of nodes expanded.
+	 */
+	public void addNodesExpanded( long count )
+	{
+		nodesExpanded += count;
+	}
+
+	/**
+	 * Counts a child generated.
+	 */
+	public void nodeGenerated()
+	{
+		nodesGenerated++;
+	}
+
+	/**
+	 * Counts a number of children generated at once.
+	 *
+	 * @param count	The number of children generated.
+	 */
+	public void addNodesGenerated( long count )
+	{
+		nodesGenerated += count;
+	}
+
+	/**
+	 * Counts a child whose state had already been reached, by a search that doesn't know
+	 * whether the state has been searched yet.
+	 */
+	public void duplicate()
+	{
+		duplicates++;
+	}
+
+	/**
+	 * Counts a child whose state had already been searched.
+	 */
+	public void duplicateClosed()
+	{
+		duplicates++;
+		duplicatesClosed++;
+	}
+
+	/**
+	 * Counts a child whose state is open (reached, but not yet searched).
+	 */
+	public void duplicateOpen()
+	{
+		duplicates++;
+		duplicatesOpen++;
+	}
+
+	/**
+	 * Counts a number of children whose state had already been searched.
+	 *
+	 * @param count	The number of duplicates.
+	 */
+	public void addDuplicatesClosed( long count )
+	{
+		duplicates += count;
+		duplicatesClosed += count;
+	}
+
+	/**
+	 * Counts a number of children whose state is open.
+	 *
+	 * @param count	The number of duplicates.
+	 */
+	public void addDuplicatesOpen( long count )
+	{
+		duplicates += count;
+		duplicatesOpen += count;
+	}
+
+	/**
+	 * Records the size of the frontier, keeping the largest size seen.
+	 *
+	 * @param size	The number of open states.
+	 */
+	public void frontierSize( long size )
+	{
+		if ( size > peakFrontier ) peakFrontier = size;
+	}
+
+	/**
+	 * Counts a heuristic evaluation.
+	 */
+	public void heuristicEvaluated()
+	{
+		heuristicEvaluations++;
+	}
+
+	/**
+	 * Counts a number of heuristic evaluations at once.
+	 *
+	 * @param count	The number of evaluations.
+	 */
+	public void addHeuristicEvaluations( long count )
+	{
+		heuristicEvaluations += count;
+	}
+
+	/**
+	 * Returns the time to start timing a phase from.
+	 *
+	 * @return The current time in nanoseconds, or 0 if phases are not timed.
+	 */
+	public long clock()
+	{
+		return phaseTiming ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Adds the time since the last lap (or clock()) to a phase, and starts the next lap.
+	 *
+	 * @param phase	The phase that has just ended (EXPANSION, DUPLICATES, HEURISTIC or FRONTIER).
+	 * @param since	The time the phase started, as returned by clock() or lap().
+	 * @return The current time, from which the next phase is timed, or 0 if phases are not timed.
+	 */
+	public long lap( int phase, long since )
+	{
+		if ( !phaseTiming ) return 0;
+
+		long now = System.nanoTime();
+		phaseTimes[phase] += now - since;
+		return now;
+	}
+
+	/**
+	 * Adds the time spent in each phase by another search's stats, for searches that time
+	 * each of their threads separately.
+	 *
+	 * @param other	The stats whose phase times are added.
+	 */
+	public void addPhaseTimes( SearchStats other )
+	{
+		for ( int phase = 0; phase < phaseTimes.length; phase++ ) phaseTimes[phase] += other.phaseTimes[phase];
+	}
+
+	/**
+	 * Returns the name of the search algorithm.
+	 *
+	 * @return The name of the algorithm.
+	 */
+	public String getAlgorithm()
+	{
+		return algorithm;
+	}
+
+	/**
+	 * Returns the outcome of the search.
+	 *
+	 * @return The outcome, including whether the problem was found to be unsolvable
+	 * 		   before any search was made.
+	 */
+	public SearchStatus getStatus()
+	{
+		return status;
+	}
+
+	/**
+	 * Returns the solution found by the search.
+	 *
+	 * @return The list of states from the start state to the goal state, or null if no
+	 * 		   solution was found (see getStatus()).
+	 */
+	public ArrayList<PuzzleGrid> getSolution()
+	{
+		return solution;
+	}
+
+	/**
+	 * Returns the limit of the search's budget that stopped it.
+	 *
+	 * @return SearchBudget.NODES, MEMORY or TIME, or null if the search wasn't stopped.
+	 */
+	public String getExceededLimit()
+	{
+		return exceededLimit;
+	}
+
+	/**
+	 * Returns the path to the most promising state reached by a search stopped by its budget:
+	 * the state estimated to be closest to the goal by searches with a heuristic, or the last
+	 * state searched by those without one.
+	 *
+	 * @return The list of states from the start state, or null if the search wasn't stopped.
+	 */
+	public ArrayList<PuzzleGrid> getBestPath()
+	{
+		return bestPath;
+	}
+
+	/**
+	 * Returns the number of moves in the solution.
+	 *
+	 * @return The number of moves, or -1 if no solution was found.
+	 */
+	public int getSolutionLength()
+	{
+		return solution != null ? solution.size() - 1 : -1;
+	}
+
+	/**
+	 * Returns the number of nodes expanded (searched) by the search.
+	 *
+	 * @return The number of nodes expanded.
+	 */
+	public long getNodesExpanded()
+	{
+		return nodesExpanded;
+	}
+
+	/**
+	 * Returns the number of children generated by expanding nodes.
+	 *
+	 * @return The number of children generated.
+	 */
+	public long getNodesGenerated()
+	{
+		return nodesGenerated;
+	}
+
+	/**
+	 * Returns the number of children whose state had already been reached, whether closed,
+	 * open or not known.
+	 *
+	 * @return The number of duplicates.
+	 */
+	public long getDuplicates()
+	{
+		return duplicates;
+	}
+
+	/**
+	 * Returns the number of children whose state had already been searched.
+	 *
+	 * @return The number of closed duplicates.
+	 */
+	public long getDuplicatesClosed()
+	{
+		return duplicatesClosed;
+	}
+
+	/**
+	 * Returns the number of children whose state was open (reached, but not yet searched).
+	 *
+	 * @return The number of open duplicates.
+	 */
+	public long getDuplicatesOpen()
+	{
+		return duplicatesOpen;
+	}
+
+	/**
+	 * Returns the largest size the frontier reached during the search.
+	 *
+	 * @return The largest number of open states.
+	 */
+	public long getPeakFrontier()
+	{
+		return peakFrontier;
+	}
+
+	/**
+	 * Returns the number of times the heuristic was evaluated.
+	 *
+	 * @return The number of heuristic evaluations.
+	 */
+	public long getHeuristicEvaluations()
+	{
+		return heuristicEvaluations;
+	}
+
+	/**
+	 * Returns the run time of the search.
+	 *
+	 * @return The time from start() to finish(), in nanoseconds.
+	 */
+	public long getRunTime()
+	{
+		return runTime;
+	}
+
+	/**
+	 * Returns the time spent in a phase of the search.
+	 *
+	 * @param phase	EXPANSION, DUPLICATES, HEURISTIC or FRONTIER.
+	 * @return The time in nanoseconds, or 0 if phases were not timed.
+	 */
+	public long getPhaseTime( int phase )
+	{
+		return phaseTimes[phase];
+	}
+
+	/**
+	 * Determine whether the time spent in each phase was measured.
+	 *
+	 * @return True if the phases were timed, false if not.
+	 */
+	public boolean isPhaseTimed()
+	{
+		return phaseTiming;
+	}
+
+	/**
+	 * Writes the stats as a single line of JSON, such as for a JSON lines file.
+	 *
+	 * @param puzzle	The name of the puzzle solved, or null to leave it out.
+	 * @return The JSON object, without a line break.
+	 */
+	public String toJson( String puzzle )
+	{
+		StringBuilder json = new StringBuilder( "{" );
+
+		if ( puzzle != null ) json.append( "\"puzzle\":" ).append( quote( puzzle ) ).append( ',' );
+		json.append( "\"algorithm\":" ).append( quote( algorithm ) );
+		json.append( ",\"status\":\"" ).append( status ).append( '"' );
+		json.append( ",\"moves\":" ).append( getSolutionLength() );
+		if ( exceededLimit != null ) json.append( ",\"exceededLimit\":\"" ).append( exceededLimit ).append( '"' );
+		json.append( ",\"nodesExpanded\":" ).append( nodesExpanded );
+		json.append( ",\"nodesGenerated\":" ).append( nodesGenerated );
+		json.append( ",\"duplicates\":" ).append( duplicates );
+		json.append( ",\"duplicatesClosed\":" ).append( duplicatesClosed );
+		json.append( ",\"duplicatesOpen\":" ).append( duplicatesOpen );
+		json.append( ",\"peakFrontier\":" ).append( peakFrontier );
+		json.append( ",\"heuristicEvaluations\":" ).append( heuristicEvaluations );
+		json.append( ",\"runNanos\":" ).append( runTime );
+
+		if ( phaseTiming )
+		{
+			for ( int phase = 0; phase < PHASE_NAMES.length; phase++ )
+			{
+				json.append( ",\"" ).append( PHASE_NAMES[phase] ).append( "Nanos\":" ).append( phaseTimes[phase] );
+			}
+		}
+
+		return json.append( '}' ).toString();
+	}
+
+	/**
+	 * Writes a string as a JSON string, escaping any quotes, backslashes and control characters.
+	 *
+	 * @param s	The string.
+	 * @return The quoted string.
+	 */
+	private static String quote( String s )
+	{
+		StringBuilder quoted = new StringBuilder( "\"" );
+
+		for ( int i = 0; i < s.length(); i++ )
+		{
+			char c = s.charAt(i);
+			if ( c == '"' || c == '\\' ) quoted.append( '\\' ).append( c );
+			else if ( c < 0x20 ) quoted.append( String.format( "\\u%04x", (int) c ) );
+			else quoted.append( c );
+		}
+
+		return quoted.append( '"' ).toString();
+	}
+
+}
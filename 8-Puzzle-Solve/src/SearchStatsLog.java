@@ -0,0 +1,56 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+
+/**
+ * Writes the stats of each search to a file as JSON lines: one JSON object per line, as
+ * written by SearchStats.toJson(), so the file can be appended to by several runs and read
+ * a line at a time by other tools. Each line is flushed as it is written, so the lines of a
+ * run are kept even if it is stopped part way through. Can be shared by several threads.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class SearchStatsLog {
+	/**
+	 * The file being written to.
+	 */
+	private BufferedWriter writer;
+
+	/**
+	 * Constructor opening a file to append lines to, creating it if it doesn't exist.
+	 *
+	 * @param filename	The name of the file.
+	 * @throws IOException If the file can't be opened.
+	 */
+	public SearchStatsLog( String filename ) throws IOException
+	{
+		writer = new BufferedWriter( new FileWriter( filename, true ) );
+	}
+
+	/**
+	 * Writes the stats of a search as a line of the file.
+	 *
+	 * @param puzzle	The name of the puzzle solved, or null to leave it out.
+	 * @param stats		The stats of the search.
+	 * @throws IOException If the line can't be written.
+	 */
+	public synchronized void write( String puzzle, SearchStats stats ) throws IOException
+	{
+		writer.write( stats.toJson( puzzle ) );
+		writer.newLine();
+		writer.flush();
+	}
+
+	/**
+	 * Closes the file.
+	 *
+	 * @throws IOException If the file can't be closed.
+	 */
+	public synchronized void close() throws IOException
+	{
+		writer.close();
+	}
+
+}
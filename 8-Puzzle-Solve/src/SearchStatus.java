@@ -0,0 +1,28 @@
+
+/**
+ * The outcome of the last search made by a SolutionFinder.
+ * 
+ * @author Spencer Newton
+ *
+ */
+public enum SearchStatus {
+	/**
+	 * A solution was found.
+	 */
+	SOLVED,
+	
+	/**
+	 * The search ended without finding a solution.
+	 */
+	NOT_FOUND,
+	
+	/**
+	 * The goal state cannot be reached from the start state, so no search was made.
+	 */
+	UNSOLVABLE,
+	
+	/**
+	 * The search was stopped by its SearchBudget before a solution was found.
+	 */
+	BUDGET_EXCEEDED
+}
@@ -1,8 +1,11 @@
-import java.util.ArrayList;
 
 
 /**
  * An interface used for the implementation of search algorithms
+ * <p>
+ * A search object can be used for any number of searches, and by several threads at
+ * once: the state of each search is kept per thread (and reused by the thread's next
+ * search), so printSearchData() describes the last search made on the calling thread.
  * 
  * @author Spencer Newton
  *
@@ -14,14 +17,42 @@ public interface SolutionFinder {
 	 * 
 	 * @param startState The initial state of the problem
 	 * @param goalState The goal state of the problem
-	 * @return The solution to the problem, in the form of a list on sequential states 
-	 * 		   that represent a number of moves to get from the initial state to the goal state.
+	 * @return The result of the search: its outcome, the solution (a list of sequential states 
+	 * 		   that represent a number of moves to get from the initial state to the goal state,
+	 * 		   or null if there is no solution) and the counts and timings of the search's work.
 	 */
-	public ArrayList<PuzzleGrid> findSolution( PuzzleGrid startState, PuzzleGrid goalState );
+	public SearchStats findSolution( PuzzleGrid startState, PuzzleGrid goalState );
 	
 	/**
-	 * Prints to the console data from the search, specifically the number of nodes
-	 * explored and the time taken to do the search.
+	 * Sets the listener that is told of the events of each search, such as the nodes
+	 * expanded. By default the events are ignored, so nothing is printed during a search.
+	 * The listener is shared by every thread searching with this object.
+	 * 
+	 * @param listener The listener, such as a TraceSearchListener to print the search.
+	 */
+	public void setSearchListener( SearchListener listener );
+	
+	/**
+	 * Sets whether the time spent in each phase of each search (such as evaluating the
+	 * heuristic) is measured and included in its SearchStats. Off by default, as reading
+	 * the clock for every node slows the search down.
+	 * 
+	 * @param phaseTiming True to time each phase, false to only count the work done.
+	 */
+	public void setPhaseTiming( boolean phaseTiming );
+	
+	/**
+	 * Sets the limits on the nodes, memory and time each search may use. A search that goes
+	 * over its budget stops with the status SearchStatus.BUDGET_EXCEEDED and the path to the
+	 * most promising state it reached. By default searches are unlimited.
+	 * 
+	 * @param budget The budget, such as SearchBudget.UNLIMITED.
+	 */
+	public void setSearchBudget( SearchBudget budget );
+	
+	/**
+	 * Prints to the console data from the last search on the calling thread, specifically
+	 * the number of nodes explored and the time taken to do the search.
 	 */
 	public void printSearchData();
 }
@@ -0,0 +1,26 @@
+import java.util.ArrayList;
+
+
+/**
+ * An interface for receiving each solution of an anytime search as soon as it is found,
+ * before the search has finished improving on it (see AnytimeAStarSearch).
+ * <p>
+ * The listener is called on the thread running the search, so it should return quickly
+ * (such as by handing the solution to another thread) to leave the search its time.
+ *
+ * @author Spencer Newton
+ *
+ */
+public interface SolutionListener {
+
+	/**
+	 * Called when the search finds a solution shorter than any it has found before.
+	 *
+	 * @param solution	The states of the solution, from the start state to the goal state.
+	 * @param bound		The most times longer than the shortest solution this one can be
+	 * 					(1 once it is known to be the shortest).
+	 * @param time		The time since the search started, in nanoseconds.
+	 */
+	public void solutionImproved( ArrayList<PuzzleGrid> solution, float bound, long time );
+
+}
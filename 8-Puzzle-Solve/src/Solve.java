@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.util.ArrayList;
 
 
@@ -9,20 +10,75 @@ import java.util.ArrayList;
  */
 
 public class Solve {
+	/**
+	 * The message printed when the program is run with the wrong arguments
+	 */
+	private static final String USAGE = "Usage: java Solve start.txt goal.txt algorithm [-q] [-h heuristic] [-stats stats.jsonl] [-timing]"
+			+ " [-nodes n] [-memory mb] [-time ms] [-depth moves] [pattern files]";
+	
 	/**
 	 * The search algorithm object
 	 */
 	private SolutionFinder search;
 	
+	/**
+	 * The limits on the work of the search
+	 */
+	private SearchBudget budget = SearchBudget.UNLIMITED;
+	
+	/**
+	 * The greatest depth searched by the dfs and dfs-fsm algorithms, or -1 to deepen until the goal is found
+	 */
+	private int maxDepth = -1;
+	
 	/**
 	 * Entry method of program.
 	 * 
 	 * @param args Arguments from program execution
 	 */
 	public static void main(String[] args) {		
+		if ( args.length < 3 )
+		{
+			System.out.println( USAGE );
+			return;
+		}
+		
 		Solve solver = new Solve();
 		
-		solver.Run(args[0], args[1], args[2]);			
+		// Any further arguments are pattern database files, -q to turn off the trace of the search,
+		// -h and the name of the heuristic used by astar, -stats and a file to append the stats of
+		// the search to as a JSON line, -timing to time each phase of the search, -nodes, -memory
+		// (in megabytes) and -time (in milliseconds) to limit the search, or -depth to limit the
+		// number of moves searched by dfs and dfs-fsm
+		ArrayList<String> patternFilenames = new ArrayList<String>();
+		String heuristicName = null;
+		String statsFilename = null;
+		boolean trace = true, phaseTiming = false;
+		long maxNodes = Long.MAX_VALUE, maxBytes = Long.MAX_VALUE, maxMillis = Long.MAX_VALUE;
+		int maxDepth = -1;
+		for ( int i = 3; i < args.length; i++ )
+		{
+			if ( args[i].equals( "-q" ) ) trace = false;
+			else if ( args[i].equals( "-h" ) && i + 1 < args.length ) heuristicName = args[++i];
+			else if ( args[i].equals( "-stats" ) && i + 1 < args.length ) statsFilename = args[++i];
+			else if ( args[i].equals( "-timing" ) ) phaseTiming = true;
+			else if ( args[i].equals( "-nodes" ) && i + 1 < args.length ) maxNodes = Long.parseLong( args[++i] );
+			else if ( args[i].equals( "-memory" ) && i + 1 < args.length ) maxBytes = Long.parseLong( args[++i] ) * 1024 * 1024;
+			else if ( args[i].equals( "-time" ) && i + 1 < args.length ) maxMillis = Long.parseLong( args[++i] );
+			else if ( args[i].equals( "-depth" ) && i + 1 < args.length ) maxDepth = Integer.parseInt( args[++i] );
+			else if ( !args[i].startsWith( "-" ) ) patternFilenames.add( args[i] );
+			else
+			{
+				// An unknown option, or an option missing its value
+				System.out.println( USAGE );
+				return;
+			}
+		}
+		
+		solver.setSearchBudget( new SearchBudget( maxNodes, maxBytes, maxMillis ) );
+		solver.setMaxDepth( maxDepth );
+		solver.Run(args[0], args[1], args[2], patternFilenames.toArray( new String[0] ), heuristicName, trace,
+				statsFilename, phaseTiming);			
 	}
 	
 	/**
@@ -30,6 +86,26 @@ public class Solve {
 	 */
 	public Solve() { }
 	
+	/**
+	 * Sets the limits on the nodes, memory and time of the searches run (see SearchBudget).
+	 * 
+	 * @param budget	The budget
+	 */
+	public void setSearchBudget( SearchBudget budget )
+	{
+		this.budget = budget;
+	}
+	
+	/**
+	 * Sets the greatest number of moves searched by the dfs and dfs-fsm algorithms (see DepthFirstSearch).
+	 * 
+	 * @param maxDepth	The depth limit, or -1 to deepen until the goal is found
+	 */
+	public void setMaxDepth( int maxDepth )
+	{
+		this.maxDepth = maxDepth;
+	}
+	
 	/**
 	 * Initiates search and prints data regarding it to the screen.
 	 * <p>
@@ -42,6 +118,63 @@ public class Solve {
 	 * @param searchAlgorithm	A code specifying the search algorithm to be used
 	 */
 	public void Run( String startFilename, String goalFilename, String searchAlgorithm )
+	{
+		Run( startFilename, goalFilename, searchAlgorithm, new String[0], true );
+	}
+	
+	/**
+	 * Initiates search using pattern databases and prints data regarding it to the screen.
+	 * <p>
+	 * The pattern databases are used as the heuristic of the astar and idastar algorithms, 
+	 * and ignored by the others, except for the table algorithm which instead takes a single
+	 * distance table file (see DistanceTableGenerator).
+	 * 
+	 * @param startFilename	The file containing the start state of the puzzle
+	 * @param goalFilename	The file containing the goal state of the puzzle
+	 * @param searchAlgorithm	A code specifying the search algorithm to be used
+	 * @param patternFilenames	The files containing disjoint pattern databases (see PatternDatabaseGenerator)
+	 * @param trace	Whether to print a trace of every node searched (see TraceSearchListener)
+	 */
+	public void Run( String startFilename, String goalFilename, String searchAlgorithm, String[] patternFilenames, boolean trace )
+	{
+		Run( startFilename, goalFilename, searchAlgorithm, patternFilenames, null, trace );
+	}
+	
+	/**
+	 * Initiates search using pattern databases or a named heuristic and prints data regarding it to the screen.
+	 * <p>
+	 * The heuristic is used by the astar algorithm when no pattern databases are given. If it is
+	 * "compare", the astar algorithm is run once with each heuristic instead, and the number of
+	 * nodes each searched is printed (see compareHeuristics()).
+	 * 
+	 * @param startFilename	The file containing the start state of the puzzle
+	 * @param goalFilename	The file containing the goal state of the puzzle
+	 * @param searchAlgorithm	A code specifying the search algorithm to be used
+	 * @param patternFilenames	The files containing disjoint pattern databases (see PatternDatabaseGenerator)
+	 * @param heuristicName	The name of the heuristic used by astar (see createHeuristic()), "compare", or null for the default
+	 * @param trace	Whether to print a trace of every node searched (see TraceSearchListener)
+	 */
+	public void Run( String startFilename, String goalFilename, String searchAlgorithm, String[] patternFilenames,
+			String heuristicName, boolean trace )
+	{
+		Run( startFilename, goalFilename, searchAlgorithm, patternFilenames, heuristicName, trace, null, false );
+	}
+	
+	/**
+	 * Initiates search and prints data regarding it to the screen, also writing the stats of the
+	 * search to a JSON lines file (see SearchStatsLog) if one is given.
+	 * 
+	 * @param startFilename	The file containing the start state of the puzzle
+	 * @param goalFilename	The file containing the goal state of the puzzle
+	 * @param searchAlgorithm	A code specifying the search algorithm to be used
+	 * @param patternFilenames	The files containing disjoint pattern databases (see PatternDatabaseGenerator)
+	 * @param heuristicName	The name of the heuristic used by astar (see createHeuristic()), "compare", or null for the default
+	 * @param trace	Whether to print a trace of every node searched (see TraceSearchListener)
+	 * @param statsFilename	The file to append the stats of the search to, or null
+	 * @param phaseTiming	Whether to time each phase of the search (see SolutionFinder.setPhaseTiming())
+	 */
+	public void Run( String startFilename, String goalFilename, String searchAlgorithm, String[] patternFilenames,
+			String heuristicName, boolean trace, String statsFilename, boolean phaseTiming )
 	{
 		// A list of states representing the path from beginning to end
 		ArrayList<PuzzleGrid> solution = new ArrayList<PuzzleGrid>();
@@ -58,31 +191,65 @@ public class Solve {
 		System.out.println( "===== Goal" );
 		gridGoal.printGrid();
 		
-		// Determine which search algorithm to use based on intial argument
-		switch( searchAlgorithm )
+		// Load the pattern databases or distance table, if any
+		PatternDatabase[] databases = null;
+		DistanceTable table = null;
+		if ( searchAlgorithm.equals( "table" ) ) table = loadDistanceTable( patternFilenames, gridGoal );
+		else databases = loadDatabases( patternFilenames, gridGoal );
+		
+		if ( heuristicName != null && !heuristicName.equals( "compare" ) && createHeuristic( heuristicName ) == null )
 		{
-		case "bfs":
-			search = new BreadthFirstSearch();
-			break;
-		case "dfs":
-			search = new DepthFirstSearch();
-			break;
-		case "gbfs":
-			search = new GreedyBestFirstSearch();
-			break;
-		case "astar":
-			search = new AStarSearch();
-			break;
-		default:
-			break;
-		}	
+			System.out.println( "Heuristic not recognised." );
+			System.out.println( "Try again with one of the following heuristics:" );
+			System.out.println( "manhattan \nlinear \nwalking \ncompare" );
+			return;
+		}
+		
+		if ( heuristicName != null && !heuristicName.equals( "compare" ) && !usesHeuristic( searchAlgorithm ) )
+		{
+			System.out.println( "The " + searchAlgorithm + " algorithm doesn't take a heuristic (only astar and anytime do)." );
+			return;
+		}
+		
+		if ( maxDepth >= 0 && !usesDepthLimit( searchAlgorithm ) )
+		{
+			System.out.println( "The " + searchAlgorithm + " algorithm doesn't take a depth limit (only dfs and dfs-fsm do)." );
+			return;
+		}
+		
+		if ( "compare".equals( heuristicName ) )
+		{
+			compareHeuristics( gridStart, gridGoal, databases );
+			return;
+		}
+		
+		// Determine which search algorithm to use based on intial argument
+		search = createSearch( searchAlgorithm, heuristicName, databases, table );
 		
 		// If search algorithm code recognised
 		if ( search != null )
 		{
+			if ( trace ) search.setSearchListener( new TraceSearchListener() );
+			search.setPhaseTiming( phaseTiming );
+			search.setSearchBudget( budget );
+			if ( maxDepth >= 0 ) ( (DepthFirstSearch) search ).setMaxDepth( maxDepth );
+			
+			// Print each solution of an anytime search as soon as it is found
+			if ( search instanceof AnytimeAStarSearch )
+			{
+				( (AnytimeAStarSearch) search ).setSolutionListener( new SolutionListener() {
+					public void solutionImproved( ArrayList<PuzzleGrid> solution, float bound, long time )
+					{
+						System.out.println( "===== Found Solution of " + ( solution.size() - 1 ) + " moves after " 
+								+ time / 1000000 + " milliseconds (at most " + bound + " times the shortest)" );
+					}
+				} );
+			}
+			
 			// Call method in the search algorithm object to find a solution path
 			// from states gridStart to gridGoal
-			solution = search.findSolution(gridStart, gridGoal);
+			SearchStats stats = search.findSolution(gridStart, gridGoal);
+			solution = stats.getSolution();
 			
 			if ( solution != null )
 			{
@@ -93,6 +260,23 @@ public class Solve {
 				solution.get(i).printGrid();
 				}
 			}
+			else if ( stats.getStatus() == SearchStatus.UNSOLVABLE )
+			{
+				System.out.println( "Puzzle is unsolvable - the goal state cannot be reached from the start state." );
+			}
+			else if ( stats.getStatus() == SearchStatus.BUDGET_EXCEEDED )
+			{
+				// Print the path to the state the search got closest to the goal with
+				System.out.println( "Search stopped after going over its " + stats.getExceededLimit() + " limit." );
+				if ( stats.getBestPath() != null )
+				{
+					System.out.println( "===== Path to Closest State Found" );
+					for ( int i = 0; i < stats.getBestPath().size(); i++ )
+					{
+					stats.getBestPath().get(i).printGrid();
+					}
+				}
+			}
 			else // If solution not found
 			{
 				System.out.println( "Could not find Solution :(" );
@@ -103,12 +287,276 @@ public class Solve {
 			System.out.println( "     Start: " + startFilename );
 			System.out.println( "       End: " + goalFilename );
 			System.out.println( " Algorithm: " + searchAlgorithm );
+			
+			if ( statsFilename != null ) writeStats( statsFilename, startFilename, stats );
+			
+			// Stop the worker threads of a parallel search
+			if ( search instanceof ParallelAStarSearch ) ( (ParallelAStarSearch) search ).close();
 		}
 		else // If search algorithm code not recognised
 		{
 			System.out.println( "Search term not recognised." );
 			System.out.println( "Try again with one of the following terms:" );
-			System.out.println( "bfs \ndfs \ngbfs \nastar" );
+			System.out.println( "bfs \nbibfs \ndfs \ndfs-fsm \ngbfs \nastar \nanytime \nidastar \nidastar-fsm \nhdastar \ntable" );
+		}
+	}
+	
+	/**
+	 * Appends the stats of a search to a JSON lines file, printing a message if it can't be written.
+	 * 
+	 * @param statsFilename	The file to append to
+	 * @param puzzle	The name of the puzzle solved
+	 * @param stats	The stats of the search
+	 */
+	private static void writeStats( String statsFilename, String puzzle, SearchStats stats )
+	{
+		try {
+			SearchStatsLog log = new SearchStatsLog( statsFilename );
+			log.write( puzzle, stats );
+			log.close();
+		} catch ( IOException e ) {
+			System.out.println( "Unable to write search stats to " + statsFilename + "." );
+		}
+	}
+	
+	/**
+	 * Loads pattern databases from files, closing the program if any can't be read or was built
+	 * for a different goal state, or if two share a tile (so their costs can't be added together).
+	 * 
+	 * @param patternFilenames	The files containing the pattern databases
+	 * @param goalState			The goal state the databases will be searched for
+	 * @return The pattern databases, or null if no files were given
+	 */
+	public static PatternDatabase[] loadDatabases( String[] patternFilenames, PuzzleGrid goalState )
+	{
+		if ( patternFilenames.length == 0 ) return null;
+		
+		PatternDatabase[] databases = new PatternDatabase[ patternFilenames.length ];
+		for ( int i = 0; i < patternFilenames.length; i++ )
+		{
+			try {
+				databases[i] = PatternDatabase.load( patternFilenames[i] );
+			} catch ( IOException e ) {
+				System.out.println( "Unable to read pattern database " + patternFilenames[i] + ". Closing..." );
+				System.exit(0);
+			}
+			
+			if ( !databases[i].matchesGoal( goalState ) )
+			{
+				System.out.println( "Pattern database " + patternFilenames[i] + " was built for a different goal state. Closing..." );
+				System.exit(0);
+			}
+			
+			for ( int j = 0; j < i; j++ )
+			{
+				int tile = databases[i].sharedTile( databases[j] );
+				if ( tile >= 0 )
+				{
+					System.out.println( "Pattern databases " + patternFilenames[j] + " and " + patternFilenames[i] 
+							+ " both have tile " + tile + ", so they can't be added together. Closing..." );
+					System.exit(0);
+				}
+			}
+		}
+		return databases;
+	}
+	
+	/**
+	 * Loads the distance table used by the table algorithm, closing the program if it can't be read
+	 * or was built for a different goal state.
+	 * 
+	 * @param tableFilenames	The file containing the distance table (only one may be given)
+	 * @param goalState			The goal state the table will be searched for
+	 * @return The distance table
+	 */
+	public static DistanceTable loadDistanceTable( String[] tableFilenames, PuzzleGrid goalState )
+	{
+		if ( tableFilenames.length != 1 )
+		{
+			System.out.println( "The table algorithm needs one distance table file (see DistanceTableGenerator). Closing..." );
+			System.exit(0);
+		}
+		
+		DistanceTable table = null;
+		try {
+			table = DistanceTable.load( tableFilenames[0] );
+		} catch ( IOException e ) {
+			System.out.println( "Unable to read distance table " + tableFilenames[0] + ". Closing..." );
+			System.exit(0);
+		}
+		
+		if ( !table.matchesGoal( goalState ) )
+		{
+			System.out.println( "Distance table " + tableFilenames[0] + " was built for a different goal state. Closing..." );
+			System.exit(0);
+		}
+		
+		return table;
+	}
+	
+	/**
+	 * Solves a puzzle with an A* search using each heuristic in turn (and the pattern databases,
+	 * if any), and prints the number of nodes each searched, so that the best heuristic for a
+	 * size of grid can be chosen.
+	 * 
+	 * @param gridStart	The start state of the puzzle
+	 * @param gridGoal	The goal state of the puzzle
+	 * @param databases	The pattern databases, or null
+	 */
+	public static void compareHeuristics( PuzzleGrid gridStart, PuzzleGrid gridGoal, PatternDatabase[] databases )
+	{
+		String[] names = { "manhattan", "linear", "walking", "pdb" };
+		
+		System.out.println( " === HEURISTIC COMPARISON === " );
+		System.out.println( " Heuristic\tNodes Searched\tSolution Length\tRun Time (ms)" );
+		
+		for ( String name : names )
+		{
+			Heuristic heuristic;
+			if ( !name.equals( "pdb" ) ) heuristic = createHeuristic( name );
+			else if ( databases != null ) heuristic = new PatternDatabaseHeuristic( databases );
+			else continue;
+			
+			// Set the goal once before timing the search, so any tables it builds (such as the walking
+			// distance tables, which are cached by shape) aren't counted in the run time, and a heuristic
+			// that can't be used for the goal is skipped. The search sets the goal again on its own copy
+			// of the heuristic, which finds those tables already built
+			try {
+				heuristic.setGoal( gridGoal );
+			} catch ( IllegalArgumentException e ) {
+				// Such as a grid too large for walking distance tables
+				System.out.println( " " + name + "\t-\t-\t-\t(" + e.getMessage() + ")" );
+				continue;
+			}
+			
+			SolutionFinder search = new AStarSearch( new BucketFrontier(), heuristic );
+			SearchStats stats = search.findSolution( gridStart, gridGoal );
+			
+			System.out.println( " " + name + "\t" + stats.getNodesExpanded() + "\t" 
+					+ ( stats.getSolution() != null ? stats.getSolution().size() : "-" ) + "\t" + stats.getRunTime() / 1000000 );
+		}
+		
+		System.out.println( " ============================ " );
+	}
+	
+	/**
+	 * Returns whether a search algorithm takes a named heuristic (see createSearch()).
+	 * 
+	 * @param searchAlgorithm	A code specifying the search algorithm
+	 * @return True for the astar and anytime algorithms
+	 */
+	public static boolean usesHeuristic( String searchAlgorithm )
+	{
+		return searchAlgorithm.equals( "astar" ) || searchAlgorithm.equals( "anytime" );
+	}
+	
+	/**
+	 * Returns whether a search algorithm takes a depth limit (see setMaxDepth()).
+	 * 
+	 * @param searchAlgorithm	A code specifying the search algorithm
+	 * @return True for the dfs and dfs-fsm algorithms
+	 */
+	public static boolean usesDepthLimit( String searchAlgorithm )
+	{
+		return searchAlgorithm.equals( "dfs" ) || searchAlgorithm.equals( "dfs-fsm" );
+	}
+	
+	/**
+	 * Creates a new heuristic, for use by the astar algorithm, from its name.
+	 * 
+	 * @param heuristicName	The name of the heuristic: "manhattan" (the Manhattan distance), "linear"
+	 * 						(the Manhattan distance plus linear conflicts) or "walking" (the walking distance)
+	 * @return The heuristic, or null if the name is not recognised
+	 */
+	public static Heuristic createHeuristic( String heuristicName )
+	{
+		switch( heuristicName )
+		{
+		case "manhattan":
+			return new AStarHeuristic();
+		case "linear":
+			return new LinearConflictHeuristic();
+		case "walking":
+			return new WalkingDistanceHeuristic();
+		default:
+			return null;
+		}
+	}
+	
+	/**
+	 * Creates a new search object for a search algorithm code.
+	 * 
+	 * @param searchAlgorithm	A code specifying the search algorithm to be used
+	 * @param databases	The pattern databases used by the astar, anytime and idastar algorithms, or null 
+	 * 					to use the Manhattan distance
+	 * @param table	The distance table used by the table algorithm, or null
+	 * @return The search object, or null if the code is not recognised
+	 */
+	public static SolutionFinder createSearch( String searchAlgorithm, PatternDatabase[] databases, DistanceTable table )
+	{
+		return createSearch( searchAlgorithm, null, databases, table );
+	}
+	
+	/**
+	 * Creates a new search object for a search algorithm code, using a named heuristic.
+	 * 
+	 * @param searchAlgorithm	A code specifying the search algorithm to be used
+	 * @param heuristicName	The name of the heuristic used by the astar and anytime algorithms when no pattern 
+	 * 						databases are given (see createHeuristic()), or null for the Manhattan distance
+	 * @param databases	The pattern databases used by the astar, anytime and idastar algorithms, or null 
+	 * @param table	The distance table used by the table algorithm, or null
+	 * @return The search object, or null if the code (or heuristic name) is not recognised
+	 */
+	public static SolutionFinder createSearch( String searchAlgorithm, String heuristicName, PatternDatabase[] databases,
+			DistanceTable table )
+	{
+		switch( searchAlgorithm )
+		{
+		case "bfs":
+			return new BreadthFirstSearch();
+		case "bibfs":
+			return new BidirectionalBFS();
+		case "dfs":
+			return new DepthFirstSearch();
+		case "dfs-fsm":
+			// Iterative deepening depth first search pruning short cycles as well as moves undoing the last one
+			DepthFirstSearch depthFirst = new DepthFirstSearch();
+			depthFirst.setMovePruner( MovePruner.shortCycles() );
+			return depthFirst;
+		case "gbfs":
+			return new GreedyBestFirstSearch();
+		case "astar":
+			if ( databases != null ) return new AStarSearch( new BucketFrontier(), new PatternDatabaseHeuristic( databases ) );
+			if ( heuristicName != null )
+			{
+				Heuristic heuristic = createHeuristic( heuristicName );
+				return heuristic != null ? new AStarSearch( new BucketFrontier(), heuristic ) : null;
+			}
+			return new AStarSearch();
+		case "idastar":
+			if ( databases != null ) return new IterativeDeepeningAStar( databases );
+			return new IterativeDeepeningAStar();
+		case "idastar-fsm":
+			// IDA* pruning short cycles as well as moves undoing the last one
+			IterativeDeepeningAStar search = databases != null ? new IterativeDeepeningAStar( databases ) : new IterativeDeepeningAStar();
+			search.setMovePruner( MovePruner.shortCycles() );
+			return search;
+		case "anytime":
+			// Weights the same heuristics as astar, starting from a weight of 3
+			if ( databases != null ) return new AnytimeAStarSearch( new PatternDatabaseHeuristic( databases ) );
+			if ( heuristicName != null )
+			{
+				Heuristic heuristic = createHeuristic( heuristicName );
+				return heuristic != null ? new AnytimeAStarSearch( heuristic ) : null;
+			}
+			return new AnytimeAStarSearch();
+		case "hdastar":
+			return new ParallelAStarSearch();
+		case "table":
+			if ( table != null ) return new DistanceTableSearch( table );
+			return null;
+		default:
+			return null;
 		}
 	}
 
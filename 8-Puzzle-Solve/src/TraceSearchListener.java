@@ -0,0 +1,57 @@
+
+/**
+ * An implementation of the SearchListener interface that prints a trace of the search
+ * to the console: every node expanded, and every child opened or found to already be
+ * opened or searched.
+ * <p>
+ * The trace is useful for following small searches by hand, but printing every node
+ * takes far longer than the search itself, so it should not be used for large searches.
+ * 
+ * @author Spencer Newton
+ *
+ */
+public class TraceSearchListener implements SearchListener {
+	/**
+	 * The name of the value the nodes are ordered by, or null if they aren't ordered by one.
+	 */
+	private String valueName;
+	
+	/**
+	 * Default Constructor
+	 */
+	public TraceSearchListener() { }
+	
+	public void searchStarted( String valueName )
+	{
+		this.valueName = valueName;
+		System.out.println( "===== Nodes Opened" );
+	}
+	
+	public void nodeExpanded( PackedGrid state, float value, int count )
+	{
+		if ( valueName != null )
+		{
+			System.out.println( "Current = " + count + "  - " + valueName + "(current) = " + value );
+		}
+		else
+		{
+			System.out.println( "Current = " + count );
+		}
+		state.toPuzzleGrid().printGrid();
+	}
+	
+	public void childOpened( PackedGrid state, float value )
+	{
+		if ( valueName != null )
+		{
+			System.out.println( "\t" + valueName + "(child) = " + value );
+		}
+		state.toPuzzleGrid().printGridAsChild();
+	}
+	
+	public void childSeen( PackedGrid state, boolean reopened )
+	{
+		System.out.println( reopened ? "\t Reopened \n" : "\t Seen \n" );
+	}
+	
+}
@@ -0,0 +1,107 @@
+
+
+/**
+ * An implementation of the Heuristic interface that estimates the cost to the goal node
+ * using the walking distance, and adds the total path length so far for use in an A* search.
+ * <p>
+ * The walking distance is the sum of the fewest moves along columns that bring every tile
+ * into its goal row, and the fewest moves along rows that bring every tile into its goal
+ * column, each looked up in a table precomputed for the shape of the grid (see
+ * WalkingDistanceTable). Unlike the Manhattan distance, it counts the moves needed for
+ * tiles in the same row or column to get past each other, so it gives a better estimate
+ * for larger grids such as the 15-puzzle. The tables are built once per grid shape and
+ * shared by every search, and a heuristic holds nothing else that changes, so it may be
+ * used by several threads at once.
+ * <p>
+ * Grids are limited to those whose summaries fit in a long (up to 4x4, or 3x5).
+ *
+ * @author Spencer Newton
+ *
+ */
+public class WalkingDistanceHeuristic implements Heuristic {
+
+	/**
+	 * The walking distance tables for moves between rows and between columns.
+	 */
+	private WalkingDistanceTable rowTable;
+	private WalkingDistanceTable columnTable;
+
+	/**
+	 * The width of the grid.
+	 */
+	private int width;
+
+	/**
+	 * The goal column and goal row of every tile, indexed by tile.
+	 */
+	private int[] goalX;
+	private int[] goalY;
+
+	/**
+	 * Default Constructor
+	 */
+	public WalkingDistanceHeuristic() { }
+
+	/**
+	 * Finds (or builds) the walking distance tables for the goal state, and the goal row and
+	 * column of every tile.
+	 *
+	 * @throws IllegalArgumentException If the grid is too large for walking distance tables.
+	 */
+	public void setGoal( PuzzleGrid goalState )
+	{
+		int[][] goal = goalState.getRawGrid();
+		width = goalState.getWidth();
+		int height = goalState.getHeight();
+
+		goalX = new int[width * height];
+		goalY = new int[width * height];
+
+		for ( int y = 0; y < height; y++ )
+		{
+			for ( int x = 0; x < width; x++ )
+			{
+				goalX[ goal[x][y] ] = x;
+				goalY[ goal[x][y] ] = y;
+			}
+		}
+
+		rowTable = WalkingDistanceTable.forShape( height, width, goalY[0] );
+		columnTable = WalkingDistanceTable.forShape( width, height, goalX[0] );
+	}
+
+	/**
+	 * Calculates the heuristic based on the state of the node and the goal state of the search, by
+	 * adding together the walking distances between rows and between columns, and the path cost so far.
+	 */
+	public float evaluate( PuzzleNode node )
+	{
+		PackedGrid state = node.getState();
+		int blank = state.getBlank();
+
+		long rows = rowTable.emptyCode( blank / width );
+		long columns = columnTable.emptyCode( blank % width );
+
+		// Summarise the rows and columns of every tile, and their goal rows and columns
+		int size = goalX.length;
+		for ( int p = 0; p < size; p++ )
+		{
+			if ( p == blank ) continue;
+
+			int tile = state.getTile( p );
+			rows = rowTable.addTile( rows, p / width, goalY[tile] );
+			columns = columnTable.addTile( columns, p % width, goalX[tile] );
+		}
+
+		return rowTable.distance( rows ) + columnTable.distance( columns ) + node.getPathCost();
+	}
+
+	/**
+	 * Returns a new walking distance heuristic, with no goal state set.
+	 */
+	public Heuristic copy()
+	{
+		return new WalkingDistanceHeuristic();
+	}
+
+}
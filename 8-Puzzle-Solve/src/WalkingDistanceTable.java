@@ -0,0 +1,240 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * A precomputed table of walking distances along one direction (rows or columns) of
+ * a grid, used by the WalkingDistanceHeuristic.
+ * <p>
+ * Looking only at the rows, a state can be summarised by how many tiles of each goal row
+ * are in each row, and which row the empty tile is in. A move along a column swaps the
+ * empty tile with a tile of the row above or below, and moves along a row change nothing.
+ * The walking distance of a summary is the fewest moves along columns that bring every
+ * tile into its goal row, found by a breadth first search of every summary from the goal's.
+ * The same table is used for the columns by treating them as rows. As moves along rows and
+ * columns are counted separately, the sum of the two walking distances never overestimates
+ * the cost to the goal, while counting the tiles that get in each other's way, unlike the
+ * Manhattan distance.
+ * <p>
+ * A summary is packed into a long code: the line of the empty tile in the lowest bits,
+ * followed by the number of tiles of goal line g in line l for every l and g. The codes
+ * are kept sorted, with the distance of each code at the same index, so that a lookup is
+ * a binary search. Tables are created once per shape and shared (see forShape()).
+ *
+ * @author Spencer Newton
+ *
+ */
+public final class WalkingDistanceTable {
+	/**
+	 * The tables already created, keyed by (lines << 16) | (length << 8) | goalBlankLine.
+	 */
+	private static final ConcurrentHashMap<Integer, WalkingDistanceTable> tables = new ConcurrentHashMap<Integer, WalkingDistanceTable>();
+
+	/**
+	 * The number of lines.
+	 */
+	private final int lines;
+
+	/**
+	 * The number of bits used for the line of the empty tile and for each count.
+	 */
+	private final int blankBits;
+	private final int countBits;
+
+	/**
+	 * The code of every summary reachable from the goal's, in ascending order.
+	 */
+	private final long[] codes;
+
+	/**
+	 * The walking distance of each summary, at the same index as its code.
+	 */
+	private final byte[] distances;
+
+	/**
+	 * A Constructor for building the table for a grid of 'lines' lines of 'length' positions.
+	 *
+	 * @param lines			The number of lines.
+	 * @param length		The number of positions in each line.
+	 * @param goalBlankLine	The line of the empty tile in the goal state.
+	 */
+	private WalkingDistanceTable( int lines, int length, int goalBlankLine )
+	{
+		this.lines = lines;
+		blankBits = Math.max( 1, 32 - Integer.numberOfLeadingZeros( lines - 1 ) );
+		countBits = 32 - Integer.numberOfLeadingZeros( length );
+
+		if ( blankBits + countBits * lines * lines > 63 )
+		{
+			throw new IllegalArgumentException( "A grid with " + lines + " lines of " + length
+					+ " is too large for a walking distance table" );
+		}
+
+		// In the goal summary every tile is in its goal line
+		int[] counts = new int[lines * lines];
+		for ( int l = 0; l < lines; l++ )
+		{
+			counts[l * lines + l] = l == goalBlankLine ? length - 1 : length;
+		}
+
+		HashMap<Long, Integer> found = new HashMap<Long, Integer>();
+		ArrayDeque<Long> open = new ArrayDeque<Long>();
+		long goal = encode( counts, goalBlankLine );
+		found.put( goal, 0 );
+		open.add( goal );
+
+		// Breadth first search of every summary, from the goal
+		while ( !open.isEmpty() )
+		{
+			long code = open.poll();
+			int distance = found.get( code );
+			int blank = decode( code, counts );
+
+			for ( int next = blank - 1; next <= blank + 1; next += 2 )
+			{
+				if ( next < 0 || next >= lines ) continue;
+
+				// Swap the empty tile with a tile of each goal line in the next line
+				for ( int g = 0; g < lines; g++ )
+				{
+					if ( counts[next * lines + g] == 0 ) continue;
+
+					counts[next * lines + g]--;
+					counts[blank * lines + g]++;
+					long child = encode( counts, next );
+					counts[blank * lines + g]--;
+					counts[next * lines + g]++;
+
+					if ( !found.containsKey( child ) )
+					{
+						found.put( child, distance + 1 );
+						open.add( child );
+					}
+				}
+			}
+		}
+
+		codes = new long[found.size()];
+		int i = 0;
+		for ( long code : found.keySet() ) codes[i++] = code;
+		Arrays.sort( codes );
+
+		distances = new byte[codes.length];
+		for ( i = 0; i < codes.length; i++ ) distances[i] = (byte) (int) found.get( codes[i] );
+	}
+
+	/**
+	 * Returns the table for a grid of the specified shape, creating it if needed.
+	 *
+	 * @param lines			The number of lines (rows, or columns).
+	 * @param length		The number of positions in each line.
+	 * @param goalBlankLine	The line of the empty tile in the goal state.
+	 * @return The walking distance table.
+	 * @throws IllegalArgumentException If the grid is too large for its summaries to fit in a long.
+	 */
+	public static WalkingDistanceTable forShape( int lines, int length, int goalBlankLine )
+	{
+		Integer key = ( lines << 16 ) | ( length << 8 ) | goalBlankLine;
+		WalkingDistanceTable table = tables.get( key );
+
+		if ( table == null )
+		{
+			table = new WalkingDistanceTable( lines, length, goalBlankLine );
+			WalkingDistanceTable existing = tables.putIfAbsent( key, table );
+			if ( existing != null ) table = existing;
+		}
+
+		return table;
+	}
+
+	/**
+	 * Returns the code of the summary with no tiles and the empty tile in the specified
+	 * line, to which tiles are added with addTile().
+	 *
+	 * @param blankLine	The line of the empty tile.
+	 * @return The code.
+	 */
+	public long emptyCode( int blankLine )
+	{
+		return blankLine;
+	}
+
+	/**
+	 * Adds a tile to the summary of a code.
+	 *
+	 * @param code		The code of the summary.
+	 * @param line		The line the tile is in.
+	 * @param goalLine	The line the tile is in in the goal state.
+	 * @return The code of the summary with the tile added.
+	 */
+	public long addTile( long code, int line, int goalLine )
+	{
+		return code + ( 1L << ( blankBits + countBits * ( line * lines + goalLine ) ) );
+	}
+
+	/**
+	 * Returns the walking distance of a summary.
+	 *
+	 * @param code	The code of the summary.
+	 * @return The fewest moves between lines that bring every tile into its goal line.
+	 */
+	public int distance( long code )
+	{
+		int i = Arrays.binarySearch( codes, code );
+
+		if ( i < 0 ) throw new IllegalArgumentException( "Summary is not reachable from the goal" );
+
+		return distances[i];
+	}
+
+	/**
+	 * Returns the number of summaries in the table.
+	 *
+	 * @return The number of summaries.
+	 */
+	public int size()
+	{
+		return codes.length;
+	}
+
+	/**
+	 * Packs a summary into a code.
+	 *
+	 * @param counts	The number of tiles of goal line g in line l, at element l * lines + g.
+	 * @param blankLine	The line of the empty tile.
+	 * @return The code.
+	 */
+	private long encode( int[] counts, int blankLine )
+	{
+		long code = emptyCode( blankLine );
+
+		for ( int i = 0; i < counts.length; i++ )
+		{
+			code |= (long) counts[i] << ( blankBits + countBits * i );
+		}
+
+		return code;
+	}
+
+	/**
+	 * Unpacks a code into the counts of its summary.
+	 *
+	 * @param code		The code.
+	 * @param counts	The array to write the counts to, as for encode().
+	 * @return The line of the empty tile.
+	 */
+	private int decode( long code, int[] counts )
+	{
+		long mask = ( 1L << countBits ) - 1;
+
+		for ( int i = 0; i < counts.length; i++ )
+		{
+			counts[i] = (int) ( ( code >>> ( blankBits + countBits * i ) ) & mask );
+		}
+
+		return (int) ( code & ( ( 1L << blankBits ) - 1 ) );
+	}
+
+}
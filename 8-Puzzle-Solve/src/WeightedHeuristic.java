@@ -0,0 +1,98 @@
+
+/**
+ * An implementation of the Heuristic interface that multiplies the estimated distance
+ * to the goal given by another (A*) heuristic by a weight, and adds the path cost so far.
+ * <p>
+ * A weight above 1 makes the search favour states that look closer to the goal over
+ * states that are cheaper to reach, so it finds a solution after far fewer nodes, which
+ * is at most 'weight' times longer than the shortest one. A weight of 1 gives the same
+ * values as the heuristic itself.
+ * <p>
+ * The heuristic given must return the path cost plus its estimate, like an AStarHeuristic
+ * or a PatternDatabaseHeuristic. As the nodes are scored by this heuristic rather than
+ * the one given, it evaluates every node in full rather than from its parent's value.
+ *
+ * @author Spencer Newton
+ *
+ */
+public class WeightedHeuristic implements Heuristic {
+
+	/**
+	 * The heuristic whose estimates are weighted.
+	 */
+	private final Heuristic heuristic;
+
+	/**
+	 * The weight the estimated distance to the goal is multiplied by.
+	 */
+	private float weight;
+
+	/**
+	 * Constructor for a heuristic weighting the estimates of another.
+	 *
+	 * @param heuristic	The heuristic, returning the path cost plus its estimate.
+	 * @param weight	The weight, at least 1.
+	 */
+	public WeightedHeuristic( Heuristic heuristic, float weight )
+	{
+		this.heuristic = heuristic;
+		setWeight( weight );
+	}
+
+	/**
+	 * Prepares the heuristic being weighted for the goal state.
+	 */
+	public void setGoal( PuzzleGrid goalState )
+	{
+		heuristic.setGoal( goalState );
+	}
+
+	/**
+	 * Calculates the path cost of the node plus its estimated distance to the goal multiplied
+	 * by the weight.
+	 */
+	public float evaluate( PuzzleNode node )
+	{
+		int costSoFar = node.getPathCost();
+
+		return costSoFar + weight * ( heuristic.evaluate( node ) - costSoFar );
+	}
+
+	/**
+	 * Returns the estimated distance to the goal of a node evaluated by this heuristic, before
+	 * it was weighted, as long as the weight hasn't changed since.
+	 *
+	 * @param node	The node.
+	 * @return The estimated distance to the goal.
+	 */
+	public float distance( PuzzleNode node )
+	{
+		return ( node.getHeuristicValue() - node.getPathCost() ) / weight;
+	}
+
+	/**
+	 * Sets the weight. The nodes already evaluated keep the value of the weight they were
+	 * evaluated with until they are evaluated again.
+	 *
+	 * @param weight	The weight, at least 1.
+	 */
+	public void setWeight( float weight )
+	{
+		if ( !( weight >= 1 ) ) throw new IllegalArgumentException( "The weight must be at least 1" );
+		this.weight = weight;
+	}
+
+	public float getWeight()
+	{
+		return weight;
+	}
+
+	/**
+	 * Returns a new weighted heuristic with the same weight, weighting a copy of the heuristic.
+	 */
+	public Heuristic copy()
+	{
+		return new WeightedHeuristic( heuristic.copy(), weight );
+	}
+
+}